@@ -0,0 +1,38 @@
+package mlos.sgl.demo;
+
+import java.io.File;
+import java.io.IOException;
+
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.Printer;
+import mlos.sgl.util.PointSource;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Writes random points of a square to a file, in constant memory regardless
+ * of their number. Usage: {@code GeneratePoints file count [seed]}; the same
+ * seed always gives the same file.
+ */
+public class GeneratePoints {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GeneratePoints file count [seed]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        long count = Long.parseLong(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        PointSource points = Randomizer.inSquare(100).parallelSource(seed,
+                count);
+        long start = System.nanoTime();
+        try (Printer printer = new Printer(file)) {
+            printer.writePoints(Formats.COORDS_SPACE_SEPARATED, points);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d points written in %.1f s (%.1f MB)%n", count,
+                seconds, file.length() / 1e6);
+    }
+
+}
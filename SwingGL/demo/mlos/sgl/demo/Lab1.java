@@ -3,6 +3,8 @@ package mlos.sgl.demo;
 import static mlos.sgl.core.Geometry.orient2d;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
 
 import mlos.sgl.App;
 import mlos.sgl.Scene;
@@ -21,6 +23,7 @@ public class Lab1 extends Scene {
         view.setViewport(Rect.aroundOrigin(rx, ry));
 //        view().append(Transforms.r(0.5));
         
+        List<CanvasPoint> canvasPoints = new ArrayList<>();
         for (Vec2d v : points) {
             CanvasPoint p = new CanvasPoint(v);
             double d = orient2d(seg.a, seg.b, v);
@@ -28,8 +31,9 @@ public class Lab1 extends Scene {
             p.setSize(d == 0 ? 15 : 7);
             p.setBorderSize(0);
             p.setColor(c);
-            addObject(p);
+            canvasPoints.add(p);
         }
+        addObjects(canvasPoints);
     }
     
     public static void main(String[] args) {
@@ -0,0 +1,77 @@
+package mlos.sgl.demo;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+
+import mlos.sgl.App;
+import mlos.sgl.Scene;
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.core.BatchOrientation;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.BinaryPoints;
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.MappedPoints;
+import mlos.sgl.io.ParallelParser;
+import mlos.sgl.io.PointBuffer;
+
+/**
+ * Variant of {@link Lab1} displaying whole datasets produced by
+ * {@link Lab1Data} as a single point cloud, which makes it possible to show
+ * millions of points.
+ */
+public class Lab1Cloud extends Scene {
+
+    public Lab1Cloud(String name, CanvasPointCloud cloud, double rx, double ry) {
+        super(name);
+        view.setViewport(Rect.aroundOrigin(rx, ry));
+        addObject(cloud);
+    }
+    
+    public static CanvasPointCloud classify(String path, Segment seg) 
+            throws IOException {
+        double[] xs;
+        double[] ys;
+        int n;
+        File binary = new File(path + ".bin");
+        if (binary.exists()) {
+            try (MappedPoints points = BinaryPoints.open(binary)) {
+                n = (int) points.count();
+                xs = new double[n];
+                ys = new double[n];
+                points.read(0, xs, ys, 0, n);
+            }
+        } else {
+            PointBuffer points = ParallelParser.parsePoints(new File(path),
+                    Formats.COORDS_AS_LONG);
+            n = points.count();
+            xs = points.xs();
+            ys = points.ys();
+        }
+        byte[] signs = new byte[n];
+        BatchOrientation.parallelOrient2d(seg, xs, ys, signs, n);
+        
+        CanvasPointCloud cloud = new CanvasPointCloud(n);
+        for (int i = 0; i < n; ++ i) {
+            int d = signs[i];
+            Color c = d > 0 ? Color.blue: d < 0 ? Color.green: Color.red;
+            cloud.add(xs[i], ys[i], c, d == 0 ? 7 : 2);
+        }
+        return cloud;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        Segment s = new Segment(new Vec2d(-1, 0), new Vec2d(1, 0.1));
+        
+        Scene[] scenes = {
+            new Lab1Cloud("1e2", classify("data/1e2", s), 120, 120),
+            new Lab1Cloud("1e14", classify("data/1e14", s), 1.2e14, 1.2e14),
+            new Lab1Cloud("circle", classify("data/circle", s), 120, 120),
+            new Lab1Cloud("line", classify("data/line", s), 1000, 70)
+        };
+        App.create(scenes);
+    }
+
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 import mlos.sgl.core.Segment;
 import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.BinaryPoints;
 import mlos.sgl.io.Formats;
 import mlos.sgl.io.Printer;
 import mlos.sgl.util.Randomizer;
@@ -16,9 +17,9 @@ import mlos.sgl.util.Randomizer;
 public class Lab1Data {
 
     private static void save(String path, List<Vec2d> points) {
-        try (FileWriter writer = new FileWriter(path)) {
-            Printer printer = new Printer(writer);
+        try (Printer printer = new Printer(new FileWriter(path))) {
             printer.write(Formats.COORDS_AS_LONG, points);
+            BinaryPoints.write(new File(path + ".bin"), points);
         } catch (IOException e) {
             e.printStackTrace();
         }
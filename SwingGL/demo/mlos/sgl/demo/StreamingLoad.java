@@ -0,0 +1,58 @@
+package mlos.sgl.demo;
+
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import mlos.sgl.App;
+import mlos.sgl.Scene;
+import mlos.sgl.core.Rect;
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.PointLoader;
+import mlos.sgl.io.Printer;
+import mlos.sgl.ui.InputAdapter;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Shows points of a large file while it is being loaded. Escape cancels the
+ * loading. Reads the file given as argument (in {@link Formats#COORDS_AS_LONG}
+ * format), or generates a few million random points.
+ */
+public class StreamingLoad extends Scene {
+
+    private static final long SEED = 1;
+
+    private final PointLoader loader;
+
+    public StreamingLoad(String name, File file, double r) {
+        super(name);
+        view.setViewport(Rect.aroundOrigin(r, r));
+        loader = loadPoints(file, Formats.COORDS_AS_LONG);
+
+        handlerStack.pushBack(new InputAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    loader.cancel(false);
+                }
+            }
+        });
+    }
+
+    private static File generate(int n) throws IOException {
+        File file = File.createTempFile("points", ".txt");
+        file.deleteOnExit();
+        try (Printer printer = new Printer(new FileWriter(file))) {
+            printer.writePoints(Formats.COORDS_AS_LONG,
+                    Randomizer.inSquare(100).source(SEED, n));
+        }
+        return file;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = args.length > 0 ? new File(args[0]) : generate(3000000);
+        App.create(new StreamingLoad(file.getName(), file, 120));
+    }
+
+}
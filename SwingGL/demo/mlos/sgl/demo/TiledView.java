@@ -0,0 +1,66 @@
+package mlos.sgl.demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import mlos.sgl.App;
+import mlos.sgl.Scene;
+import mlos.sgl.io.BinaryPoints;
+import mlos.sgl.io.MappedPoints;
+import mlos.sgl.io.TilePyramid;
+import mlos.sgl.view.TiledPointsPainter;
+
+/**
+ * Browses a point set through a {@link TilePyramid}, without loading the
+ * points into memory. Arguments are the binary point file and the directory
+ * for the pyramid; the pyramid is built if the directory has none. Without
+ * arguments, a few million clustered points are generated.
+ */
+public class TiledView extends Scene {
+
+    public TiledView(String name, TilePyramid pyramid) {
+        super(name);
+        view.setViewport(pyramid.getBounds());
+        view.addPrePainter(new TiledPointsPainter(pyramid, view));
+    }
+
+    private static File generate(int n) throws IOException {
+        Random random = new Random(0);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; ++ i) {
+            double cx = 20 * (i % 7);
+            double cy = 15 * (i % 5);
+            double s = 1 + i % 3;
+            xs[i] = cx + s * random.nextGaussian();
+            ys[i] = cy + s * random.nextGaussian();
+        }
+        File file = File.createTempFile("points", ".bin");
+        file.deleteOnExit();
+        BinaryPoints.write(file, xs, ys, null, null, n);
+        return file;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file;
+        File dir;
+        if (args.length >= 2) {
+            file = new File(args[0]);
+            dir = new File(args[1]);
+        } else {
+            file = generate(5000000);
+            dir = new File(System.getProperty("java.io.tmpdir"), "sgl-tiles");
+        }
+        TilePyramid pyramid;
+        if (args.length >= 2 && new File(dir, "pyramid.idx").exists()) {
+            pyramid = TilePyramid.open(dir);
+        } else {
+            try (MappedPoints points = BinaryPoints.open(file)) {
+                pyramid = TilePyramid.build(points, dir);
+            }
+        }
+        App.create(new TiledView(file.getName(), pyramid));
+    }
+
+}
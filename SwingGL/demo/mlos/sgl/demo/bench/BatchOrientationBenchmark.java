@@ -0,0 +1,87 @@
+package mlos.sgl.demo.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import mlos.sgl.core.BatchOrientation;
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.Parser;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Compares classification of {@link mlos.sgl.demo.Lab1Data} points against
+ * a segment: one {@link Geometry#orient2d} call per point versus the batch
+ * API, sequential and parallel. Data files are read from {@code data/} if
+ * present, otherwise points are generated the same way.
+ */
+public class BatchOrientationBenchmark {
+
+    private static final int N = 100000;
+
+    private static final Segment SEG =
+            new Segment(new Vec2d(-1, 0), new Vec2d(1, 0.1));
+
+    private static List<Vec2d> load(String name, double size) throws IOException {
+        File file = new File("data", name);
+        if (file.exists()) {
+            try (Parser parser = new Parser(file)) {
+                return parser.parseAll(Formats.COORDS_AS_LONG);
+            }
+        } else {
+            return Randomizer.inSquare(size).list(N);
+        }
+    }
+
+    private static void run(String name, final List<Vec2d> points)
+            throws Exception {
+        final int n = points.size();
+        final double[] xs = new double[n];
+        final double[] ys = new double[n];
+        int i = 0;
+        for (Vec2d v : points) {
+            xs[i] = v.x;
+            ys[i] = v.y;
+            ++ i;
+        }
+        final byte[] signs = new byte[n];
+
+        Benchmark.run("orient2d per point, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                int positive = 0;
+                for (Vec2d v : points) {
+                    if (Geometry.orient2d(SEG.a, SEG.b, v) > 0) {
+                        ++ positive;
+                    }
+                }
+                return positive;
+            }
+        });
+
+        Benchmark.run("batch, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                BatchOrientation.orient2d(SEG, xs, ys, signs, n);
+                return signs;
+            }
+        });
+
+        Benchmark.run("parallel batch, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                BatchOrientation.parallelOrient2d(SEG, xs, ys, signs, n);
+                return signs;
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        run("1e2", load("1e2", 100));
+        run("1e14", load("1e14", 1e14));
+    }
+
+}
@@ -0,0 +1,86 @@
+package mlos.sgl.demo.bench;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.CanvasPanel;
+import mlos.sgl.view.CanvasView;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.PointPainter;
+import mlos.sgl.view.SegmentPainter;
+
+/**
+ * Compares full repaints of a scene of 100K points in a few colors and 10K
+ * solid and dashed segments, with and without batching of objects of the
+ * same style, on a single thread. Runs headless.
+ */
+public class BatchingBenchmark {
+
+    private static final int POINTS = 100000;
+
+    private static final int SEGMENTS = 10000;
+
+    private static final int WIDTH = 1024;
+
+    private static final int HEIGHT = 768;
+
+    private static final Color[] COLORS = { 
+        Color.red, Color.blue, Color.green, Color.orange 
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        CanvasPanel panel = new CanvasPanel();
+        panel.setSize(WIDTH, HEIGHT);
+        final CanvasView view = new CanvasView(panel);
+        view.setViewport(Rect.aroundOrigin(110));
+        view.setLayerCaching(false);
+        view.setLevelOfDetail(false);
+        view.setTileRenderer(null);
+
+        List<ObjectPainter> painters = new ArrayList<>();
+        int i = 0;
+        for (Vec2d v : Randomizer.inSquare(100).seeded(1).list(POINTS)) {
+            CanvasPoint point = new CanvasPoint(v);
+            point.setColor(COLORS[i++ * COLORS.length / POINTS]);
+            painters.add(new PointPainter(point));
+        }
+        i = 0;
+        for (Segment s : Randomizer.inSquare(100).seeded(2).segments()
+                .list(SEGMENTS)) {
+            CanvasSegment segment = new CanvasSegment(s);
+            segment.setDashed(i++ >= SEGMENTS / 2);
+            painters.add(new SegmentPainter(segment));
+        }
+        view.addAll(painters);
+
+        for (boolean antialiasing : new boolean[] { false, true }) {
+            view.setAntialiasing(antialiasing);
+            for (boolean batching : new boolean[] { false, true }) {
+                view.setBatching(batching);
+                BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                        BufferedImage.TYPE_INT_RGB);
+                final Graphics2D g = image.createGraphics();
+                Benchmark.run("repaint, antialiasing = " + antialiasing
+                        + ", batching = " + batching, new Benchmark.Action() {
+                    @Override
+                    public Object run() {
+                        view.paint(view.normToScreen(), g);
+                        return g;
+                    }
+                });
+                g.dispose();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+package mlos.sgl.demo.bench;
+
+/**
+ * Minimal benchmark harness: runs the action a number of times to let the
+ * JIT settle, then reports average time of the measured runs.
+ */
+public final class Benchmark {
+
+    public static final int DEFAULT_WARMUP = 5;
+    
+    public static final int DEFAULT_RUNS = 10;
+    
+    /** Sink preventing the JIT from eliminating benchmarked code */
+    private static volatile Object sink;
+    
+    private Benchmark() {
+        // non-instantiable
+    }
+    
+    public interface Action {
+        Object run() throws Exception;
+    }
+    
+    /**
+     * @return Average time of single run, in nanoseconds
+     */
+    public static double measure(int warmup, int runs, Action action) 
+            throws Exception {
+        for (int i = 0; i < warmup; ++ i) {
+            sink = action.run();
+        }
+        long before = System.nanoTime();
+        for (int i = 0; i < runs; ++ i) {
+            sink = action.run();
+        }
+        long dt = System.nanoTime() - before;
+        return (double) dt / runs;
+    }
+    
+    public static double measure(Action action) throws Exception {
+        return measure(DEFAULT_WARMUP, DEFAULT_RUNS, action);
+    }
+    
+    public static void report(String name, double nanos) {
+        System.out.printf("%-40s %12.3f ms%n", name, nanos / 1e6);
+    }
+    
+    public static void run(String name, Action action) throws Exception {
+        report(name, measure(action));
+    }
+    
+    /**
+     * Reports time together with throughput of processing given number of
+     * bytes in a single run.
+     */
+    public static void report(String name, double nanos, long bytes) {
+        double mbs = bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+        System.out.printf("%-40s %12.3f ms %10.1f MB/s%n", name, nanos / 1e6, 
+                mbs);
+    }
+    
+    public static void run(String name, long bytes, Action action) 
+            throws Exception {
+        report(name, measure(action), bytes);
+    }
+    
+}
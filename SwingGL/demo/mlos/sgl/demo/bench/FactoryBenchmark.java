@@ -0,0 +1,74 @@
+package mlos.sgl.demo.bench;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.DefaultObjectPainterFactory;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.ObjectPainterFactory;
+import mlos.sgl.view.PointPainter;
+
+/**
+ * Compares creation of painters: constructor lookup and reflective call for
+ * each object (as GenericFactory used to do), the factory with creators
+ * cached per class, and plain constructor call.
+ */
+public class FactoryBenchmark {
+
+    private static final int N = 1000000;
+
+    /** Painter creation as done before constructors were cached */
+    private static ObjectPainter createReflectively(CanvasObject object)
+            throws Exception {
+        Class<?> clazz = object.getClass();
+        Constructor<PointPainter> ctor = PointPainter.class.getConstructor(clazz);
+        return ctor.newInstance(object);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final List<CanvasPoint> points = new ArrayList<>(N);
+        for (Vec2d v : Randomizer.inSquare(1).list(N)) {
+            points.add(new CanvasPoint(v));
+        }
+        final ObjectPainterFactory factory = new DefaultObjectPainterFactory();
+
+        Benchmark.run("lookup + newInstance, n = " + N, new Benchmark.Action() {
+            @Override
+            public Object run() throws Exception {
+                Object last = null;
+                for (CanvasPoint p : points) {
+                    last = createReflectively(p);
+                }
+                return last;
+            }
+        });
+
+        Benchmark.run("cached creator, n = " + N, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                Object last = null;
+                for (CanvasPoint p : points) {
+                    last = factory.createPainter(p);
+                }
+                return last;
+            }
+        });
+
+        Benchmark.run("constructor call, n = " + N, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                Object last = null;
+                for (CanvasPoint p : points) {
+                    last = new PointPainter(p);
+                }
+                return last;
+            }
+        });
+    }
+
+}
@@ -0,0 +1,93 @@
+package mlos.sgl.demo.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Transforms;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.CanvasPanel;
+import mlos.sgl.view.CanvasView;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.PointPainter;
+import mlos.sgl.view.SegmentPainter;
+
+/**
+ * Measures a repaint of the view that changes only painters (like cursor
+ * tracking), and a repaint after panning by a few pixels, with and without
+ * the cached object layer, for a scene of 100K points and 10K segments. Runs
+ * headless.
+ */
+public class LayerBenchmark {
+
+    private static final int POINTS = 100000;
+
+    private static final int SEGMENTS = 10000;
+
+    private static final int WIDTH = 1024;
+
+    private static final int HEIGHT = 768;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        CanvasPanel panel = new CanvasPanel();
+        panel.setSize(WIDTH, HEIGHT);
+        final CanvasView view = new CanvasView(panel);
+        view.setViewport(Rect.aroundOrigin(110));
+
+        List<ObjectPainter> painters = new ArrayList<>();
+        for (Vec2d v : Randomizer.inSquare(100).seeded(1).list(POINTS)) {
+            painters.add(new PointPainter(new CanvasPoint(v)));
+        }
+        for (Segment s : Randomizer.inSquare(100).seeded(2).segments()
+                .list(SEGMENTS)) {
+            painters.add(new SegmentPainter(new CanvasSegment(s)));
+        }
+        view.addAll(painters);
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                BufferedImage.TYPE_INT_RGB);
+        final Graphics2D g = image.createGraphics();
+
+        for (final boolean caching : new boolean[] { false, true }) {
+            view.setLayerCaching(caching);
+            Benchmark.run("repaint, caching = " + caching,
+                    new Benchmark.Action() {
+                @Override
+                public Object run() {
+                    view.paint(view.normToScreen(), g);
+                    return g;
+                }
+            });
+            Benchmark.run("pan, caching = " + caching,
+                    new Benchmark.Action() {
+                @Override
+                public Object run() {
+                    view.prepend(Transforms.t(panStep(view, 5, 3)));
+                    view.paint(view.normToScreen(), g);
+                    return g;
+                }
+            });
+        }
+        g.dispose();
+    }
+
+    /**
+     * @return Translation in the plane moving the view by the given number
+     *         of pixels
+     */
+    private static Vec2d panStep(CanvasView view, int dx, int dy) {
+        Transform t = view.planeToScreen();
+        Vec2d a = t.invert(new Vec2d(0, 0));
+        Vec2d b = t.invert(new Vec2d(dx, dy));
+        return new Vec2d(b.x - a.x, b.y - a.y);
+    }
+
+}
@@ -0,0 +1,83 @@
+package mlos.sgl.demo.bench;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.ObjectZComparator;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.PointPainter;
+import mlos.sgl.view.ZSortedPainters;
+
+/**
+ * Compares preparation of the painting list: copying and sorting a hash set
+ * on every frame versus walking a persistently sorted collection.
+ * 
+ * Needs a large heap for the biggest size (e.g. -Xmx2g).
+ */
+public class PaintListBenchmark {
+    
+    private static final Comparator<ObjectPainter> Z_ORDER = 
+            new Comparator<ObjectPainter>() {
+
+        @Override
+        public int compare(ObjectPainter a, ObjectPainter b) {
+            return ObjectZComparator.INSTANCE.compare(a.getObject(), 
+                    b.getObject());
+        }
+    };
+    
+    private static List<ObjectPainter> createPainters(int n) {
+        List<Vec2d> points = Randomizer.inSquare(1).list(n);
+        List<ObjectPainter> painters = new ArrayList<>(n);
+        int i = 0;
+        for (Vec2d v : points) {
+            CanvasPoint p = new CanvasPoint(v, (i++ % 10) / 10.0);
+            painters.add(new PointPainter(p));
+        }
+        return painters;
+    }
+    
+    private static void run(int n) throws Exception {
+        List<ObjectPainter> painters = createPainters(n);
+        
+        final Collection<ObjectPainter> set = new HashSet<>(painters);
+        final ZSortedPainters sorted = new ZSortedPainters();
+        for (ObjectPainter p : painters) {
+            sorted.add(p);
+        }
+        
+        Benchmark.run("copy and sort, n = " + n, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                List<ObjectPainter> list = new ArrayList<>(set);
+                Collections.sort(list, Z_ORDER);
+                return list;
+            }
+        });
+        
+        Benchmark.run("persistent order, n = " + n, new Benchmark.Action() {
+            @Override
+            public Object run() {
+                ObjectPainter last = null;
+                for (ObjectPainter p : sorted) {
+                    last = p;
+                }
+                return last;
+            }
+        });
+    }
+    
+    public static void main(String[] args) throws Exception {
+        for (int n : new int[] { 10000, 100000, 1000000 }) {
+            run(n);
+        }
+    }
+    
+}
@@ -0,0 +1,151 @@
+package mlos.sgl.demo.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.CoordsFormat;
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.ParallelParser;
+import mlos.sgl.io.Parser;
+import mlos.sgl.io.Printer;
+import mlos.sgl.io.Tokenizer;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Measures throughput of reading 1M-point files in both text formats:
+ * {@link Scanner} (as {@link Parser} used to do), {@link Parser#parseAll}
+ * creating a {@link Vec2d} per point, {@link Parser#parsePoints} filling
+ * primitive arrays, and {@link ParallelParser} parsing chunks of the file on
+ * all the cores.
+ */
+public class ParserBenchmark {
+
+    private static final int N = 1000000;
+
+    private interface ScannerReader {
+        double read(Scanner scanner);
+    }
+
+    private static final ScannerReader DOUBLE = new ScannerReader() {
+        @Override
+        public double read(Scanner scanner) {
+            return scanner.nextDouble();
+        }
+    };
+
+    private static final ScannerReader LONG_BITS = new ScannerReader() {
+        @Override
+        public double read(Scanner scanner) {
+            return Double.longBitsToDouble(scanner.nextLong());
+        }
+    };
+
+    /** Shortest decimal representation, as produced by most other tools */
+    private static final CoordsFormat SHORTEST = new CoordsFormat() {
+        @Override
+        public String printCoord(double x) {
+            return Double.toString(x);
+        }
+
+        @Override
+        public double parseCoord(Tokenizer tokens) throws IOException {
+            return tokens.nextDouble();
+        }
+    };
+
+    /**
+     * Fixed notation with 18 decimal places, as {@link Formats} used to
+     * print coordinates
+     */
+    private static final CoordsFormat FIXED_18 = new CoordsFormat() {
+        @Override
+        public String printCoord(double x) {
+            return String.format(Locale.ROOT, "%.18f", x);
+        }
+
+        @Override
+        public double parseCoord(Tokenizer tokens) throws IOException {
+            return tokens.nextDouble();
+        }
+    };
+
+    private static File write(CoordsFormat format, List<Vec2d> points)
+            throws IOException {
+        File file = File.createTempFile("points", ".txt");
+        file.deleteOnExit();
+        try (Printer printer = new Printer(new FileWriter(file))) {
+            printer.write(format, points);
+        }
+        return file;
+    }
+
+    private static void run(String name, final File file,
+            final CoordsFormat format, final ScannerReader reader)
+            throws Exception {
+        long bytes = file.length();
+
+        Benchmark.run("scanner, " + name, bytes, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                double sum = 0;
+                try (Scanner scanner = new Scanner(
+                        new BufferedReader(new FileReader(file)))) {
+                    while (scanner.hasNext()) {
+                        sum += reader.read(scanner);
+                        sum += reader.read(scanner);
+                    }
+                }
+                return sum;
+            }
+        });
+
+        Benchmark.run("parseAll, " + name, bytes, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                try (Parser parser = new Parser(new FileReader(file))) {
+                    return parser.parseAll(format);
+                }
+            }
+        });
+
+        Benchmark.run("parsePoints, " + name, bytes, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                try (Parser parser = new Parser(new FileReader(file))) {
+                    return parser.parsePoints(format);
+                }
+            }
+        });
+
+        Benchmark.run("parallel, " + name, bytes, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                return ParallelParser.parsePoints(file, format);
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Vec2d> points = Randomizer.inSquare(1000).list(N);
+        List<Vec2d> rounded = Randomizer.inSquare(1000).list(N);
+        for (int i = 0; i < N; ++ i) {
+            Vec2d v = rounded.get(i);
+            rounded.set(i, new Vec2d(Math.rint(v.x * 1e3) / 1e3,
+                    Math.rint(v.y * 1e3) / 1e3));
+        }
+
+        run("long bits", write(Formats.COORDS_AS_LONG, points),
+                Formats.COORDS_AS_LONG, LONG_BITS);
+        run("18 decimal places", write(FIXED_18, points), FIXED_18, DOUBLE);
+        run("shortest decimal", write(SHORTEST, points), SHORTEST, DOUBLE);
+        run("3 decimal places", write(SHORTEST, rounded), SHORTEST, DOUBLE);
+    }
+
+}
@@ -0,0 +1,108 @@
+package mlos.sgl.demo.bench;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.CanvasPanel;
+import mlos.sgl.view.CanvasView;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.PointPainter;
+
+/**
+ * Compares full repaints of 200K points drawn as ovals, as they were before
+ * sprites, with points drawn with one sprite each, and with long runs of
+ * points stamped into a single image. Runs headless.
+ */
+public class PointSpriteBenchmark {
+
+    private static final int POINTS = 200000;
+
+    private static final int WIDTH = 1024;
+
+    private static final int HEIGHT = 768;
+
+    private static final Color[] COLORS = { 
+        Color.red, Color.blue, Color.green, Color.orange 
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        CanvasPanel panel = new CanvasPanel();
+        panel.setSize(WIDTH, HEIGHT);
+        final CanvasView view = new CanvasView(panel);
+        view.setViewport(Rect.aroundOrigin(110));
+        view.setLayerCaching(false);
+        view.setLevelOfDetail(false);
+        view.setTileRenderer(null);
+
+        final List<CanvasPoint> points = new ArrayList<>();
+        List<ObjectPainter> painters = new ArrayList<>();
+        int i = 0;
+        for (Vec2d v : Randomizer.inSquare(100).seeded(1).list(POINTS)) {
+            CanvasPoint point = new CanvasPoint(v);
+            point.setColor(COLORS[i++ % COLORS.length]);
+            points.add(point);
+            painters.add(new PointPainter(point));
+        }
+        view.addAll(painters);
+        final Transform t = view.planeToScreen();
+
+        for (final boolean antialiasing : new boolean[] { false, true }) {
+            view.setAntialiasing(antialiasing);
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                    BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = image.createGraphics();
+            g.setClip(0, 0, WIDTH, HEIGHT);
+            String suffix = ", antialiasing = " + antialiasing;
+            
+            Benchmark.run("ovals" + suffix, new Benchmark.Action() {
+                @Override
+                public Object run() {
+                    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                            antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON
+                                    : RenderingHints.VALUE_ANTIALIAS_OFF);
+                    for (CanvasPoint point : points) {
+                        paintOval(point, t, g);
+                    }
+                    return g;
+                }
+            });
+            for (boolean batching : new boolean[] { false, true }) {
+                view.setBatching(batching);
+                String name = batching ? "stamped" : "sprites";
+                Benchmark.run(name + suffix, new Benchmark.Action() {
+                    @Override
+                    public Object run() {
+                        view.paint(view.normToScreen(), g);
+                        return g;
+                    }
+                });
+            }
+            g.dispose();
+        }
+    }
+
+    private static void paintOval(CanvasPoint point, Transform t, 
+            Graphics2D g) {
+        Vec2d p = point.getPoint();
+        int size = point.getSize();
+        int left = (int) Math.floor(t.applyX(p.x, p.y)) - size / 2;
+        int top = (int) Math.floor(t.applyY(p.x, p.y)) - size / 2;
+        g.setColor(point.getColor());
+        g.fillOval(left, top, size, size);
+        g.setColor(point.getBorderColor());
+        g.setStroke(new BasicStroke(point.getBorderSize()));
+        g.drawOval(left, top, size, size);
+    }
+
+}
@@ -0,0 +1,110 @@
+package mlos.sgl.demo.bench;
+
+import java.util.List;
+
+import mlos.sgl.core.ExactPredicates;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Compares pure Java and native (JNI) implementations of exact predicates on
+ * the data sets of {@link mlos.sgl.demo.Lab1}. Native implementation is
+ * skipped if the library cannot be loaded.
+ */
+public class PredicateBenchmark {
+
+    private static final int N = 1000000;
+
+    private static final Segment SEG =
+            new Segment(new Vec2d(-1, 0), new Vec2d(1, 0.1));
+
+    private static double[] coords(List<Vec2d> points) {
+        double[] c = new double[2 * points.size()];
+        int i = 0;
+        for (Vec2d v : points) {
+            c[i++] = v.x;
+            c[i++] = v.y;
+        }
+        return c;
+    }
+
+    private static Benchmark.Action orient(final ExactPredicates p,
+            final double[] c) {
+        return new Benchmark.Action() {
+            @Override
+            public Object run() {
+                double ax = SEG.a.x, ay = SEG.a.y;
+                double bx = SEG.b.x, by = SEG.b.y;
+                int positive = 0;
+                for (int i = 0; i < c.length; i += 2) {
+                    if (p.orient2d(ax, ay, bx, by, c[i], c[i + 1]) > 0) {
+                        ++ positive;
+                    }
+                }
+                return positive;
+            }
+        };
+    }
+
+    private static Benchmark.Action incircle(final ExactPredicates p,
+            final double[] c) {
+        return new Benchmark.Action() {
+            @Override
+            public Object run() {
+                int inside = 0;
+                for (int i = 0; i + 7 < c.length; i += 2) {
+                    if (p.incircle(c[i], c[i + 1], c[i + 2], c[i + 3],
+                            c[i + 4], c[i + 5], c[i + 6], c[i + 7]) > 0) {
+                        ++ inside;
+                    }
+                }
+                return inside;
+            }
+        };
+    }
+
+    private static boolean nativeAvailable() {
+        try {
+            ExactPredicates.NATIVE.orient2d(0, 0, 1, 0, 0, 1);
+            return true;
+        } catch (UnsatisfiedLinkError e) {
+            System.out.println("Native predicates unavailable: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        double r = 1000;
+        Segment line = new Segment(
+                new Vec2d(r * -1, r * -0.05 + 0.05),
+                new Vec2d(r * 1, r * 0.05 + 0.05));
+
+        String[] names = { "1e2", "1e14", "circle", "line" };
+        double[][] sets = {
+            coords(Randomizer.inSquare(100).list(N)),
+            coords(Randomizer.inSquare(1e14).list(N)),
+            coords(Randomizer.onCircle(100).list(N)),
+            coords(Randomizer.onSegment(line).list(N))
+        };
+        boolean withNative = nativeAvailable();
+
+        for (int i = 0; i < sets.length; ++ i) {
+            Benchmark.run("orient2d java, " + names[i],
+                    orient(ExactPredicates.JAVA, sets[i]));
+            if (withNative) {
+                Benchmark.run("orient2d native, " + names[i],
+                        orient(ExactPredicates.NATIVE, sets[i]));
+            }
+        }
+        for (int i = 0; i < sets.length; ++ i) {
+            Benchmark.run("incircle java, " + names[i],
+                    incircle(ExactPredicates.JAVA, sets[i]));
+            if (withNative) {
+                Benchmark.run("incircle native, " + names[i],
+                        incircle(ExactPredicates.NATIVE, sets[i]));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package mlos.sgl.demo.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.CoordsFormat;
+import mlos.sgl.io.Formats;
+import mlos.sgl.io.Printer;
+import mlos.sgl.io.PointBuffer;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Compares writing 1M points with {@link String#format} (as {@link Printer}
+ * used to do) and with the buffered printer, from a list of {@link Vec2d}
+ * and from primitive arrays. Raw bits of coordinates are formatted as
+ * {@code long}s. Output is discarded, so that only formatting is
+ * measured.
+ */
+public class PrinterBenchmark {
+
+    private static final int N = 1000000;
+
+    /** Discards all the output, counting written characters */
+    private static class NullWriter extends Writer {
+
+        long count = 0;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str) {
+            count += str.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static void run(String name, final List<Vec2d> points,
+            final PointBuffer buffer, final CoordsFormat format,
+            final String pattern, final boolean raw) throws Exception {
+
+        Benchmark.run("String.format, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                NullWriter out = new NullWriter();
+                for (Vec2d v : points) {
+                    if (raw) {
+                        out.write(String.format(pattern,
+                                Double.doubleToLongBits(v.x),
+                                Double.doubleToLongBits(v.y)));
+                    } else {
+                        out.write(String.format(pattern, v.x, v.y));
+                    }
+                    out.write('\n');
+                }
+                return out.count;
+            }
+        });
+
+        Benchmark.run("printer, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                NullWriter out = new NullWriter();
+                try (Printer printer = new Printer(out)) {
+                    printer.write(format, points);
+                }
+                return out.count;
+            }
+        });
+
+        Benchmark.run("printer, arrays, " + name, new Benchmark.Action() {
+            @Override
+            public Object run() throws IOException {
+                NullWriter out = new NullWriter();
+                try (Printer printer = new Printer(out)) {
+                    printer.writePoints(format, buffer);
+                }
+                return out.count;
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Vec2d> points = Randomizer.inSquare(1000).list(N);
+        PointBuffer buffer = new PointBuffer(N);
+        for (Vec2d v : points) {
+            buffer.add(v.x, v.y);
+        }
+        run("decimal", points, buffer, Formats.COORDS_SPACE_SEPARATED,
+                "%.18f %.18f", false);
+        run("hex", points, buffer, Formats.COORDS_AS_HEX, "%016x %016x", true);
+    }
+
+}
@@ -0,0 +1,97 @@
+package mlos.sgl.demo.bench;
+
+import java.util.Arrays;
+
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.util.Randomizer.PointGenerator;
+
+/**
+ * Compares generating 1M random points as a list of objects with filling
+ * coordinate arrays, sequentially and in parallel, and rejection sampling
+ * with direct samplers.
+ */
+public class RandomizerBenchmark {
+
+    private static final int N = 1000000;
+
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        final PointGenerator gen = Randomizer.inSquare(100);
+        final double[] xs = new double[N];
+        final double[] ys = new double[N];
+
+        Benchmark.run("list", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                return gen.list(N);
+            }
+        });
+        Benchmark.run("fill", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                gen.fill(SEED, xs, ys, N);
+                return xs;
+            }
+        });
+        Benchmark.run("parallel fill", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                gen.parallelFill(SEED, xs, ys, N);
+                return xs;
+            }
+        });
+
+        double[] xs2 = new double[N];
+        double[] ys2 = new double[N];
+        gen.fill(SEED, xs2, ys2, N);
+        boolean same = Arrays.equals(xs, xs2) && Arrays.equals(ys, ys2);
+        System.out.println("parallel same as sequential: " + same);
+
+        final PointGenerator square = Randomizer.inSquare(1);
+        Benchmark.run("disk by rejection", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                return square.filter(Geometry.inCirclePred(1)).list(N);
+            }
+        });
+        final PointGenerator disk = Randomizer.inDisk(1);
+        Benchmark.run("disk", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                return disk.list(N);
+            }
+        });
+        final PointGenerator star = Randomizer.inPolygon(star(50));
+        Benchmark.run("star polygon fill", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                star.parallelFill(SEED, xs, ys, N);
+                return xs;
+            }
+        });
+        Benchmark.run("poisson disk", new Benchmark.Action() {
+            @Override
+            public Object run() {
+                return Randomizer.poissonDisk(Rect.aroundOrigin(1), 0.005,
+                        SEED);
+            }
+        });
+
+    }
+
+    /** Star with spikes of alternating radius, far from convex */
+    private static Vec2d[] star(int spikes) {
+        Vec2d[] vs = new Vec2d[2 * spikes];
+        for (int i = 0; i < vs.length; ++ i) {
+            double r = i % 2 == 0 ? 1 : 0.1;
+            double theta = Math.PI * i / spikes;
+            vs[i] = new Vec2d(r * Math.cos(theta), r * Math.sin(theta));
+        }
+        return vs;
+    }
+
+}
@@ -0,0 +1,65 @@
+package mlos.sgl.demo.bench;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.io.CanvasSnapshot;
+import mlos.sgl.util.Randomizer;
+
+/**
+ * Measures saving and loading a snapshot of a canvas with 1M points and
+ * 100K segments in a handful of styles.
+ */
+public class SnapshotBenchmark {
+
+    private static final int POINTS = 1000000;
+
+    private static final int SEGMENTS = 100000;
+
+    private static final Color[] COLORS = {
+        Color.red, Color.green, Color.blue, Color.black
+    };
+
+    public static void main(String[] args) throws Exception {
+        final List<CanvasObject> objects = new ArrayList<>();
+        int i = 0;
+        for (Vec2d v : Randomizer.inSquare(100).list(POINTS)) {
+            CanvasPoint p = new CanvasPoint(v);
+            p.setColor(COLORS[i++ % COLORS.length]);
+            objects.add(p);
+        }
+        List<Vec2d> ends = Randomizer.inSquare(100).list(2 * SEGMENTS);
+        for (int j = 0; j < SEGMENTS; ++ j) {
+            Segment seg = new Segment(ends.get(2 * j), ends.get(2 * j + 1));
+            CanvasSegment s = new CanvasSegment(seg);
+            s.setDashed(j % 2 == 0);
+            objects.add(s);
+        }
+        final File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+
+        Benchmark.run("save", new Benchmark.Action() {
+            @Override
+            public Object run() throws Exception {
+                CanvasSnapshot.save(file, objects);
+                return file.length();
+            }
+        });
+        System.out.printf("snapshot size: %.1f MB%n", file.length() / 1e6);
+
+        Benchmark.run("load", new Benchmark.Action() {
+            @Override
+            public Object run() throws Exception {
+                return CanvasSnapshot.load(file);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,79 @@
+package mlos.sgl.demo.bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+import mlos.sgl.util.Randomizer;
+import mlos.sgl.view.CanvasPanel;
+import mlos.sgl.view.CanvasView;
+import mlos.sgl.view.ObjectPainter;
+import mlos.sgl.view.PointPainter;
+import mlos.sgl.view.SegmentPainter;
+import mlos.sgl.view.TileRenderer;
+
+/**
+ * Compares full repaints of a scene of 100K points and 10K segments painted
+ * sequentially and by the tile renderer, without antialiasing, and checks
+ * that both give the same pixels. Runs headless.
+ */
+public class TileRendererBenchmark {
+
+    private static final int POINTS = 100000;
+
+    private static final int SEGMENTS = 10000;
+
+    private static final int WIDTH = 1024;
+
+    private static final int HEIGHT = 768;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        CanvasPanel panel = new CanvasPanel();
+        panel.setSize(WIDTH, HEIGHT);
+        final CanvasView view = new CanvasView(panel);
+        view.setViewport(Rect.aroundOrigin(110));
+        view.setLayerCaching(false);
+        view.setLevelOfDetail(false);
+        view.setAntialiasing(false);
+
+        List<ObjectPainter> painters = new ArrayList<>();
+        for (Vec2d v : Randomizer.inSquare(100).seeded(1).list(POINTS)) {
+            painters.add(new PointPainter(new CanvasPoint(v)));
+        }
+        for (Segment s : Randomizer.inSquare(100).seeded(2).segments()
+                .list(SEGMENTS)) {
+            painters.add(new SegmentPainter(new CanvasSegment(s)));
+        }
+        view.addAll(painters);
+
+        int[][] pixels = new int[2][];
+        int i = 0;
+        for (TileRenderer renderer : Arrays.asList(null, new TileRenderer())) {
+            view.setTileRenderer(renderer);
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+                    BufferedImage.TYPE_INT_RGB);
+            final Graphics2D g = image.createGraphics();
+            Benchmark.run("repaint, tiled = " + (renderer != null),
+                    new Benchmark.Action() {
+                @Override
+                public Object run() {
+                    view.paint(view.normToScreen(), g);
+                    return g;
+                }
+            });
+            g.dispose();
+            pixels[i++] = image.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+        }
+        System.out.println("same pixels: " + Arrays.equals(pixels[0],
+                pixels[1]));
+    }
+
+}
@@ -48,9 +48,7 @@ class DelaunayScene(s: String) extends AlgorithmScene(s) { self =>
 
   def this(s: String, ps: Iterable[Vec2d]) = {
     this(s)
-    for (p <- ps) {
-      addPoint(p)
-    }
+    addObjects(ps map { new CanvasPoint(_) })
   }
 
 }
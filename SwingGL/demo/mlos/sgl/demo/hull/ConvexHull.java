@@ -3,8 +3,8 @@ package mlos.sgl.demo.hull;
 import java.awt.Color;
 import java.awt.event.KeyEvent;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -44,12 +44,14 @@ public class ConvexHull extends Scene {
         super(name);
         view.setViewport(Rect.aroundOrigin(rx, ry));
 
+        List<CanvasPoint> canvasPoints = new ArrayList<>();
         for (Vec2d v : points) {
             CanvasPoint p = new CanvasPoint(v);
             p.setSize(6);
             p.setBorderSize(0);
-            addObject(p);
+            canvasPoints.add(p);
         }
+        addObjects(canvasPoints);
 
         handlerStack.pushBack(new InputAdapter() {
             @Override
@@ -83,8 +85,9 @@ public class ConvexHull extends Scene {
     }
 
     private void saveHull(File selectedFile) throws IOException {
-        Printer printer = new Printer(new FileOutputStream(selectedFile));
-        printer.write(Formats.COORDS_SPACE_SEPARATED, hull);
+        try (Printer printer = new Printer(selectedFile)) {
+            printer.write(Formats.COORDS_SPACE_SEPARATED, hull);
+        }
     }
 
     private void printPolygon(Iterable<Vec2d> points) {
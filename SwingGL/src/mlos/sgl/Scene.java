@@ -3,17 +3,36 @@ package mlos.sgl;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.awt.Component;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker.StateValue;
 
 import mlos.sgl.canvas.Canvas;
 import mlos.sgl.canvas.CanvasObject;
 import mlos.sgl.canvas.CanvasObjectListener;
 import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
 import mlos.sgl.canvas.CanvasSegment;
 import mlos.sgl.core.Segment;
 import mlos.sgl.core.Vec2d;
 import mlos.sgl.decorators.CursorPositionPainter;
+import mlos.sgl.decorators.ProgressPainter;
+import mlos.sgl.io.CoordsFormat;
+import mlos.sgl.io.PointLoader;
 import mlos.sgl.ui.CanvasController;
 import mlos.sgl.ui.DefaultObjectControllerFactory;
 import mlos.sgl.ui.HandlerStack;
@@ -24,6 +43,7 @@ import mlos.sgl.ui.modes.PointCreation;
 import mlos.sgl.ui.modes.PolyCreation;
 import mlos.sgl.ui.modes.RandomPoints;
 import mlos.sgl.ui.modes.SegmentCreation;
+import mlos.sgl.util.PointSource;
 import mlos.sgl.util.PropertyListener;
 import mlos.sgl.util.PropertyMap;
 import mlos.sgl.view.CanvasPanel;
@@ -32,25 +52,67 @@ import mlos.sgl.view.DefaultObjectPainterFactory;
 import mlos.sgl.view.ObjectPainter;
 import mlos.sgl.view.ObjectPainterFactory;
 
+import com.google.common.collect.Maps;
+
 public abstract class Scene {
     
     private final class Refresher implements PropertyListener, CanvasObjectListener {
         
         @Override
         public void removed(String name) {
-            view.refresh();
+            view.refreshOverlay();
         }
 
         @Override
         public void changed(String name, Object newValue) {
-            view.refresh();
+            view.refreshOverlay();
         }
 
+        /**
+         * Called with the monitor of the object held, so it must not take
+         * locks of the view or the controller, which are taken in the
+         * opposite order by painting and hit testing. The object is
+         * reordered and reindexed later on the event dispatch thread instead.
+         */
         @Override
         public void updated(CanvasObject object) {
-            view.refresh();
+            pendingUpdates.add(object);
+            if (updateScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(applyUpdates);
+            }
         }
     }
+    
+    /** Objects changed since their painters and controllers were updated */
+    private final Set<CanvasObject> pendingUpdates = 
+            Collections.newSetFromMap(
+                    new ConcurrentHashMap<CanvasObject, Boolean>());
+    
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    
+    private final Runnable applyUpdates = new Runnable() {
+        @Override
+        public void run() {
+            updateScheduled.set(false);
+            Iterator<CanvasObject> it = pendingUpdates.iterator();
+            while (it.hasNext()) {
+                CanvasObject object = it.next();
+                it.remove();
+                ObjectPainter painter;
+                ObjectController controller;
+                synchronized (Scene.this) {
+                    painter = painters.get(object);
+                    controller = controllers.get(object);
+                }
+                if (painter != null) {
+                    view.update(painter);
+                }
+                if (controller != null) {
+                    canvasController.update(controller);
+                }
+            }
+        }
+    };
 
     private String name;
 
@@ -71,8 +133,12 @@ public abstract class Scene {
     
     private final ObjectPainterFactory painterFactory;
     
-    protected final Map<CanvasObject, ObjectPainter> painters = new HashMap<>();
-    protected final Map<CanvasObject, ObjectController> controllers = new HashMap<>();
+    /*
+     * Replaced with larger maps by addObjects(), so that large batches do not
+     * rehash them over and over; do not keep references to them.
+     */
+    protected Map<CanvasObject, ObjectPainter> painters = new HashMap<>();
+    protected Map<CanvasObject, ObjectController> controllers = new HashMap<>();
     
 
     protected final PropertyMap properties = new PropertyMap();
@@ -133,6 +199,125 @@ public abstract class Scene {
         return added;
     }
     
+    /**
+     * Adds objects in bulk. Painters and controllers are registered in one
+     * go, canvas listeners get a single notification and the view is
+     * refreshed once, which is much faster than adding objects one by one.
+     * 
+     * @return Objects actually added, i.e. not present before
+     */
+    public synchronized List<CanvasObject> addObjects(
+            Iterable<? extends CanvasObject> objects) {
+        List<CanvasObject> added = canvas.addAll(objects);
+        int n = added.size();
+        painters = withRoom(painters, n);
+        controllers = withRoom(controllers, n);
+        
+        List<ObjectPainter> newPainters = new ArrayList<>(n);
+        List<ObjectController> newControllers = new ArrayList<>(n);
+        
+        for (CanvasObject object : added) {
+            ObjectPainter painter = painterFactory.createPainter(object);
+            painters.put(object, painter);
+            newPainters.add(painter);
+            object.addListener(refresher);
+            
+            ObjectController controller = controllerFactory.createController(object);
+            if (controller != null) {
+                controllers.put(object, controller);
+                newControllers.add(controller);
+            }
+        }
+        view.addAll(newPainters);
+        canvasController.addAll(newControllers);
+        return added;
+    }
+    
+    /**
+     * @return The map itself if the batch of {@code n} entries is not larger
+     *         than it, so that it resizes at most once, or its copy able to
+     *         take the batch without resizing
+     */
+    private static <K, V> Map<K, V> withRoom(Map<K, V> map, int n) {
+        if (n <= map.size()) {
+            return map;
+        }
+        Map<K, V> larger = Maps.newHashMapWithExpectedSize(map.size() + n);
+        larger.putAll(map);
+        return larger;
+    }
+    
+    /**
+     * Starts loading points from the file into a new point cloud added to
+     * the scene. Points appear as they are read, and a progress bar is shown
+     * until the loading completes. Failure is reported by
+     * {@link #loadingFailed(PointLoader, Throwable)}.
+     * 
+     * @return Background task loading the points, which can be cancelled
+     */
+    public PointLoader loadPoints(File file, CoordsFormat format) {
+        CanvasPointCloud cloud = new CanvasPointCloud();
+        addObject(cloud);
+        return startLoading(new PointLoader(file, format, cloud));
+    }
+    
+    /**
+     * Starts loading points of the source, such as random points of
+     * {@link mlos.sgl.util.Randomizer.PointGenerator#source(long, long)},
+     * like {@link #loadPoints(File, CoordsFormat)}.
+     */
+    public PointLoader loadPoints(PointSource source) {
+        CanvasPointCloud cloud = new CanvasPointCloud();
+        addObject(cloud);
+        return startLoading(new PointLoader(source, cloud));
+    }
+    
+    private PointLoader startLoading(final PointLoader loader) {
+        final ProgressPainter progress = new ProgressPainter(loader, "Loading");
+        view.addPostPainter(progress);
+        
+        loader.addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if (loader.isDone()) {
+                    view.removePostPainter(progress);
+                }
+                canvasPanel.refresh(progress.getArea());
+                if (evt.getNewValue() == StateValue.DONE) {
+                    loadingDone(loader);
+                }
+            }
+        });
+        loader.execute();
+        return loader;
+    }
+    
+    private void loadingDone(PointLoader loader) {
+        if (loader.isCancelled()) {
+            return;
+        }
+        try {
+            loader.get();
+        } catch (ExecutionException e) {
+            loadingFailed(loader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Called on the event dispatch thread when loading of points fails. Points
+     * loaded before the failure are kept in the cloud. Shows an error message
+     * by default.
+     */
+    protected void loadingFailed(PointLoader loader, Throwable cause) {
+        String source = loader.getFile() != null 
+                ? loader.getFile().getName() : "source";
+        JOptionPane.showMessageDialog(canvasPanel, 
+                "Cannot load points from " + source + ": " + cause, 
+                "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
     public CanvasPoint addPoint(Vec2d v) {
         CanvasPoint p = new CanvasPoint(v);
         addObject(p);
@@ -161,7 +346,6 @@ public abstract class Scene {
             
             ObjectController controller = controllers.remove(object);
             canvasController.remove(controller);
-            view.refresh();
         }
     }
     
@@ -0,0 +1,18 @@
+package mlos.sgl.canvas;
+
+import java.util.List;
+
+/**
+ * Listener notified once about a batch of objects added by
+ * {@link Canvas#addAll(Iterable)}. Plain {@link CanvasListener}s get
+ * {@link #objectAdded(CanvasObject)} for each object of the batch instead.
+ */
+public interface BulkCanvasListener extends CanvasListener {
+    
+    /**
+     * Called once after a batch of objects has been added, instead of calling
+     * {@link #objectAdded(CanvasObject)} for each of them.
+     */
+    void objectsAdded(List<CanvasObject> objects);
+
+}
@@ -1,7 +1,10 @@
 package mlos.sgl.canvas;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -46,9 +49,38 @@ public class Canvas {
         objects.clear();
     }
     
-    public void addAll(Iterable<? extends CanvasObject> iterable) {
+    /**
+     * Adds objects in bulk. {@link BulkCanvasListener}s are notified once,
+     * with the list of the objects that were not already present, other
+     * listeners once per object.
+     * 
+     * @return Objects actually added
+     */
+    public List<CanvasObject> addAll(Iterable<? extends CanvasObject> iterable) {
+        List<CanvasObject> added = iterable instanceof Collection ? 
+                new ArrayList<CanvasObject>(((Collection<?>) iterable).size()) : 
+                new ArrayList<CanvasObject>();
         for (CanvasObject object : iterable) {
-            add(object);
+            if (objects.add(object)) {
+                added.add(object);
+            }
+        }
+        if (!added.isEmpty()) {
+            signalAddition(added);
+        }
+        return added;
+    }
+    
+    private void signalAddition(List<CanvasObject> added) {
+        List<CanvasObject> view = Collections.unmodifiableList(added);
+        for (CanvasListener listener : listeners) {
+            if (listener instanceof BulkCanvasListener) {
+                ((BulkCanvasListener) listener).objectsAdded(view);
+            } else {
+                for (CanvasObject object : view) {
+                    listener.objectAdded(object);
+                }
+            }
         }
     }
     
@@ -0,0 +1,372 @@
+package mlos.sgl.canvas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import mlos.sgl.core.PointGrid;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Large set of points stored in primitive arrays. Unlike {@link CanvasPoint},
+ * which is a separate canvas object with its own listeners, painter and
+ * controller, the whole cloud is a single object, so that it costs a few
+ * dozen bytes per point.
+ *
+ * Methods adding or restyling points do not signal update, so that the cloud
+ * can be filled in bulk; call {@link #signalUpdate()} after the batch.
+ */
+public class CanvasPointCloud extends CanvasObject {
+
+    public static final Color DEFAULT_COLOR = CanvasPoint.DEFAULT_COLOR;
+
+    public static final int DEFAULT_SIZE = 3;
+
+    public static final int MAX_SIZE = 255;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Growth of the cloud past twice the size its grid was built for */
+    private static final int GRID_SLACK = 64;
+
+    private int count;
+
+    private double[] xs;
+    private double[] ys;
+
+    /** Packed ARGB colors */
+    private int[] colors;
+
+    /** Diameters, as unsigned bytes */
+    private byte[] sizes;
+
+    private int maxSize = 0;
+
+    private double left = Double.POSITIVE_INFINITY;
+    private double right = Double.NEGATIVE_INFINITY;
+    private double bottom = Double.POSITIVE_INFINITY;
+    private double top = Double.NEGATIVE_INFINITY;
+
+    /** Whether the bounds need to be recomputed */
+    private boolean boundsStale = false;
+
+    /** Incremented on each change of points, other than highlighting */
+    private int version = 0;
+
+    /** Grid over the points, built by the first query and then kept updated */
+    private PointGrid grid;
+
+    private int hoverIndex = -1;
+
+    private int selectedIndex = -1;
+
+    private Color hoverColor = CanvasPoint.DEFAULT_HOVER_COLOR;
+
+    private Color selectedColor = CanvasPoint.DEFAULT_SELECTED_COLOR;
+
+    public CanvasPointCloud() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public CanvasPointCloud(int capacity) {
+        checkArgument(capacity >= 0, "Negative capacity");
+        xs = new double[capacity];
+        ys = new double[capacity];
+        colors = new int[capacity];
+        sizes = new byte[capacity];
+    }
+
+    public synchronized void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, xs.length + (xs.length >> 1));
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+            colors = Arrays.copyOf(colors, newCapacity);
+            sizes = Arrays.copyOf(sizes, newCapacity);
+        }
+    }
+
+    private void expandBounds(double x, double y) {
+        left = Math.min(left, x);
+        right = Math.max(right, x);
+        bottom = Math.min(bottom, y);
+        top = Math.max(top, y);
+    }
+
+    /**
+     * Appends a point.
+     *
+     * @return Index of the new point
+     */
+    public synchronized int add(double x, double y, Color color, int size) {
+        checkArgument(size > 0 && size <= MAX_SIZE, "Invalid size %s", size);
+        ensureCapacity(count + 1);
+        int i = count++;
+        xs[i] = x;
+        ys[i] = y;
+        colors[i] = color.getRGB();
+        sizes[i] = (byte) size;
+        maxSize = Math.max(maxSize, size);
+        expandBounds(x, y);
+        appendToGrid();
+        ++ version;
+        return i;
+    }
+
+    public int add(double x, double y) {
+        return add(x, y, DEFAULT_COLOR, DEFAULT_SIZE);
+    }
+
+    public int add(Vec2d v) {
+        return add(v.x, v.y);
+    }
+
+    /**
+     * Appends {@code n} points with uniform style.
+     */
+    public synchronized void addAll(double[] x, double[] y, int n,
+            Color color, int size) {
+        checkArgument(size > 0 && size <= MAX_SIZE, "Invalid size %s", size);
+        ensureCapacity(count + n);
+        System.arraycopy(x, 0, xs, count, n);
+        System.arraycopy(y, 0, ys, count, n);
+        Arrays.fill(colors, count, count + n, color.getRGB());
+        Arrays.fill(sizes, count, count + n, (byte) size);
+        for (int i = 0; i < n; ++ i) {
+            expandBounds(x[i], y[i]);
+        }
+        count += n;
+        maxSize = Math.max(maxSize, size);
+        appendToGrid();
+        ++ version;
+    }
+
+    /**
+     * Appends {@code n} points, each with its own style.
+     * 
+     * @param c
+     *            Packed ARGB colors
+     * @param s
+     *            Diameters, as unsigned bytes
+     */
+    public void addAll(double[] x, double[] y, int[] c, byte[] s, int n) {
+        addAll(x, y, c, s, 0, n);
+    }
+
+    /**
+     * Appends {@code n} points starting at {@code offset} of the arrays, each
+     * with its own style.
+     */
+    public synchronized void addAll(double[] x, double[] y, int[] c, byte[] s,
+            int offset, int n) {
+        for (int i = offset; i < offset + n; ++ i) {
+            checkArgument(s[i] != 0, "Invalid size 0");
+        }
+        ensureCapacity(count + n);
+        System.arraycopy(x, offset, xs, count, n);
+        System.arraycopy(y, offset, ys, count, n);
+        System.arraycopy(c, offset, colors, count, n);
+        System.arraycopy(s, offset, sizes, count, n);
+        for (int i = offset; i < offset + n; ++ i) {
+            expandBounds(x[i], y[i]);
+            maxSize = Math.max(maxSize, s[i] & 0xff);
+        }
+        count += n;
+        appendToGrid();
+        ++ version;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        maxSize = 0;
+        left = bottom = Double.POSITIVE_INFINITY;
+        right = top = Double.NEGATIVE_INFINITY;
+        boundsStale = false;
+        grid = null;
+        hoverIndex = selectedIndex = -1;
+        ++ version;
+        signalUpdate();
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public synchronized double x(int i) {
+        checkElementIndex(i, count);
+        return xs[i];
+    }
+
+    public synchronized double y(int i) {
+        checkElementIndex(i, count);
+        return ys[i];
+    }
+
+    public synchronized Vec2d getPoint(int i) {
+        checkElementIndex(i, count);
+        return new Vec2d(xs[i], ys[i]);
+    }
+
+    public synchronized void setPoint(int i, Vec2d v) {
+        checkElementIndex(i, count);
+        xs[i] = v.x;
+        ys[i] = v.y;
+        if (grid != null) {
+            grid.move(i, v.x, v.y);
+        }
+        boundsStale = true;
+        ++ version;
+        signalUpdate();
+    }
+
+    public synchronized Color getColor(int i) {
+        checkElementIndex(i, count);
+        return new Color(colors[i], true);
+    }
+
+    public synchronized void setColor(int i, Color color) {
+        checkElementIndex(i, count);
+        colors[i] = color.getRGB();
+        ++ version;
+    }
+
+    public synchronized int getSize(int i) {
+        checkElementIndex(i, count);
+        return sizes[i] & 0xff;
+    }
+
+    public synchronized void setSize(int i, int size) {
+        checkElementIndex(i, count);
+        checkArgument(size > 0 && size <= MAX_SIZE, "Invalid size %s", size);
+        sizes[i] = (byte) size;
+        maxSize = Math.max(maxSize, size);
+        ++ version;
+    }
+
+    /**
+     * @return Upper bound of the diameters of points
+     */
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return Bounding box of the points, or {@code null} if there are none
+     */
+    public synchronized Rect getBounds() {
+        if (boundsStale) {
+            left = bottom = Double.POSITIVE_INFINITY;
+            right = top = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; ++ i) {
+                expandBounds(xs[i], ys[i]);
+            }
+            boundsStale = false;
+        }
+        return count > 0 ? Rect.bounds(left, bottom, right, top) : null;
+    }
+
+    /**
+     * Adds points appended since the last call to the grid, if there is one.
+     * Once the cloud has outgrown the grid, it is dropped instead and rebuilt
+     * by the next query, which keeps the cost of appending amortized constant.
+     */
+    private void appendToGrid() {
+        if (grid == null) {
+            return;
+        }
+        if (count > 2 * grid.getBuiltSize() + GRID_SLACK) {
+            grid = null;
+        } else {
+            for (int i = grid.size(); i < count; ++ i) {
+                grid.add(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Finds points lying inside the rectangle. Grid used to find them is built
+     * by the first call and then updated as points are added and moved.
+     *
+     * @return Indices of the points, in no particular order
+     */
+    public synchronized int[] pointsIn(Rect r) {
+        if (grid == null) {
+            grid = new PointGrid(xs, ys, count);
+        }
+        return grid.query(r, xs, ys);
+    }
+
+    /**
+     * @return Counter incremented whenever points are added, removed, moved
+     *         or restyled; changes of hovered and selected points do not
+     *         count
+     */
+    public synchronized int getVersion() {
+        return version;
+    }
+
+    /*
+     * Backing arrays, valid up to count(). Meant for painters and controllers
+     * iterating over all the points; callers should hold the cloud's monitor
+     * and must not modify the arrays.
+     */
+
+    public double[] xs() {
+        return xs;
+    }
+
+    public double[] ys() {
+        return ys;
+    }
+
+    public int[] colors() {
+        return colors;
+    }
+
+    public byte[] sizes() {
+        return sizes;
+    }
+
+    public synchronized int getHoverIndex() {
+        return hoverIndex;
+    }
+
+    public synchronized void setHoverIndex(int hoverIndex) {
+        checkArgument(hoverIndex >= -1 && hoverIndex < count);
+        this.hoverIndex = hoverIndex;
+        signalUpdate();
+    }
+
+    public synchronized int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    public synchronized void setSelectedIndex(int selectedIndex) {
+        checkArgument(selectedIndex >= -1 && selectedIndex < count);
+        this.selectedIndex = selectedIndex;
+        signalUpdate();
+    }
+
+    public synchronized Color getHoverColor() {
+        return hoverColor;
+    }
+
+    public synchronized void setHoverColor(Color hoverColor) {
+        this.hoverColor = checkNotNull(hoverColor);
+        signalUpdate();
+    }
+
+    public synchronized Color getSelectedColor() {
+        return selectedColor;
+    }
+
+    public synchronized void setSelectedColor(Color selectedColor) {
+        this.selectedColor = checkNotNull(selectedColor);
+        signalUpdate();
+    }
+
+}
@@ -39,6 +39,7 @@ public class CanvasPolygon extends CanvasObject {
     public synchronized void setPoints(Iterable<Vec2d> points) {
         this.points.clear();
         Iterables.addAll(this.points, points);
+        signalUpdate();
     }
     
     public synchronized boolean isOpaque() {
@@ -47,6 +48,7 @@ public class CanvasPolygon extends CanvasObject {
     
     public synchronized void setOpaque(boolean opaque) {
         this.opaque = opaque;
+        signalUpdate();
     }
     
     public synchronized Color getFillColor() {
@@ -55,6 +57,7 @@ public class CanvasPolygon extends CanvasObject {
     
     public synchronized void setFillColor(Color borderColor) {
         this.fillColor = borderColor;
+        signalUpdate();
     }
     
     public synchronized Color getBorderColor() {
@@ -63,6 +66,7 @@ public class CanvasPolygon extends CanvasObject {
     
     public synchronized void setBorderColor(Color borderColor) {
         this.borderColor = borderColor;
+        signalUpdate();
     }
     
 
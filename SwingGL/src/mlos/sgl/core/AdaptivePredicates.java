@@ -0,0 +1,449 @@
+package mlos.sgl.core;
+
+/**
+ * Pure Java port of Shewchuk's adaptive precision predicates ("Adaptive
+ * Precision Floating-Point Arithmetic and Fast Robust Geometric Predicates").
+ * Determinants are first evaluated in plain floating point arithmetic; only
+ * if the result is smaller than the error bound, the computation is repeated
+ * with increasing precision, using expansions - sums of non-overlapping
+ * doubles representing numbers exactly.
+ *
+ * Unlike the original, the last stage of incircle computes the whole
+ * determinant exactly instead of adding just the remaining error terms, which
+ * is slower but such inputs are very rare.
+ */
+class AdaptivePredicates implements ExactPredicates {
+
+    private static final double EPSILON;
+
+    private static final double SPLITTER;
+
+    static {
+        double half = 0.5;
+        double check = 1.0;
+        double lastCheck;
+        double epsilon = 1.0;
+        double splitter = 1.0;
+        boolean everyOther = true;
+        do {
+            lastCheck = check;
+            epsilon *= half;
+            if (everyOther) {
+                splitter *= 2.0;
+            }
+            everyOther = !everyOther;
+            check = 1.0 + epsilon;
+        } while (check != 1.0 && check != lastCheck);
+        EPSILON = epsilon;
+        SPLITTER = splitter + 1.0;
+    }
+
+    private static final double RESULT_ERRBOUND = (3 + 8 * EPSILON) * EPSILON;
+
+    static final double CCW_ERRBOUND_A = (3 + 16 * EPSILON) * EPSILON;
+    private static final double CCW_ERRBOUND_B = (2 + 12 * EPSILON) * EPSILON;
+    private static final double CCW_ERRBOUND_C = (9 + 64 * EPSILON) * EPSILON * EPSILON;
+
+    private static final double ICC_ERRBOUND_A = (10 + 96 * EPSILON) * EPSILON;
+    private static final double ICC_ERRBOUND_B = (4 + 48 * EPSILON) * EPSILON;
+    private static final double ICC_ERRBOUND_C = (44 + 576 * EPSILON) * EPSILON * EPSILON;
+
+
+    // Error-free transformations. Each returns the roundoff error of the
+    // operation, given its rounded result x.
+
+    private static double fastTwoSumTail(double a, double b, double x) {
+        double bvirt = x - a;
+        return b - bvirt;
+    }
+
+    private static double twoSumTail(double a, double b, double x) {
+        double bvirt = x - a;
+        double avirt = x - bvirt;
+        double bround = b - bvirt;
+        double around = a - avirt;
+        return around + bround;
+    }
+
+    private static double twoDiffTail(double a, double b, double x) {
+        double bvirt = a - x;
+        double avirt = x + bvirt;
+        double bround = bvirt - b;
+        double around = a - avirt;
+        return around + bround;
+    }
+
+    private static double twoProductTail(double a, double b, double x) {
+        double c = SPLITTER * a;
+        double abig = c - a;
+        double ahi = c - abig;
+        double alo = a - ahi;
+
+        c = SPLITTER * b;
+        double bbig = c - b;
+        double bhi = c - bbig;
+        double blo = b - bhi;
+
+        double err1 = x - (ahi * bhi);
+        double err2 = err1 - (alo * bhi);
+        double err3 = err2 - (ahi * blo);
+        return (alo * blo) - err3;
+    }
+
+    /**
+     * Computes exact difference {@code (a1 + a0) - (b1 + b0)} of two
+     * two-component expansions as four-component expansion.
+     */
+    private static double[] twoTwoDiff(double a1, double a0, double b1,
+            double b0) {
+        double[] x = new double[4];
+        double i = a0 - b0;
+        x[0] = twoDiffTail(a0, b0, i);
+        double j = a1 + i;
+        double k = twoSumTail(a1, i, j);
+
+        i = k - b1;
+        x[1] = twoDiffTail(k, b1, i);
+        x[3] = j + i;
+        x[2] = twoSumTail(j, i, x[3]);
+        return x;
+    }
+
+    private static double[] twoProductDiff(double a, double b, double c,
+            double d) {
+        double ab = a * b;
+        double cd = c * d;
+        return twoTwoDiff(ab, twoProductTail(a, b, ab),
+                cd, twoProductTail(c, d, cd));
+    }
+
+
+    // Expansion arithmetic. Components are kept in the order of increasing
+    // magnitude, without zeros.
+
+    private static double[] trim(double[] h, int n) {
+        if (n == h.length) {
+            return h;
+        }
+        double[] t = new double[n];
+        System.arraycopy(h, 0, t, 0, n);
+        return t;
+    }
+
+    private static double[] sum(double[] e, double[] f) {
+        int elen = e.length;
+        int flen = f.length;
+        double[] h = new double[elen + flen];
+
+        int eindex = 0;
+        int findex = 0;
+        double enow = e[0];
+        double fnow = f[0];
+        double q;
+        if ((fnow > enow) == (fnow > -enow)) {
+            q = enow;
+            enow = ++ eindex < elen ? e[eindex] : 0;
+        } else {
+            q = fnow;
+            fnow = ++ findex < flen ? f[findex] : 0;
+        }
+        int hindex = 0;
+        if (eindex < elen && findex < flen) {
+            double qnew;
+            double hh;
+            if ((fnow > enow) == (fnow > -enow)) {
+                qnew = enow + q;
+                hh = fastTwoSumTail(enow, q, qnew);
+                enow = ++ eindex < elen ? e[eindex] : 0;
+            } else {
+                qnew = fnow + q;
+                hh = fastTwoSumTail(fnow, q, qnew);
+                fnow = ++ findex < flen ? f[findex] : 0;
+            }
+            q = qnew;
+            if (hh != 0) {
+                h[hindex++] = hh;
+            }
+            while (eindex < elen && findex < flen) {
+                if ((fnow > enow) == (fnow > -enow)) {
+                    qnew = q + enow;
+                    hh = twoSumTail(q, enow, qnew);
+                    enow = ++ eindex < elen ? e[eindex] : 0;
+                } else {
+                    qnew = q + fnow;
+                    hh = twoSumTail(q, fnow, qnew);
+                    fnow = ++ findex < flen ? f[findex] : 0;
+                }
+                q = qnew;
+                if (hh != 0) {
+                    h[hindex++] = hh;
+                }
+            }
+        }
+        while (eindex < elen) {
+            double qnew = q + enow;
+            double hh = twoSumTail(q, enow, qnew);
+            enow = ++ eindex < elen ? e[eindex] : 0;
+            q = qnew;
+            if (hh != 0) {
+                h[hindex++] = hh;
+            }
+        }
+        while (findex < flen) {
+            double qnew = q + fnow;
+            double hh = twoSumTail(q, fnow, qnew);
+            fnow = ++ findex < flen ? f[findex] : 0;
+            q = qnew;
+            if (hh != 0) {
+                h[hindex++] = hh;
+            }
+        }
+        if (q != 0 || hindex == 0) {
+            h[hindex++] = q;
+        }
+        return trim(h, hindex);
+    }
+
+    private static double[] scale(double[] e, double b) {
+        double[] h = new double[2 * e.length];
+        double q = e[0] * b;
+        double hh = twoProductTail(e[0], b, q);
+        int hindex = 0;
+        if (hh != 0) {
+            h[hindex++] = hh;
+        }
+        for (int i = 1; i < e.length; ++ i) {
+            double p1 = e[i] * b;
+            double p0 = twoProductTail(e[i], b, p1);
+            double s = q + p0;
+            hh = twoSumTail(q, p0, s);
+            if (hh != 0) {
+                h[hindex++] = hh;
+            }
+            q = p1 + s;
+            hh = fastTwoSumTail(p1, s, q);
+            if (hh != 0) {
+                h[hindex++] = hh;
+            }
+        }
+        if (q != 0 || hindex == 0) {
+            h[hindex++] = q;
+        }
+        return trim(h, hindex);
+    }
+
+    private static double[] mul(double[] e, double[] f) {
+        double[] h = scale(e, f[0]);
+        for (int i = 1; i < f.length; ++ i) {
+            h = sum(h, scale(e, f[i]));
+        }
+        return h;
+    }
+
+    private static double[] neg(double[] e) {
+        double[] h = new double[e.length];
+        for (int i = 0; i < e.length; ++ i) {
+            h[i] = -e[i];
+        }
+        return h;
+    }
+
+    /**
+     * @return Exact difference {@code a - b} as expansion
+     */
+    private static double[] diff(double a, double b) {
+        double x = a - b;
+        double y = twoDiffTail(a, b, x);
+        return y != 0 ? new double[] { y, x } : new double[] { x };
+    }
+
+    private static double estimate(double[] e) {
+        double q = e[0];
+        for (int i = 1; i < e.length; ++ i) {
+            q += e[i];
+        }
+        return q;
+    }
+
+
+    @Override
+    public double orient2d(double ax, double ay, double bx, double by,
+            double cx, double cy) {
+        double detleft = (ax - cx) * (by - cy);
+        double detright = (ay - cy) * (bx - cx);
+        double det = detleft - detright;
+        double detsum;
+
+        if (detleft > 0) {
+            if (detright <= 0) {
+                return det;
+            } else {
+                detsum = detleft + detright;
+            }
+        } else if (detleft < 0) {
+            if (detright >= 0) {
+                return det;
+            } else {
+                detsum = -detleft - detright;
+            }
+        } else {
+            return det;
+        }
+
+        double errbound = CCW_ERRBOUND_A * detsum;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+        return orient2dAdapt(ax, ay, bx, by, cx, cy, detsum);
+    }
+
+    private static double orient2dAdapt(double ax, double ay, double bx,
+            double by, double cx, double cy, double detsum) {
+        double acx = ax - cx;
+        double bcx = bx - cx;
+        double acy = ay - cy;
+        double bcy = by - cy;
+
+        double[] b = twoProductDiff(acx, bcy, acy, bcx);
+        double det = estimate(b);
+        double errbound = CCW_ERRBOUND_B * detsum;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        double acxtail = twoDiffTail(ax, cx, acx);
+        double bcxtail = twoDiffTail(bx, cx, bcx);
+        double acytail = twoDiffTail(ay, cy, acy);
+        double bcytail = twoDiffTail(by, cy, bcy);
+
+        if (acxtail == 0 && acytail == 0 && bcxtail == 0 && bcytail == 0) {
+            return det;
+        }
+
+        errbound = CCW_ERRBOUND_C * detsum + RESULT_ERRBOUND * Math.abs(det);
+        det += (acx * bcytail + bcy * acxtail) - (acy * bcxtail + bcx * acytail);
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        double[] c1 = sum(b, twoProductDiff(acxtail, bcy, acytail, bcx));
+        double[] c2 = sum(c1, twoProductDiff(acx, bcytail, acy, bcxtail));
+        double[] d = sum(c2, twoProductDiff(acxtail, bcytail, acytail, bcxtail));
+        return d[d.length - 1];
+    }
+
+    @Override
+    public double incircle(double ax, double ay, double bx, double by,
+            double cx, double cy, double dx, double dy) {
+        double adx = ax - dx;
+        double bdx = bx - dx;
+        double cdx = cx - dx;
+        double ady = ay - dy;
+        double bdy = by - dy;
+        double cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy;
+        double cdxbdy = cdx * bdy;
+        double alift = adx * adx + ady * ady;
+
+        double cdxady = cdx * ady;
+        double adxcdy = adx * cdy;
+        double blift = bdx * bdx + bdy * bdy;
+
+        double adxbdy = adx * bdy;
+        double bdxady = bdx * ady;
+        double clift = cdx * cdx + cdy * cdy;
+
+        double det = alift * (bdxcdy - cdxbdy)
+                + blift * (cdxady - adxcdy)
+                + clift * (adxbdy - bdxady);
+
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+                + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+                + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+        double errbound = ICC_ERRBOUND_A * permanent;
+        if (det > errbound || -det > errbound) {
+            return det;
+        }
+        return incircleAdapt(ax, ay, bx, by, cx, cy, dx, dy, permanent);
+    }
+
+    private static double[] liftTerm(double[] minor, double x, double y) {
+        return sum(scale(scale(minor, x), x), scale(scale(minor, y), y));
+    }
+
+    private static double incircleAdapt(double ax, double ay, double bx,
+            double by, double cx, double cy, double dx, double dy,
+            double permanent) {
+        double adx = ax - dx;
+        double bdx = bx - dx;
+        double cdx = cx - dx;
+        double ady = ay - dy;
+        double bdy = by - dy;
+        double cdy = cy - dy;
+
+        double[] bc = twoProductDiff(bdx, cdy, cdx, bdy);
+        double[] ca = twoProductDiff(cdx, ady, adx, cdy);
+        double[] ab = twoProductDiff(adx, bdy, bdx, ady);
+
+        double[] fin = sum(sum(liftTerm(bc, adx, ady), liftTerm(ca, bdx, bdy)),
+                liftTerm(ab, cdx, cdy));
+        double det = estimate(fin);
+        double errbound = ICC_ERRBOUND_B * permanent;
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+
+        double adxtail = twoDiffTail(ax, dx, adx);
+        double adytail = twoDiffTail(ay, dy, ady);
+        double bdxtail = twoDiffTail(bx, dx, bdx);
+        double bdytail = twoDiffTail(by, dy, bdy);
+        double cdxtail = twoDiffTail(cx, dx, cdx);
+        double cdytail = twoDiffTail(cy, dy, cdy);
+        if (adxtail == 0 && bdxtail == 0 && cdxtail == 0
+                && adytail == 0 && bdytail == 0 && cdytail == 0) {
+            return det;
+        }
+
+        errbound = ICC_ERRBOUND_C * permanent + RESULT_ERRBOUND * Math.abs(det);
+        det += ((adx * adx + ady * ady) * ((bdx * cdytail + cdy * bdxtail)
+                    - (bdy * cdxtail + cdx * bdytail))
+                + 2.0 * (adx * adxtail + ady * adytail) * (bdx * cdy - bdy * cdx))
+             + ((bdx * bdx + bdy * bdy) * ((cdx * adytail + ady * cdxtail)
+                    - (cdy * adxtail + adx * cdytail))
+                + 2.0 * (bdx * bdxtail + bdy * bdytail) * (cdx * ady - cdy * adx))
+             + ((cdx * cdx + cdy * cdy) * ((adx * bdytail + bdy * adxtail)
+                    - (ady * bdxtail + bdx * adytail))
+                + 2.0 * (cdx * cdxtail + cdy * cdytail) * (adx * bdy - ady * bdx));
+        if (det >= errbound || -det >= errbound) {
+            return det;
+        }
+        return incircleExact(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+    /**
+     * Evaluates the incircle determinant exactly, with differences of
+     * coordinates represented as expansions.
+     */
+    private static double incircleExact(double ax, double ay, double bx,
+            double by, double cx, double cy, double dx, double dy) {
+        double[] adx = diff(ax, dx);
+        double[] ady = diff(ay, dy);
+        double[] bdx = diff(bx, dx);
+        double[] bdy = diff(by, dy);
+        double[] cdx = diff(cx, dx);
+        double[] cdy = diff(cy, dy);
+
+        double[] bc = sum(mul(bdx, cdy), neg(mul(cdx, bdy)));
+        double[] ca = sum(mul(cdx, ady), neg(mul(adx, cdy)));
+        double[] ab = sum(mul(adx, bdy), neg(mul(bdx, ady)));
+
+        double[] alift = sum(mul(adx, adx), mul(ady, ady));
+        double[] blift = sum(mul(bdx, bdx), mul(bdy, bdy));
+        double[] clift = sum(mul(cdx, cdx), mul(cdy, cdy));
+
+        double[] det = sum(sum(mul(alift, bc), mul(blift, ca)), mul(clift, ab));
+        return det[det.length - 1];
+    }
+
+}
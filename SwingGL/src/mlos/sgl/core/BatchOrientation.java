@@ -0,0 +1,136 @@
+package mlos.sgl.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Orientation of many points with respect to a single segment, computed over
+ * primitive arrays. Determinants are first computed in a simple loop without
+ * branches or calls; only the points for which the result is within the
+ * error bound are then passed to the exact predicate chosen in
+ * {@link Geometry}.
+ */
+public final class BatchOrientation {
+
+    /** Smallest range processed by a single parallel task */
+    public static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /** Marks entries whose sign could not be decided by the filter */
+    private static final byte UNCERTAIN = 2;
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private BatchOrientation() {
+        // non-instantiable
+    }
+
+    /**
+     * Computes signs of {@code orient2d(a, b, p)} for points {@code p} in the
+     * range {@code [from, to)}: 1 for points to the left of the segment, -1
+     * for points to the right, and 0 for collinear ones.
+     */
+    public static void orient2d(double ax, double ay, double bx, double by,
+            double[] xs, double[] ys, byte[] signs, int from, int to) {
+        checkRange(xs, ys, signs, from, to);
+        int uncertain = filter(ax, ay, bx, by, xs, ys, signs, from, to);
+        if (uncertain > 0) {
+            ExactPredicates exact = Geometry.getPredicates();
+            for (int i = from; i < to; ++ i) {
+                if (signs[i] == UNCERTAIN) {
+                    double d = exact.orient2d(ax, ay, bx, by, xs[i], ys[i]);
+                    signs[i] = (byte) Math.signum(d);
+                }
+            }
+        }
+    }
+
+    public static void orient2d(Segment seg, double[] xs, double[] ys,
+            byte[] signs, int n) {
+        orient2d(seg.a.x, seg.a.y, seg.b.x, seg.b.y, xs, ys, signs, 0, n);
+    }
+
+    /**
+     * Same as {@link #orient2d(Segment, double[], double[], byte[], int)},
+     * but splits large inputs between multiple threads.
+     */
+    public static void parallelOrient2d(final Segment seg, final double[] xs,
+            final double[] ys, final byte[] signs, int n) {
+        checkRange(xs, ys, signs, 0, n);
+        if (n <= PARALLEL_THRESHOLD) {
+            orient2d(seg, xs, ys, signs, n);
+        } else {
+            PoolHolder.POOL.invoke(new Task(seg, xs, ys, signs, 0, n));
+        }
+    }
+
+    private static final class Task extends RecursiveAction {
+
+        private final Segment seg;
+        private final double[] xs;
+        private final double[] ys;
+        private final byte[] signs;
+        private final int from;
+        private final int to;
+
+        public Task(Segment seg, double[] xs, double[] ys, byte[] signs,
+                int from, int to) {
+            this.seg = seg;
+            this.xs = xs;
+            this.ys = ys;
+            this.signs = signs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                orient2d(seg.a.x, seg.a.y, seg.b.x, seg.b.y, xs, ys, signs,
+                        from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Task(seg, xs, ys, signs, from, mid),
+                        new Task(seg, xs, ys, signs, mid, to));
+            }
+        }
+    }
+
+    private static void checkRange(double[] xs, double[] ys, byte[] signs,
+            int from, int to) {
+        checkArgument(0 <= from && from <= to, "Invalid range [%s, %s)", from, to);
+        checkArgument(to <= xs.length && to <= ys.length && to <= signs.length,
+                "Arrays too short");
+    }
+
+    /**
+     * Floating point filter of {@link AdaptivePredicates#orient2d}, with the
+     * point as the last argument.
+     *
+     * @return Number of entries marked as {@link #UNCERTAIN}
+     */
+    private static int filter(double ax, double ay, double bx, double by,
+            double[] xs, double[] ys, byte[] signs, int from, int to) {
+        int uncertain = 0;
+        for (int i = from; i < to; ++ i) {
+            double cx = xs[i];
+            double cy = ys[i];
+            double detleft = (ax - cx) * (by - cy);
+            double detright = (ay - cy) * (bx - cx);
+            double det = detleft - detright;
+            double errbound = AdaptivePredicates.CCW_ERRBOUND_A
+                    * (Math.abs(detleft) + Math.abs(detright));
+
+            int positive = det > errbound ? 1 : 0;
+            int negative = det < -errbound ? 1 : 0;
+            int unknown = 1 - positive - negative;
+            signs[i] = (byte) (positive - negative + UNCERTAIN * unknown);
+            uncertain += unknown;
+        }
+        return uncertain;
+    }
+
+}
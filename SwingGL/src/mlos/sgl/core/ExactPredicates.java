@@ -0,0 +1,33 @@
+package mlos.sgl.core;
+
+/**
+ * Geometric predicates whose sign is always computed exactly, despite
+ * rounding errors of floating point arithmetic.
+ */
+public interface ExactPredicates {
+    
+    /** Pure Java implementation */
+    ExactPredicates JAVA = new AdaptivePredicates();
+    
+    /** 
+     * Implementation calling Shewchuk's C code through JNI. The native library
+     * is loaded on the first use.
+     */
+    ExactPredicates NATIVE = new NativePredicates();
+
+    /**
+     * @return Positive value if {@code a, b, c} are in counterclockwise order,
+     *         negative if in clockwise order, zero if they are collinear
+     */
+    double orient2d(double ax, double ay, double bx, double by, 
+            double cx, double cy);
+
+    /**
+     * @return Positive value if {@code d} lies inside the circle passing
+     *         through {@code a, b, c} (given in counterclockwise order),
+     *         negative if outside, zero if on the circle
+     */
+    double incircle(double ax, double ay, double bx, double by, 
+            double cx, double cy, double dx, double dy);
+
+}
@@ -1,14 +1,36 @@
 package mlos.sgl.core;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import java.util.Comparator;
 
 import com.google.common.base.Predicate;
 
 public class Geometry {
     
+    /** 
+     * Implementation of exact predicates; the native one can be chosen by
+     * setting {@code mlos.sgl.predicates} system property to {@code native} 
+     */
+    private static volatile ExactPredicates predicates = 
+            "native".equals(System.getProperty("mlos.sgl.predicates")) ? 
+                    ExactPredicates.NATIVE : ExactPredicates.JAVA;
+    
     private Geometry() {
         // non-instantiable
     }
+    
+    public static ExactPredicates getPredicates() {
+        return predicates;
+    }
+    
+    /**
+     * Selects implementation of exact predicates used by {@link #orient2d},
+     * {@link #incircle} and the functions based on them.
+     */
+    public static void setPredicates(ExactPredicates predicates) {
+        Geometry.predicates = checkNotNull(predicates);
+    }
 
     public static Vec2d sum(Vec2d a, Vec2d b) {
         return new Vec2d(a.x + b.x, a.y + b.y);
@@ -161,7 +183,7 @@ public class Geometry {
       }
     
     public static double exactOrient2d(Vec2d a, Vec2d b, Vec2d c) {
-        return Schewchuck.schewchuckOrient2d(a.x, a.y, b.x, b.y, c.x, c.y); 
+        return predicates.orient2d(a.x, a.y, b.x, b.y, c.x, c.y); 
     }
     
     public static Orientation orientation(Vec2d a, Vec2d b, Vec2d c) {
@@ -183,7 +205,7 @@ public class Geometry {
     }
     
     public static double incircle(Vec2d a, Vec2d b, Vec2d c, Vec2d d) {
-        return Schewchuck.schewchuckIncircle(a.x, a.y, b.x, b.y, c.x, c.y, d.x, d.y);
+        return predicates.incircle(a.x, a.y, b.x, b.y, c.x, c.y, d.x, d.y);
     }
     
     public static boolean properIntersect(Segment p, Segment q) {
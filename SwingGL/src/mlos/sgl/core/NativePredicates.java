@@ -0,0 +1,20 @@
+package mlos.sgl.core;
+
+/**
+ * Predicates implemented by the native {@link Schewchuck} library.
+ */
+class NativePredicates implements ExactPredicates {
+
+    @Override
+    public double orient2d(double ax, double ay, double bx, double by,
+            double cx, double cy) {
+        return Schewchuck.schewchuckOrient2d(ax, ay, bx, by, cx, cy);
+    }
+
+    @Override
+    public double incircle(double ax, double ay, double bx, double by,
+            double cx, double cy, double dx, double dy) {
+        return Schewchuck.schewchuckIncircle(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+}
@@ -0,0 +1,202 @@
+package mlos.sgl.core;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a set of points given as coordinate arrays. Each cell
+ * keeps a doubly linked list of indices of its points, so that points can be
+ * appended and moved in constant time; the grid costs roughly three
+ * {@code int}s per point.
+ *
+ * Extent of the grid is fixed when it is built. Points added or moved outside
+ * of it fall into the border cells, which keeps queries correct, but makes
+ * them slower if many points end up there; rebuild the grid when the set has
+ * grown considerably.
+ *
+ * Coordinates are not stored, they are passed to the queries instead, so the
+ * arrays may be reallocated as long as the points keep their indices.
+ */
+public class PointGrid {
+
+    public static final int MAX_CELLS_PER_SIDE = 4096;
+
+    private static final int NONE = -1;
+
+    private final double left;
+    private final double bottom;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int cols;
+    private final int rows;
+
+    /** Number of points the grid was built for */
+    private final int builtSize;
+
+    /** First point of each cell */
+    private final int[] head;
+
+    private int[] next;
+    private int[] prev;
+    private int[] cellOf;
+
+    private int size;
+
+    /**
+     * Builds the grid over the first {@code n} points.
+     */
+    public PointGrid(double[] xs, double[] ys, int n) {
+        checkArgument(n <= xs.length && n <= ys.length, "Arrays too short");
+
+        double l = Double.POSITIVE_INFINITY;
+        double r = Double.NEGATIVE_INFINITY;
+        double b = Double.POSITIVE_INFINITY;
+        double t = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++ i) {
+            l = Math.min(l, xs[i]);
+            r = Math.max(r, xs[i]);
+            b = Math.min(b, ys[i]);
+            t = Math.max(t, ys[i]);
+        }
+        int side = (int) Math.ceil(Math.sqrt(n / 2.0));
+        side = Math.max(1, Math.min(side, MAX_CELLS_PER_SIDE));
+
+        this.left = n > 0 ? l : 0;
+        this.bottom = n > 0 ? b : 0;
+        this.cols = side;
+        this.rows = side;
+        this.cellWidth = cellSize(r - l, side);
+        this.cellHeight = cellSize(t - b, side);
+        this.builtSize = n;
+
+        this.head = new int[cols * rows];
+        Arrays.fill(head, NONE);
+        int capacity = Math.max(n, 16);
+        this.next = new int[capacity];
+        this.prev = new int[capacity];
+        this.cellOf = new int[capacity];
+        for (int i = 0; i < n; ++ i) {
+            add(xs[i], ys[i]);
+        }
+    }
+
+    private static double cellSize(double extent, int cells) {
+        double size = extent / cells;
+        return size > 0 && !Double.isInfinite(size) ? size : 1;
+    }
+
+    private static int clamp(int i, int n) {
+        return i < 0 ? 0 : i >= n ? n - 1 : i;
+    }
+
+    private int col(double x) {
+        double c = Math.floor((x - left) / cellWidth);
+        return c < 0 ? 0 : c >= cols ? cols - 1 : (int) c;
+    }
+
+    private int row(double y) {
+        double r = Math.floor((y - bottom) / cellHeight);
+        return r < 0 ? 0 : r >= rows ? rows - 1 : (int) r;
+    }
+
+    private int cell(int col, int row) {
+        return clamp(row, rows) * cols + clamp(col, cols);
+    }
+
+    private void link(int i, int c) {
+        int first = head[c];
+        cellOf[i] = c;
+        prev[i] = NONE;
+        next[i] = first;
+        if (first != NONE) {
+            prev[first] = i;
+        }
+        head[c] = i;
+    }
+
+    private void unlink(int i) {
+        int p = prev[i];
+        int n = next[i];
+        if (p != NONE) {
+            next[p] = n;
+        } else {
+            head[cellOf[i]] = n;
+        }
+        if (n != NONE) {
+            prev[n] = p;
+        }
+    }
+
+    /**
+     * @return Number of points in the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Number of points the grid was built for
+     */
+    public int getBuiltSize() {
+        return builtSize;
+    }
+
+    /**
+     * Appends a point, with index equal to the current {@link #size()}.
+     */
+    public void add(double x, double y) {
+        if (size == next.length) {
+            int capacity = 2 * size;
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            cellOf = Arrays.copyOf(cellOf, capacity);
+        }
+        link(size++, cell(col(x), row(y)));
+    }
+
+    /**
+     * Updates the cell of a point after it has been moved.
+     */
+    public void move(int i, double x, double y) {
+        checkElementIndex(i, size);
+        int c = cell(col(x), row(y));
+        if (c != cellOf[i]) {
+            unlink(i);
+            link(i, c);
+        }
+    }
+
+    /**
+     * Finds points lying inside the rectangle.
+     *
+     * @return Indices of the points, in no particular order
+     */
+    public int[] query(Rect r, double[] xs, double[] ys) {
+        int c0 = col(r.left());
+        int c1 = col(r.right());
+        int r0 = row(r.bottom());
+        int r1 = row(r.top());
+
+        int[] found = new int[16];
+        int n = 0;
+        for (int row = r0; row <= r1; ++ row) {
+            for (int col = c0; col <= c1; ++ col) {
+                for (int i = head[cell(col, row)]; i != NONE; i = next[i]) {
+                    double x = xs[i];
+                    double y = ys[i];
+                    if (r.left() <= x && x <= r.right()
+                            && r.bottom() <= y && y <= r.top()) {
+                        if (n == found.length) {
+                            found = Arrays.copyOf(found, 2 * n);
+                        }
+                        found[n++] = i;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+}
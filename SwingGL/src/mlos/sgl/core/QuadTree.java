@@ -0,0 +1,321 @@
+package mlos.sgl.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Function;
+
+/**
+ * Spatial index of items with rectangular bounds. Each item is stored in the
+ * smallest node that fully contains its bounds; the root grows as needed, so
+ * the extent of the indexed data does not need to be known in advance.
+ *
+ * Items without (finite) bounds are kept aside and reported by every query.
+ */
+public class QuadTree<T> {
+
+    public static final int DEFAULT_CAPACITY = 8;
+
+    public static final int MAX_DEPTH = 40;
+
+    private final class Node {
+
+        private final Rect rect;
+
+        private final List<T> items = new ArrayList<>();
+
+        private List<Node> children;
+
+        public Node(Rect rect) {
+            this.rect = rect;
+        }
+
+        public Node(double left, double bottom, double right, double top) {
+            this(Rect.bounds(left, bottom, right, top));
+        }
+
+        private List<Node> split() {
+            double l = rect.left();
+            double b = rect.bottom();
+            double r = rect.right();
+            double t = rect.top();
+            double cx = (l + r) / 2;
+            double cy = (b + t) / 2;
+            return Arrays.asList(
+                    new Node(l, b, cx, cy),
+                    new Node(cx, b, r, cy),
+                    new Node(l, cy, cx, t),
+                    new Node(cx, cy, r, t));
+        }
+
+        private Node childContaining(Rect r) {
+            for (Node child : children) {
+                if (child.rect.contains(r)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        public void insert(T item, Rect r, int depth) {
+            if (children != null) {
+                Node child = childContaining(r);
+                if (child != null) {
+                    child.insert(item, r, depth + 1);
+                    return;
+                }
+            }
+            items.add(item);
+            owners.put(item, this);
+            if (children == null && items.size() > capacity
+                    && depth < MAX_DEPTH) {
+                redistribute(depth);
+            }
+        }
+
+        /**
+         * Inserts a batch of items, partitioning it top-down between the
+         * children. Items are assumed not to be present in the tree yet.
+         */
+        public void insertAll(List<T> batch, List<Rect> rects, int depth) {
+            if (children == null && items.size() + batch.size() > capacity
+                    && depth < MAX_DEPTH) {
+                children = split();
+                for (T item : items) {
+                    batch.add(item);
+                    rects.add(bounds.get(item));
+                }
+                items.clear();
+            }
+            if (children == null) {
+                for (T item : batch) {
+                    items.add(item);
+                    owners.put(item, this);
+                }
+                return;
+            }
+            List<List<T>> parts = new ArrayList<>(4);
+            List<List<Rect>> partRects = new ArrayList<>(4);
+            for (int k = 0; k < 4; ++ k) {
+                parts.add(new ArrayList<T>());
+                partRects.add(new ArrayList<Rect>());
+            }
+            for (int i = 0; i < batch.size(); ++ i) {
+                T item = batch.get(i);
+                Rect r = rects.get(i);
+                int k = children.indexOf(childContaining(r));
+                if (k >= 0) {
+                    parts.get(k).add(item);
+                    partRects.get(k).add(r);
+                } else {
+                    items.add(item);
+                    owners.put(item, this);
+                }
+            }
+            for (int k = 0; k < 4; ++ k) {
+                if (!parts.get(k).isEmpty()) {
+                    children.get(k).insertAll(parts.get(k), partRects.get(k), 
+                            depth + 1);
+                }
+            }
+        }
+
+        private void redistribute(int depth) {
+            children = split();
+            List<T> old = new ArrayList<>(items);
+            items.clear();
+            for (T item : old) {
+                insert(item, bounds.get(item), depth);
+            }
+        }
+
+        public void query(Rect r, Collection<? super T> out) {
+            for (T item : items) {
+                if (bounds.get(item).intersects(r)) {
+                    out.add(item);
+                }
+            }
+            if (children != null) {
+                for (Node child : children) {
+                    if (child.rect.intersects(r)) {
+                        child.query(r, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private final int capacity;
+
+    private Node root;
+
+    private final Map<T, Rect> bounds = new HashMap<>();
+
+    private final Map<T, Node> owners = new HashMap<>();
+
+    private final Set<T> unbounded = new HashSet<>();
+
+    public QuadTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public QuadTree(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Inserts the item, or updates its bounds if it is already present.
+     *
+     * @param item
+     *            Item to index
+     * @param r
+     *            Bounds of the item, {@code null} if unknown
+     */
+    public void put(T item, Rect r) {
+        checkNotNull(item);
+        if (r == null || !r.isFinite()) {
+            remove(item);
+            unbounded.add(item);
+        } else {
+            Rect old = bounds.get(item);
+            if (old != null && sameRect(old, r)) {
+                return;
+            }
+            remove(item);
+            bounds.put(item, r);
+            ensureCovers(r);
+            root.insert(item, r, 0);
+        }
+    }
+
+    /**
+     * Inserts or updates many items at once. Faster than calling
+     * {@link #put(Object, Rect)} for each of them, since the tree is built
+     * top-down rather than split repeatedly as it fills up.
+     * 
+     * @param items
+     *            Items to index
+     * @param boundsOf
+     *            Function giving bounds of the items, possibly {@code null}
+     */
+    public void putAll(Collection<? extends T> items, 
+            Function<? super T, Rect> boundsOf) {
+        List<T> batch = new ArrayList<>(items.size());
+        List<Rect> rects = new ArrayList<>(items.size());
+        double left = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.POSITIVE_INFINITY;
+        double top = Double.NEGATIVE_INFINITY;
+        
+        for (T item : items) {
+            checkNotNull(item);
+            Rect r = boundsOf.apply(item);
+            remove(item);
+            if (r == null || !r.isFinite()) {
+                unbounded.add(item);
+            } else {
+                batch.add(item);
+                rects.add(r);
+                left = Math.min(left, r.left());
+                right = Math.max(right, r.right());
+                bottom = Math.min(bottom, r.bottom());
+                top = Math.max(top, r.top());
+            }
+        }
+        if (!batch.isEmpty()) {
+            for (int i = 0; i < batch.size(); ++ i) {
+                bounds.put(batch.get(i), rects.get(i));
+            }
+            ensureCovers(Rect.bounds(left, bottom, right, top));
+            root.insertAll(batch, rects, 0);
+        }
+    }
+
+    public boolean remove(T item) {
+        if (unbounded.remove(item)) {
+            return true;
+        }
+        Node owner = owners.remove(item);
+        if (owner != null) {
+            owner.items.remove(item);
+            bounds.remove(item);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    public boolean contains(T item) {
+        return owners.containsKey(item) || unbounded.contains(item);
+    }
+
+    public int size() {
+        return owners.size() + unbounded.size();
+    }
+
+    public void clear() {
+        root = null;
+        bounds.clear();
+        owners.clear();
+        unbounded.clear();
+    }
+
+    /**
+     * Collects items whose bounds intersect the specified rectangle, together
+     * with all the items without bounds.
+     */
+    public <C extends Collection<? super T>> C query(Rect r, C out) {
+        if (root != null && root.rect.intersects(r)) {
+            root.query(r, out);
+        }
+        out.addAll(unbounded);
+        return out;
+    }
+
+    private static boolean sameRect(Rect a, Rect b) {
+        return a.left() == b.left() && a.right() == b.right()
+                && a.bottom() == b.bottom() && a.top() == b.top();
+    }
+
+    private void ensureCovers(Rect r) {
+        if (root == null) {
+            double size = Math.max(r.width(), r.height());
+            if (size == 0) {
+                Vec2d c = r.center();
+                double scale = Math.max(Math.abs(c.x), Math.abs(c.y));
+                size = scale > 0 ? scale * 1e-6 : 1;
+            }
+            root = new Node(Rect.at(r.center(), size, size));
+        }
+        while (!root.rect.contains(r)) {
+            grow(r);
+        }
+    }
+
+    private void grow(Rect r) {
+        Rect old = root.rect;
+        double w = old.width();
+        double h = old.height();
+        boolean toLeft = r.left() < old.left();
+        boolean toBottom = r.bottom() < old.bottom();
+
+        double left = toLeft ? old.left() - w : old.left();
+        double bottom = toBottom ? old.bottom() - h : old.bottom();
+        Node parent = new Node(left, bottom, left + 2 * w, bottom + 2 * h);
+        List<Node> children = parent.split();
+
+        int idx = (toLeft ? 1 : 0) + (toBottom ? 2 : 0);
+        children.set(idx, root);
+        parent.children = children;
+        root = parent;
+    }
+
+}
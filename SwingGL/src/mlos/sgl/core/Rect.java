@@ -100,5 +100,20 @@ public final class Rect {
         return new Vec2d(right, bottom);
     }
     
+    public boolean contains(Rect other) {
+        return left <= other.left && other.right <= right
+                && bottom <= other.bottom && other.top <= top;
+    }
+    
+    public boolean intersects(Rect other) {
+        return left <= other.right && other.left <= right
+                && bottom <= other.top && other.bottom <= top;
+    }
+    
+    public boolean isFinite() {
+        return !Double.isInfinite(width()) && !Double.isNaN(width())
+                && !Double.isInfinite(height()) && !Double.isNaN(height());
+    }
+    
     
 }
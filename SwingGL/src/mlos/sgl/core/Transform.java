@@ -2,208 +2,287 @@ package mlos.sgl.core;
 
 
 public class Transform {
-    
-    private final double[][] m;
-    
+
+    /** Smallest absolute value of determinant considered non-singular */
+    private static final double SINGULAR_DET = 1e-200;
+
+    private final double m00, m01, m02;
+    private final double m10, m11, m12;
+
+    /** Inverse matrix, valid only if {@link #invertible} is set */
+    private final double i00, i01, i02;
+    private final double i10, i11, i12;
+
+    private final boolean invertible;
+
     public Transform() {
-        this(new double[2][3]);
-        m[0][0] = m[1][1] = 1;
+        this(1, 0, 0, 0, 1, 0);
     }
-    
-    private Transform(double[][] mat) {
-        this.m = mat;
+
+    private Transform(double m00, double m01, double m02,
+            double m10, double m11, double m12) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+
+        double det = m00 * m11 - m01 * m10;
+        this.invertible = Math.abs(det) > SINGULAR_DET;
+
+        if (invertible) {
+            i00 = m11 / det;
+            i01 = -m01 / det;
+            i02 = (m01 * m12 - m02 * m11) / det;
+
+            i10 = -m10 / det;
+            i11 = m00 / det;
+            i12 = (m02 * m10 - m00 * m12) / det;
+        } else {
+            i00 = i01 = i02 = i10 = i11 = i12 = Double.NaN;
+        }
+    }
+
+    private void checkInvertible() {
+        if (!invertible) {
+            throw new ArithmeticException("det = 0");
+        }
     }
-    
+
     public Vec2d apply(Vec2d a) {
-        double x = m[0][0] * a.x + m[0][1] * a.y + m[0][2];
-        double y = m[1][0] * a.x + m[1][1] * a.y + m[1][2];
-        return new Vec2d(x, y);
+        return new Vec2d(applyX(a.x, a.y), applyY(a.x, a.y));
+    }
+
+    public double applyX(double x, double y) {
+        return m00 * x + m01 * y + m02;
     }
-    
+
+    public double applyY(double x, double y) {
+        return m10 * x + m11 * y + m12;
+    }
+
+    /**
+     * Transforms {@code n} points stored in separate coordinate arrays. Source
+     * and destination arrays may be the same.
+     */
+    public void apply(double[] xs, double[] ys, double[] outXs,
+            double[] outYs, int n) {
+        apply(xs, ys, 0, outXs, outYs, 0, n);
+    }
+
+    public void apply(double[] xs, double[] ys, int srcOffset, 
+            double[] outXs, double[] outYs, int dstOffset, int n) {
+        for (int i = 0; i < n; ++ i) {
+            double x = xs[srcOffset + i];
+            double y = ys[srcOffset + i];
+            outXs[dstOffset + i] = m00 * x + m01 * y + m02;
+            outYs[dstOffset + i] = m10 * x + m11 * y + m12;
+        }
+    }
+
+    /**
+     * Transforms {@code n} points stored as interleaved {@code (x, y)} pairs.
+     * Source and destination ranges may be the same.
+     */
+    public void apply(double[] src, int srcOffset, double[] dst,
+            int dstOffset, int n) {
+        for (int i = 0; i < n; ++ i) {
+            int s = srcOffset + 2 * i;
+            int d = dstOffset + 2 * i;
+            double x = src[s];
+            double y = src[s + 1];
+            dst[d] = m00 * x + m01 * y + m02;
+            dst[d + 1] = m10 * x + m11 * y + m12;
+        }
+    }
+
+    public boolean isInvertible() {
+        return invertible;
+    }
+
     public Vec2d invert(Vec2d p) {
-        double a = m[0][0];
-        double b = m[0][1];
-        double c = m[0][2];
-        double d = m[1][0];
-        double e = m[1][1];
-        double f = m[1][2];
-        
-        double det = a * e - b * d;
-        
-        if (Math.abs(det) > 1e-200) {
-            double m00 = e;
-            double m01 = -b;
-            double m02 = (b * f - c * e);
-            
-            double m10 = - d;
-            double m11 = a;
-            double m12 = (c * d - a * f);
-            
-            double x = m00 * p.x + m01 * p.y + m02;
-            double y = m10 * p.x + m11 * p.y + m12;
-            return new Vec2d(x / det, y / det);
-        } else {
-            throw new ArithmeticException("det = 0");
+        checkInvertible();
+        return new Vec2d(invertX(p.x, p.y), invertY(p.x, p.y));
+    }
+
+    public double invertX(double x, double y) {
+        checkInvertible();
+        return i00 * x + i01 * y + i02;
+    }
+
+    public double invertY(double x, double y) {
+        checkInvertible();
+        return i10 * x + i11 * y + i12;
+    }
+
+    /**
+     * Applies inverse transformation to {@code n} points stored in separate
+     * coordinate arrays. Source and destination arrays may be the same.
+     */
+    public void invert(double[] xs, double[] ys, double[] outXs,
+            double[] outYs, int n) {
+        checkInvertible();
+        for (int i = 0; i < n; ++ i) {
+            double x = xs[i];
+            double y = ys[i];
+            outXs[i] = i00 * x + i01 * y + i02;
+            outYs[i] = i10 * x + i11 * y + i12;
         }
     }
-    
+
     public Vec2d applyToDir(Vec2d a) {
-        double x = m[0][0] * a.x + m[0][1] * a.y;
-        double y = m[1][0] * a.x + m[1][1] * a.y;
+        double x = m00 * a.x + m01 * a.y;
+        double y = m10 * a.x + m11 * a.y;
         return new Vec2d(x, y);
     }
-    
+
     @Override
     public String toString() {
         String rowFmt = String.format("{%1$s, %1$s, %1$s}", "%.2f");
         String fmt = String.format("{%1$s,\n %1$s}", rowFmt);
         return String.format(fmt,
-                m[0][0], m[0][1], m[0][2],
-                m[1][0], m[1][1], m[1][2]);
+                m00, m01, m02,
+                m10, m11, m12);
     }
 
-    
+
     public static class Builder {
-        
-        private final double[][] m = new double[2][3];
-        
+
+        private double m00 = 1, m01 = 0, m02 = 0;
+        private double m10 = 0, m11 = 1, m12 = 0;
+
         public Builder() {
-            m[0][0] = m[1][1] = 1;
+            // identity
         }
-        
+
         public Builder(Transform t) {
-            copyMatrix(t.m, m);
-        }
-        
-        private void copyMatrix(double[][] src, double[][] dst) {
-            for (int i = 0; i < 2; ++ i) {
-                System.arraycopy(src[i], 0, dst[i], 0, 3);
-            }
+            m00 = t.m00;
+            m01 = t.m01;
+            m02 = t.m02;
+            m10 = t.m10;
+            m11 = t.m11;
+            m12 = t.m12;
         }
-        
-        public Builder apply(Transform t) {
-            double[][] a = t.m;
-            
-            double m00 = a[0][0] * m[0][0] + a[0][1] * m[1][0];
-            double m01 = a[0][0] * m[0][1] + a[0][1] * m[1][1];
-            double m02 = a[0][0] * m[0][2] + a[0][1] * m[1][2] + a[0][2];
-            
-            double m10 = a[1][0] * m[0][0] + a[1][1] * m[1][0];
-            double m11 = a[1][0] * m[0][1] + a[1][1] * m[1][1];
-            double m12 = a[1][0] * m[0][2] + a[1][1] * m[1][2] + a[1][2];
-            
-            
-            m[0][0] = m00; 
-            m[0][1] = m01; 
-            m[0][2] = m02;
-            
-            m[1][0] = m10; 
-            m[1][1] = m11; 
-            m[1][2] = m12;
+
+        public Builder apply(Transform a) {
+            double n00 = a.m00 * m00 + a.m01 * m10;
+            double n01 = a.m00 * m01 + a.m01 * m11;
+            double n02 = a.m00 * m02 + a.m01 * m12 + a.m02;
+
+            double n10 = a.m10 * m00 + a.m11 * m10;
+            double n11 = a.m10 * m01 + a.m11 * m11;
+            double n12 = a.m10 * m02 + a.m11 * m12 + a.m12;
+
+            m00 = n00;
+            m01 = n01;
+            m02 = n02;
+
+            m10 = n10;
+            m11 = n11;
+            m12 = n12;
             return this;
         }
-        
+
         public Builder t(double dx, double dy) {
-            m[0][2] += dx;
-            m[1][2] += dy;
+            m02 += dx;
+            m12 += dy;
             return this;
         }
-        
+
         public Builder t(Vec2d v) {
             return t(v.x, v.y);
         }
-        
+
         public Builder tX(double dx) {
             return t(dx, 0);
         }
-        
+
         public Builder tY(double dy) {
             return t(0, dy);
         }
-        
+
         public Builder s(double sx, double sy) {
-            m[0][0] *= sx;
-            m[0][1] *= sx;
-            m[0][2] *= sx;
-            
-            m[1][0] *= sy;
-            m[1][1] *= sy;
-            m[1][2] *= sy;
+            m00 *= sx;
+            m01 *= sx;
+            m02 *= sx;
+
+            m10 *= sy;
+            m11 *= sy;
+            m12 *= sy;
             return this;
         }
-        
+
         public Builder s(double scale) {
             return s(scale, scale);
         }
-        
+
         public Builder sX(double sx) {
             return s(sx, 1);
         }
-        
+
         public Builder sY(double sy) {
             return s(1, sy);
         }
-        
+
         public Builder flipX() {
             return sX(-1);
         }
-        
+
         public Builder flipY() {
             return sY(-1);
         }
-        
+
         public Builder r(double theta) {
             double cos = Math.cos(theta);
             double sin = Math.sin(theta);
-            
-            double m00 = m[0][0];
-            double m01 = m[0][1];
-            double m02 = m[0][2];
-            double m10 = m[1][0];
-            double m11 = m[1][1];
-            double m12 = m[1][2];
-            
-            m[0][0] = m00 * cos - m10 * sin;
-            m[0][1] = m01 * cos - m11 * sin;
-            m[0][2] = m02 * cos - m12 * sin;
-            
-            m[1][0] = m00 * sin + m10 * cos;
-            m[1][1] = m01 * sin + m11 * cos;
-            m[1][2] = m02 * sin + m12 * cos;
-            
+
+            double a00 = m00;
+            double a01 = m01;
+            double a02 = m02;
+            double a10 = m10;
+            double a11 = m11;
+            double a12 = m12;
+
+            m00 = a00 * cos - a10 * sin;
+            m01 = a01 * cos - a11 * sin;
+            m02 = a02 * cos - a12 * sin;
+
+            m10 = a00 * sin + a10 * cos;
+            m11 = a01 * sin + a11 * cos;
+            m12 = a02 * sin + a12 * cos;
+
             return this;
         }
-        
+
         public Builder invert() {
-            double a = m[0][0];
-            double b = m[0][1];
-            double c = m[0][2];
-            double d = m[1][0];
-            double e = m[1][1];
-            double f = m[1][2];
-            
+            double a = m00;
+            double b = m01;
+            double c = m02;
+            double d = m10;
+            double e = m11;
+            double f = m12;
+
             double det = a * e - b * d;
-            
+
             if (Math.abs(det) > 1e-20) {
-                m[0][0] = e / det;
-                m[0][1] = -b / det;
-                m[0][2] = (b * f - c * e) / det;
-                
-                m[1][0] = - d / det;
-                m[1][1] = a / det;
-                m[1][2] = (c * d - a * f) / det;
+                m00 = e / det;
+                m01 = -b / det;
+                m02 = (b * f - c * e) / det;
+
+                m10 = - d / det;
+                m11 = a / det;
+                m12 = (c * d - a * f) / det;
             } else {
                 throw new ArithmeticException("det = 0");
             }
             return this;
         }
-        
+
         public Transform create() {
-            double[][] copy = new double[2][3];
-            copyMatrix(m, copy);
-            return new Transform(copy);
+            return new Transform(m00, m01, m02, m10, m11, m12);
         }
-        
+
     }
-    
+
 }
@@ -52,4 +52,44 @@ public class Transforms {
         }
         return builder.create();
     }
+    
+    /**
+     * Computes bounding box of the image of a rectangle.
+     * 
+     * @param t
+     *            Transformation
+     * @param r
+     *            Rectangle in the source space of {@code t}
+     * @return Smallest rectangle covering the image of {@code r}
+     */
+    public static Rect applyBounds(Transform t, Rect r) {
+        double[] xs = { r.left(), r.left(), r.right(), r.right() };
+        double[] ys = { r.bottom(), r.top(), r.bottom(), r.top() };
+        t.apply(xs, ys, xs, ys, 4);
+        return bounds(xs, ys);
+    }
+    
+    /**
+     * Computes bounding box of the preimage of a rectangle.
+     * 
+     * @param t
+     *            Transformation
+     * @param r
+     *            Rectangle in the target space of {@code t}
+     * @return Smallest rectangle whose image under {@code t} covers {@code r}
+     */
+    public static Rect invertBounds(Transform t, Rect r) {
+        double[] xs = { r.left(), r.left(), r.right(), r.right() };
+        double[] ys = { r.bottom(), r.top(), r.bottom(), r.top() };
+        t.invert(xs, ys, xs, ys, 4);
+        return bounds(xs, ys);
+    }
+    
+    private static Rect bounds(double[] xs, double[] ys) {
+        double left = Math.min(Math.min(xs[0], xs[1]), Math.min(xs[2], xs[3]));
+        double right = Math.max(Math.max(xs[0], xs[1]), Math.max(xs[2], xs[3]));
+        double bottom = Math.min(Math.min(ys[0], ys[1]), Math.min(ys[2], ys[3]));
+        double top = Math.max(Math.max(ys[0], ys[1]), Math.max(ys[2], ys[3]));
+        return Rect.bounds(left, bottom, right, top);
+    }
 }
@@ -0,0 +1,92 @@
+package mlos.sgl.decorators;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.Color;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+
+import javax.swing.SwingWorker;
+
+import mlos.sgl.core.Transform;
+import mlos.sgl.view.Painter;
+
+/**
+ * Draws a progress bar of a background task in the corner of the canvas.
+ */
+public class ProgressPainter implements Painter {
+
+    private static final Rectangle BAR = new Rectangle(8, 22, 150, 8);
+
+    /** Gap between the bar and the text */
+    private static final int GAP = 6;
+
+    /** Extra pixels around the text, covering antialiasing */
+    private static final int SLACK = 2;
+
+    /** Generous size of a character, assumed before the first paint */
+    private static final int CHAR_SIZE = 16;
+
+    private final SwingWorker<?, ?> task;
+
+    private final String label;
+
+    /** Area covered by the text of all paints so far, or {@code null} */
+    private volatile Rectangle textArea;
+
+    public ProgressPainter(SwingWorker<?, ?> task, String label) {
+        this.task = checkNotNull(task);
+        this.label = checkNotNull(label);
+    }
+
+    /**
+     * @return Area of the screen covered by the painter, including the text
+     *         of earlier paints; before the first paint, the text area is
+     *         estimated
+     */
+    public Rectangle getArea() {
+        Rectangle area = new Rectangle(BAR.x, BAR.y, BAR.width + 1,
+                BAR.height + 1);
+        Rectangle text = textArea;
+        if (text == null) {
+            int x = BAR.x + BAR.width + GAP;
+            int y = BAR.y + BAR.height;
+            text = new Rectangle(x, y - 2 * CHAR_SIZE,
+                    CHAR_SIZE * (label.length() + 5), 3 * CHAR_SIZE);
+        }
+        area.add(text);
+        return area;
+    }
+
+    @Override
+    public void paint(Transform toScreen, Graphics2D ctx) {
+        int progress = task.getProgress();
+        int filled = BAR.width * progress / 100;
+
+        ctx.setColor(Color.white);
+        ctx.fillRect(BAR.x, BAR.y, BAR.width, BAR.height);
+        ctx.setColor(new Color(0.2f, 0.4f, 0.9f));
+        ctx.fillRect(BAR.x, BAR.y, filled, BAR.height);
+        ctx.setColor(Color.black);
+        ctx.drawRect(BAR.x, BAR.y, BAR.width, BAR.height);
+
+        String text = String.format("%s %d%%", label, progress);
+        int x = BAR.x + BAR.width + GAP;
+        int y = BAR.y + BAR.height;
+        ctx.drawString(text, x, y);
+
+        // the text is widest when done, and stale text needs repainting too
+        FontMetrics fm = ctx.getFontMetrics();
+        int w = Math.max(fm.stringWidth(text),
+                fm.stringWidth(String.format("%s 100%%", label)));
+        Rectangle area = new Rectangle(x - SLACK, y - fm.getAscent() - SLACK,
+                w + 2 * SLACK, fm.getAscent() + fm.getDescent() + 2 * SLACK);
+        Rectangle old = textArea;
+        if (old != null) {
+            area.add(old);
+        }
+        textArea = area;
+    }
+
+}
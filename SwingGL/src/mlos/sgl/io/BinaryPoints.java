@@ -0,0 +1,135 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Binary point file format. Unlike text formats read by {@link Parser}, the
+ * file is not parsed at all - it is mapped into memory by {@link #open(File)},
+ * so that even huge data sets are opened instantly.
+ *
+ * Layout (all values little-endian):
+ * <pre>
+ *  0  int     magic ("SGLP")
+ *  4  int     version
+ *  8  int     flags ({@link #COLORS}, {@link #SIZES})
+ * 12  int     reserved
+ * 16  long    number of points n
+ * 24  double  left, bottom, right, top - bounds of the points
+ * 56  double  x[n]
+ *     double  y[n]
+ *     int     color[n]  - packed ARGB, if COLORS flag is set
+ *     byte    size[n]   - unsigned diameter, if SIZES flag is set
+ * </pre>
+ */
+public final class BinaryPoints {
+
+    public static final int MAGIC = 'S' | 'G' << 8 | 'L' << 16 | 'P' << 24;
+
+    public static final int VERSION = 1;
+
+    /** Flag of files containing colors of the points */
+    public static final int COLORS = 1;
+
+    /** Flag of files containing sizes of the points */
+    public static final int SIZES = 2;
+
+    public static final int HEADER_SIZE = 56;
+
+    private BinaryPoints() {
+        // non-instantiable
+    }
+
+    /**
+     * Maps the file into memory.
+     *
+     * @throws IOException
+     *             If the file cannot be read or is not a valid point file
+     */
+    public static MappedPoints open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            return new MappedPoints(channel);
+        }
+    }
+
+    /**
+     * Writes the first {@code n} points.
+     *
+     * @param colors
+     *            Packed ARGB colors, or {@code null}
+     * @param sizes
+     *            Diameters, or {@code null}
+     */
+    public static void write(File file, double[] xs, double[] ys,
+            int[] colors, byte[] sizes, int n) throws IOException {
+        checkArgument(n <= xs.length && n <= ys.length, "Arrays too short");
+        checkArgument(colors == null || n <= colors.length, "Arrays too short");
+        checkArgument(sizes == null || n <= sizes.length, "Arrays too short");
+
+        double left = Double.POSITIVE_INFINITY;
+        double right = Double.NEGATIVE_INFINITY;
+        double bottom = Double.POSITIVE_INFINITY;
+        double top = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++ i) {
+            left = Math.min(left, xs[i]);
+            right = Math.max(right, xs[i]);
+            bottom = Math.min(bottom, ys[i]);
+            top = Math.max(top, ys[i]);
+        }
+        int flags = (colors != null ? COLORS : 0) | (sizes != null ? SIZES : 0);
+
+        try (ColumnWriter out = new ColumnWriter(file)) {
+            out.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(0);
+            out.putLong(n);
+            out.putDouble(left).putDouble(bottom)
+               .putDouble(right).putDouble(top);
+
+            out.put(xs, n).put(ys, n);
+            if (colors != null) {
+                out.put(colors, n);
+            }
+            if (sizes != null) {
+                out.put(sizes, n);
+            }
+        }
+    }
+
+    public static void write(File file, Iterable<? extends Vec2d> points)
+            throws IOException {
+        double[] xs = new double[16];
+        double[] ys = new double[16];
+        int n = 0;
+        for (Vec2d v : points) {
+            if (n == xs.length) {
+                xs = Arrays.copyOf(xs, 2 * n);
+                ys = Arrays.copyOf(ys, 2 * n);
+            }
+            xs[n] = v.x;
+            ys[n] = v.y;
+            ++ n;
+        }
+        write(file, xs, ys, null, null, n);
+    }
+
+    /**
+     * Writes all the points of the cloud, together with their colors and
+     * sizes.
+     */
+    public static void write(File file, CanvasPointCloud cloud)
+            throws IOException {
+        synchronized (cloud) {
+            write(file, cloud.xs(), cloud.ys(), cloud.colors(), cloud.sizes(),
+                    cloud.count());
+        }
+    }
+
+}
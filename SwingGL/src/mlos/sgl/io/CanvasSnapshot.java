@@ -0,0 +1,480 @@
+package mlos.sgl.io;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mlos.sgl.Scene;
+import mlos.sgl.canvas.Canvas;
+import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.canvas.CanvasPolygon;
+import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Segment;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Binary snapshot of canvas contents: points, segments, polygons and point
+ * clouds, with their z-values and styles.
+ *
+ * Objects of each type are stored column by column, so that the file is
+ * written and read sequentially in large blocks. Colors are stored once in a
+ * dictionary and referred to by index, and so are whole styles (combinations
+ * of colors, sizes etc.) of each object type, so that a large scene with a
+ * few distinct styles takes little more than its geometry. Transient state
+ * (hover, selection) is not stored, and neither are objects of other types.
+ *
+ * Layout (all values little-endian, {@code T[n]} is a column of n values):
+ * <pre>
+ * int magic ("SGLS"), int version
+ * int c, int[c] colors - packed ARGB
+ * points:   int s, int[6s] styles (size, border size, color, hover color,
+ *                                  selected color, border color)
+ *           int n, double[n] x, double[n] y, double[n] z, int[n] style
+ * segments: int s, int[5s] styles (thickness, dashed, color, hover color,
+ *                                  selected color)
+ *           int n, double[n] ax, ay, bx, by, z, int[n] style
+ * polygons: int s, int[4s] styles (thickness, opaque, fill color,
+ *                                  border color)
+ *           int n, double[n] z, int[n] style, int[n] vertex count,
+ *           int v, double[v] x, double[v] y
+ * clouds:   int n, double[n] z, int[n] point count, int[n] hover color,
+ *           int[n] selected color,
+ *           int p, double[p] x, double[p] y, int[p] color, byte[p] size
+ * </pre>
+ * Color references are indices into the color dictionary, or -1 for none.
+ */
+public final class CanvasSnapshot {
+
+    public static final int MAGIC = 'S' | 'G' << 8 | 'L' << 16 | 'S' << 24;
+
+    public static final int VERSION = 1;
+
+    private static final int POINT_STYLE = 6;
+
+    private static final int SEGMENT_STYLE = 5;
+
+    private static final int POLYGON_STYLE = 4;
+
+    private CanvasSnapshot() {
+        // non-instantiable
+    }
+
+    /** Assigns consecutive ids to distinct keys */
+    private static final class Dictionary<K> {
+
+        private final Map<K, Integer> ids = new HashMap<>();
+
+        private final List<K> keys = new ArrayList<>();
+
+        public int id(K key) {
+            if (key == null) {
+                return -1;
+            }
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = keys.size();
+                ids.put(key, id);
+                keys.add(key);
+            }
+            return id;
+        }
+
+        public List<K> keys() {
+            return keys;
+        }
+    }
+
+    /** Style of an object, as a tuple of numbers and color ids */
+    private static final class Style {
+
+        private final int[] fields;
+
+        public Style(int... fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Style
+                    && Arrays.equals(fields, ((Style) obj).fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(fields);
+        }
+    }
+
+    public static void save(File file, Canvas canvas) throws IOException {
+        save(file, canvas.getObjects());
+    }
+
+    /**
+     * Writes the objects to the file. Objects of types other than points,
+     * segments, polygons and point clouds are skipped.
+     */
+    public static void save(File file, Iterable<? extends CanvasObject> objects)
+            throws IOException {
+        List<CanvasPoint> points = new ArrayList<>();
+        List<CanvasSegment> segments = new ArrayList<>();
+        List<CanvasPolygon> polygons = new ArrayList<>();
+        List<CanvasPointCloud> clouds = new ArrayList<>();
+        for (CanvasObject object : objects) {
+            if (object instanceof CanvasPoint) {
+                points.add((CanvasPoint) object);
+            } else if (object instanceof CanvasSegment) {
+                segments.add((CanvasSegment) object);
+            } else if (object instanceof CanvasPolygon) {
+                polygons.add((CanvasPolygon) object);
+            } else if (object instanceof CanvasPointCloud) {
+                clouds.add((CanvasPointCloud) object);
+            }
+        }
+        Dictionary<Color> colors = new Dictionary<>();
+        Dictionary<Style> pointStyles = new Dictionary<>();
+        Dictionary<Style> segmentStyles = new Dictionary<>();
+        Dictionary<Style> polygonStyles = new Dictionary<>();
+
+        int n = points.size();
+        double[] px = new double[n];
+        double[] py = new double[n];
+        double[] pz = new double[n];
+        int[] ps = new int[n];
+        for (int i = 0; i < n; ++ i) {
+            CanvasPoint p = points.get(i);
+            synchronized (p) {
+                Vec2d v = p.getPoint();
+                px[i] = v.x;
+                py[i] = v.y;
+                pz[i] = p.getZ();
+                ps[i] = pointStyles.id(new Style(p.getSize(),
+                        p.getBorderSize(), colors.id(p.getColor()),
+                        colors.id(p.getHoverColor()),
+                        colors.id(p.getSelectedColor()),
+                        colors.id(p.getBorderColor())));
+            }
+        }
+
+        int m = segments.size();
+        double[] ax = new double[m];
+        double[] ay = new double[m];
+        double[] bx = new double[m];
+        double[] by = new double[m];
+        double[] sz = new double[m];
+        int[] ss = new int[m];
+        for (int i = 0; i < m; ++ i) {
+            CanvasSegment s = segments.get(i);
+            synchronized (s) {
+                Segment seg = s.getSegment();
+                ax[i] = seg.a.x;
+                ay[i] = seg.a.y;
+                bx[i] = seg.b.x;
+                by[i] = seg.b.y;
+                sz[i] = s.getZ();
+                ss[i] = segmentStyles.id(new Style(s.getThickness(),
+                        s.isDashed() ? 1 : 0, colors.id(s.getColor()),
+                        colors.id(s.getHoverColor()),
+                        colors.id(s.getSelectedColor())));
+            }
+        }
+
+        int k = polygons.size();
+        double[] gz = new double[k];
+        int[] gs = new int[k];
+        int[] gc = new int[k];
+        PointBuffer vertices = new PointBuffer();
+        for (int i = 0; i < k; ++ i) {
+            CanvasPolygon g = polygons.get(i);
+            synchronized (g) {
+                List<Vec2d> vs = g.getPoints();
+                for (Vec2d v : vs) {
+                    vertices.add(v.x, v.y);
+                }
+                gc[i] = vs.size();
+                gz[i] = g.getZ();
+                gs[i] = polygonStyles.id(new Style(g.getThickness(),
+                        g.isOpaque() ? 1 : 0, colors.id(g.getFillColor()),
+                        colors.id(g.getBorderColor())));
+            }
+        }
+
+        int l = clouds.size();
+        double[] cz = new double[l];
+        int[] cc = new int[l];
+        int[] ch = new int[l];
+        int[] cs = new int[l];
+        for (int i = 0; i < l; ++ i) {
+            CanvasPointCloud c = clouds.get(i);
+            synchronized (c) {
+                cz[i] = c.getZ();
+                cc[i] = c.count();
+                ch[i] = colors.id(c.getHoverColor());
+                cs[i] = colors.id(c.getSelectedColor());
+            }
+        }
+
+        try (ColumnWriter out = new ColumnWriter(file)) {
+            out.putInt(MAGIC).putInt(VERSION);
+
+            List<Color> colorList = colors.keys();
+            int[] argb = new int[colorList.size()];
+            for (int i = 0; i < argb.length; ++ i) {
+                argb[i] = colorList.get(i).getRGB();
+            }
+            out.putInt(argb.length).put(argb, argb.length);
+
+            writeStyles(out, pointStyles, POINT_STYLE);
+            out.putInt(n).put(px, n).put(py, n).put(pz, n).put(ps, n);
+
+            writeStyles(out, segmentStyles, SEGMENT_STYLE);
+            out.putInt(m).put(ax, m).put(ay, m).put(bx, m).put(by, m)
+               .put(sz, m).put(ss, m);
+
+            writeStyles(out, polygonStyles, POLYGON_STYLE);
+            int v = vertices.count();
+            out.putInt(k).put(gz, k).put(gs, k).put(gc, k);
+            out.putInt(v).put(vertices.xs(), v).put(vertices.ys(), v);
+
+            out.putInt(l).put(cz, l).put(cc, l).put(ch, l).put(cs, l);
+            int total = 0;
+            for (int i = 0; i < l; ++ i) {
+                total += cc[i];
+            }
+            out.putInt(total);
+            // clouds may grow meanwhile, but only the first cc[i] points
+            // are written
+            for (int i = 0; i < l; ++ i) {
+                CanvasPointCloud c = clouds.get(i);
+                synchronized (c) {
+                    out.put(c.xs(), cc[i]);
+                }
+            }
+            for (int i = 0; i < l; ++ i) {
+                CanvasPointCloud c = clouds.get(i);
+                synchronized (c) {
+                    out.put(c.ys(), cc[i]);
+                }
+            }
+            for (int i = 0; i < l; ++ i) {
+                CanvasPointCloud c = clouds.get(i);
+                synchronized (c) {
+                    out.put(c.colors(), cc[i]);
+                }
+            }
+            for (int i = 0; i < l; ++ i) {
+                CanvasPointCloud c = clouds.get(i);
+                synchronized (c) {
+                    out.put(c.sizes(), cc[i]);
+                }
+            }
+        }
+    }
+
+    private static void writeStyles(ColumnWriter out, Dictionary<Style> styles,
+            int width) throws IOException {
+        List<Style> keys = styles.keys();
+        int[] fields = new int[width * keys.size()];
+        for (int i = 0; i < keys.size(); ++ i) {
+            System.arraycopy(keys.get(i).fields, 0, fields, width * i, width);
+        }
+        out.putInt(keys.size()).put(fields, fields.length);
+    }
+
+    /**
+     * Reads objects stored in the file.
+     *
+     * @throws IOException
+     *             If the file cannot be read or is not a valid snapshot
+     */
+    public static List<CanvasObject> load(File file) throws IOException {
+        try (ColumnReader in = new ColumnReader(file)) {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a canvas snapshot");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            int[] argb = in.getInts(count(in, 4));
+            Color[] colors = new Color[argb.length];
+            for (int i = 0; i < argb.length; ++ i) {
+                colors[i] = new Color(argb[i], true);
+            }
+            List<CanvasObject> objects = new ArrayList<>();
+
+            int[] styles = styles(in, POINT_STYLE);
+            int n = count(in, 3 * 8 + 4);
+            double[] px = in.getDoubles(n);
+            double[] py = in.getDoubles(n);
+            double[] pz = in.getDoubles(n);
+            int[] ps = in.getInts(n);
+            for (int i = 0; i < n; ++ i) {
+                CanvasPoint p = new CanvasPoint(new Vec2d(px[i], py[i]), pz[i]);
+                int s = style(styles, POINT_STYLE, ps[i]);
+                p.setSize(styles[s]);
+                p.setBorderSize(styles[s + 1]);
+                p.setColor(color(colors, styles[s + 2]));
+                p.setHoverColor(color(colors, styles[s + 3]));
+                p.setSelectedColor(color(colors, styles[s + 4]));
+                p.setBorderColor(color(colors, styles[s + 5]));
+                objects.add(p);
+            }
+
+            styles = styles(in, SEGMENT_STYLE);
+            n = count(in, 5 * 8 + 4);
+            double[] ax = in.getDoubles(n);
+            double[] ay = in.getDoubles(n);
+            double[] bx = in.getDoubles(n);
+            double[] by = in.getDoubles(n);
+            double[] sz = in.getDoubles(n);
+            int[] ss = in.getInts(n);
+            for (int i = 0; i < n; ++ i) {
+                CanvasSegment seg = new CanvasSegment(new Segment(
+                        new Vec2d(ax[i], ay[i]), new Vec2d(bx[i], by[i])));
+                int s = style(styles, SEGMENT_STYLE, ss[i]);
+                seg.setZ(sz[i]);
+                seg.setThickness(styles[s]);
+                seg.setDashed(styles[s + 1] != 0);
+                seg.setColor(color(colors, styles[s + 2]));
+                seg.setHoverColor(color(colors, styles[s + 3]));
+                seg.setSelectedColor(color(colors, styles[s + 4]));
+                objects.add(seg);
+            }
+
+            styles = styles(in, POLYGON_STYLE);
+            n = count(in, 8 + 4 + 4);
+            double[] gz = in.getDoubles(n);
+            int[] gs = in.getInts(n);
+            int[] gc = in.getInts(n);
+            int v = count(in, 2 * 8);
+            double[] vx = in.getDoubles(v);
+            double[] vy = in.getDoubles(v);
+            checkParts(gc, v);
+            for (int i = 0, first = 0; i < n; first += gc[i], ++ i) {
+                List<Vec2d> vertices = new ArrayList<>(gc[i]);
+                for (int j = first; j < first + gc[i]; ++ j) {
+                    vertices.add(new Vec2d(vx[j], vy[j]));
+                }
+                CanvasPolygon g = new CanvasPolygon(vertices);
+                int s = style(styles, POLYGON_STYLE, gs[i]);
+                g.setZ(gz[i]);
+                g.setThickness(styles[s]);
+                g.setOpaque(styles[s + 1] != 0);
+                g.setFillColor(optionalColor(colors, styles[s + 2]));
+                g.setBorderColor(optionalColor(colors, styles[s + 3]));
+                objects.add(g);
+            }
+
+            n = count(in, 8 + 3 * 4);
+            double[] cz = in.getDoubles(n);
+            int[] cc = in.getInts(n);
+            int[] ch = in.getInts(n);
+            int[] cs = in.getInts(n);
+            int total = count(in, 2 * 8 + 4 + 1);
+            double[] xs = in.getDoubles(total);
+            double[] ys = in.getDoubles(total);
+            int[] cols = in.getInts(total);
+            byte[] sizes = in.getBytes(total);
+            checkParts(cc, total);
+            for (int i = 0, first = 0; i < n; first += cc[i], ++ i) {
+                CanvasPointCloud cloud = new CanvasPointCloud(cc[i]);
+                cloud.setZ(cz[i]);
+                cloud.setHoverColor(color(colors, ch[i]));
+                cloud.setSelectedColor(color(colors, cs[i]));
+                cloud.addAll(xs, ys, cols, sizes, first, cc[i]);
+                objects.add(cloud);
+            }
+            return objects;
+        } catch (IllegalArgumentException e) {
+            // invalid values, like zero sizes, rejected by the objects
+            throw new IOException("Corrupted snapshot", e);
+        }
+    }
+
+    /**
+     * Loads objects stored in the file and adds them to the scene in bulk.
+     *
+     * @return Objects added to the scene
+     */
+    public static List<CanvasObject> restore(File file, Scene scene)
+            throws IOException {
+        return scene.addObjects(load(file));
+    }
+
+    /**
+     * Reads number of items of a column, checking that the file is long
+     * enough to hold them.
+     *
+     * @param itemBytes
+     *            Smallest number of bytes taken by an item in the file
+     */
+    private static int count(ColumnReader in, int itemBytes)
+            throws IOException {
+        int n = in.getInt();
+        if (n < 0 || n > in.remaining() / itemBytes) {
+            throw new IOException("Corrupted snapshot");
+        }
+        return n;
+    }
+
+    /**
+     * Reads styles of given width, preceded by their number.
+     */
+    private static int[] styles(ColumnReader in, int width)
+            throws IOException {
+        return in.getInts(width * count(in, 4 * width));
+    }
+
+    /**
+     * @return Offset of the style with the given id
+     */
+    private static int style(int[] styles, int width, int id)
+            throws IOException {
+        if (id < 0 || id >= styles.length / width) {
+            throw new IOException("Corrupted snapshot");
+        }
+        return width * id;
+    }
+
+    /**
+     * Checks that parts, like vertices of consecutive polygons, have valid
+     * sizes summing up to the total.
+     */
+    private static void checkParts(int[] sizes, int total) throws IOException {
+        long sum = 0;
+        for (int size : sizes) {
+            if (size < 0) {
+                throw new IOException("Corrupted snapshot");
+            }
+            sum += size;
+        }
+        if (sum != total) {
+            throw new IOException("Corrupted snapshot");
+        }
+    }
+
+    /**
+     * @return Color with the given id, which must not be -1
+     */
+    private static Color color(Color[] colors, int id) throws IOException {
+        if (id < 0 || id >= colors.length) {
+            throw new IOException("Corrupted snapshot");
+        }
+        return colors[id];
+    }
+
+    /**
+     * @return Color with the given id, or {@code null} for -1
+     */
+    private static Color optionalColor(Color[] colors, int id) throws IOException {
+        return id == -1 ? null : color(colors, id);
+    }
+
+}
@@ -0,0 +1,111 @@
+package mlos.sgl.io;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential reader of files written by {@link ColumnWriter}. Columns are
+ * copied into arrays in bulk through typed views of the buffer.
+ */
+final class ColumnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileInputStream in;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    public ColumnReader(File file) throws IOException {
+        this.in = new FileInputStream(file);
+        this.channel = in.getChannel();
+        buffer.flip();
+    }
+
+    /**
+     * Makes sure at least {@code n} bytes are available in the buffer.
+     */
+    private void require(int n) throws IOException {
+        if (buffer.remaining() >= n) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @return Number of bytes left to read
+     */
+    public long remaining() throws IOException {
+        return channel.size() - channel.position() + buffer.remaining();
+    }
+
+    public int getInt() throws IOException {
+        require(4);
+        return buffer.getInt();
+    }
+
+    public long getLong() throws IOException {
+        require(8);
+        return buffer.getLong();
+    }
+
+    public double getDouble() throws IOException {
+        require(8);
+        return buffer.getDouble();
+    }
+
+    public double[] getDoubles(int n) throws IOException {
+        double[] values = new double[n];
+        for (int i = 0; i < n; ) {
+            require(8);
+            int k = Math.min(n - i, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().get(values, i, k);
+            buffer.position(buffer.position() + 8 * k);
+            i += k;
+        }
+        return values;
+    }
+
+    public int[] getInts(int n) throws IOException {
+        int[] values = new int[n];
+        for (int i = 0; i < n; ) {
+            require(4);
+            int k = Math.min(n - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().get(values, i, k);
+            buffer.position(buffer.position() + 4 * k);
+            i += k;
+        }
+        return values;
+    }
+
+    public byte[] getBytes(int n) throws IOException {
+        byte[] values = new byte[n];
+        for (int i = 0; i < n; ) {
+            require(1);
+            int k = Math.min(n - i, buffer.remaining());
+            buffer.get(values, i, k);
+            i += k;
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+}
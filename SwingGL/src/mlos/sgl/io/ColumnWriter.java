@@ -0,0 +1,105 @@
+package mlos.sgl.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential little-endian writer of binary files made of primitive columns.
+ * Whole runs of values are copied into the buffer through its typed views,
+ * which is flushed to the channel whenever it gets full.
+ */
+final class ColumnWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileOutputStream out;
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    public ColumnWriter(File file) throws IOException {
+        this.out = new FileOutputStream(file);
+        this.channel = out.getChannel();
+    }
+
+    private void reserve(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public ColumnWriter putInt(int v) throws IOException {
+        reserve(4);
+        buffer.putInt(v);
+        return this;
+    }
+
+    public ColumnWriter putLong(long v) throws IOException {
+        reserve(8);
+        buffer.putLong(v);
+        return this;
+    }
+
+    public ColumnWriter putDouble(double v) throws IOException {
+        reserve(8);
+        buffer.putDouble(v);
+        return this;
+    }
+
+    public ColumnWriter put(double[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            reserve(8);
+            int k = Math.min(n - i, buffer.remaining() / 8);
+            buffer.asDoubleBuffer().put(values, i, k);
+            buffer.position(buffer.position() + 8 * k);
+            i += k;
+        }
+        return this;
+    }
+
+    public ColumnWriter put(int[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            reserve(4);
+            int k = Math.min(n - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, i, k);
+            buffer.position(buffer.position() + 4 * k);
+            i += k;
+        }
+        return this;
+    }
+
+    public ColumnWriter put(byte[] values, int n) throws IOException {
+        for (int i = 0; i < n; ) {
+            reserve(1);
+            int k = Math.min(n - i, buffer.remaining());
+            buffer.put(values, i, k);
+            i += k;
+        }
+        return this;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package mlos.sgl.io;
+
+import java.io.IOException;
+
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Format of points written as a pair of coordinates. Coordinates can be read
+ * one by one, so that {@link Parser#parsePoints(CoordsFormat)} can store them
+ * in primitive arrays without creating a {@link Vec2d} for each point.
+ */
+public abstract class CoordsFormat implements Format<Vec2d> {
+
+    public abstract String printCoord(double x);
+
+    /**
+     * Writes a single coordinate. By default writes the string returned by
+     * {@link #printCoord(double)}.
+     */
+    public void printCoord(double x, Printer out) throws IOException {
+        out.write(printCoord(x));
+    }
+
+    public abstract double parseCoord(Tokenizer tokens) throws IOException;
+
+    @Override
+    public String print(Vec2d v) {
+        return printCoord(v.x) + " " + printCoord(v.y);
+    }
+
+    @Override
+    public void print(Vec2d v, Printer out) throws IOException {
+        printCoord(v.x, out);
+        out.write(' ');
+        printCoord(v.y, out);
+    }
+
+    @Override
+    public Vec2d parse(Tokenizer tokens) throws IOException {
+        if (!tokens.hasNext()) {
+            return null;
+        }
+        double x = parseCoord(tokens);
+        double y = parseCoord(tokens);
+        return new Vec2d(x, y);
+    }
+
+}
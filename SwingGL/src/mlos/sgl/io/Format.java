@@ -1,11 +1,20 @@
 package mlos.sgl.io;
 
-import java.util.Scanner;
+import java.io.IOException;
 
 public interface Format<T> {
 
     String print(T value);
     
-    T parse(Scanner scanner);
+    /**
+     * Writes the value to the printer, preferably without creating
+     * intermediate strings.
+     */
+    void print(T value, Printer out) throws IOException;
+    
+    /**
+     * @return Parsed value, or {@code null} if there is no more input
+     */
+    T parse(Tokenizer tokens) throws IOException;
     
 }
@@ -1,8 +1,6 @@
 package mlos.sgl.io;
 
-import java.util.Scanner;
-
-import mlos.sgl.core.Vec2d;
+import java.io.IOException;
 
 public class Formats {
 
@@ -10,42 +8,65 @@ public class Formats {
         // non-instantiable
     }
     
-    public static final Format<Vec2d> COORDS_SPACE_SEPARATED = new Format<Vec2d>() {
+    /**
+     * Decimal coordinates, written with as few digits as needed to read back
+     * exactly the same values.
+     */
+    public static final CoordsFormat COORDS_SPACE_SEPARATED = new CoordsFormat() {
+        
+        @Override
+        public String printCoord(double x) {
+            return Numbers.toString(x);
+        }
         
         @Override
-        public String print(Vec2d value) {
-            return String.format("%.18f %.18f", value.x, value.y);
+        public void printCoord(double x, Printer out) throws IOException {
+            out.writeDouble(x);
         }
         
         @Override
-        public Vec2d parse(Scanner scanner) {
-            double x = scanner.nextDouble();
-            double y = scanner.nextDouble();
-            return new Vec2d(x, y);
+        public double parseCoord(Tokenizer tokens) throws IOException {
+            return tokens.nextDouble();
         }
     };
     
-    public static final Format<Vec2d> COORDS_AS_LONG = new Format<Vec2d>() {
+    public static final CoordsFormat COORDS_AS_LONG = new CoordsFormat() {
         
-        private String printDouble(double x) {
+        @Override
+        public String printCoord(double x) {
             long val = Double.doubleToLongBits(x);
             return String.valueOf(val);
         }
         
-        private double readDouble(Scanner scanner) {
-            return Double.longBitsToDouble(scanner.nextLong());
+        @Override
+        public void printCoord(double x, Printer out) throws IOException {
+            out.writeLong(Double.doubleToLongBits(x));
+        }
+        
+        @Override
+        public double parseCoord(Tokenizer tokens) throws IOException {
+            return Double.longBitsToDouble(tokens.nextLong());
+        }
+    }; 
+
+    /**
+     * Raw bits of the coordinates as 16 hexadecimal digits.
+     */
+    public static final CoordsFormat COORDS_AS_HEX = new CoordsFormat() {
+        
+        @Override
+        public String printCoord(double x) {
+            return Numbers.toHexString(Double.doubleToLongBits(x));
         }
         
         @Override
-        public String print(Vec2d v) {
-            return String.format("%s %s", printDouble(v.x), printDouble(v.y));
+        public void printCoord(double x, Printer out) throws IOException {
+            out.writeHex(Double.doubleToLongBits(x));
         }
         
         @Override
-        public Vec2d parse(Scanner scanner) {
-            double x = readDouble(scanner);
-            double y = readDouble(scanner);
-            return new Vec2d(x, y);
+        public double parseCoord(Tokenizer tokens) throws IOException {
+            return Double.longBitsToDouble(tokens.nextHex());
         }
     }; 
 
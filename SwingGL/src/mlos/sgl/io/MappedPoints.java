@@ -0,0 +1,275 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Point file in {@link BinaryPoints} format mapped into memory. Points are
+ * read directly from the mapping, without copying the file contents.
+ *
+ * Since a single mapping is limited to 2GB, each column is mapped in chunks
+ * of {@code 2^30} bytes. The file channel is closed once the columns are
+ * mapped; {@link #close()} drops the mappings, which are then unmapped when
+ * garbage collected, as Java offers no way of unmapping them right away.
+ */
+public class MappedPoints implements Closeable {
+
+    private static final int CHUNK_SHIFT = 30;
+
+    private final long count;
+
+    private final int flags;
+
+    private final Rect bounds;
+
+    private DoubleBuffer[] xs;
+    private DoubleBuffer[] ys;
+    private IntBuffer[] colors;
+    private ByteBuffer[] sizes;
+
+    private boolean closed = false;
+
+    MappedPoints(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < BinaryPoints.HEADER_SIZE) {
+            throw new IOException("File too short for a point file header");
+        }
+        ByteBuffer header = channel.map(MapMode.READ_ONLY, 0,
+                BinaryPoints.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != BinaryPoints.MAGIC) {
+            throw new IOException("Not a point file");
+        }
+        int version = header.getInt(4);
+        if (version != BinaryPoints.VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        this.flags = header.getInt(8);
+        this.count = header.getLong(16);
+
+        long pos = BinaryPoints.HEADER_SIZE;
+        long recordSize = 16 + (hasColors() ? 4 : 0) + (hasSizes() ? 1 : 0);
+        if (count < 0) {
+            throw new IOException("Negative point count " + count);
+        }
+        if (count > (fileSize - pos) / recordSize) {
+            throw new IOException("Truncated point file");
+        }
+        this.bounds = count > 0 ? readBounds(header) : null;
+
+        ByteBuffer[] chunks = map(channel, pos, count, 8);
+        xs = new DoubleBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; ++ i) {
+            xs[i] = chunks[i].asDoubleBuffer();
+        }
+        pos += 8 * count;
+
+        chunks = map(channel, pos, count, 8);
+        ys = new DoubleBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; ++ i) {
+            ys[i] = chunks[i].asDoubleBuffer();
+        }
+        pos += 8 * count;
+
+        if (hasColors()) {
+            chunks = map(channel, pos, count, 4);
+            colors = new IntBuffer[chunks.length];
+            for (int i = 0; i < chunks.length; ++ i) {
+                colors[i] = chunks[i].asIntBuffer();
+            }
+            pos += 4 * count;
+        } else {
+            colors = null;
+        }
+        sizes = hasSizes() ? map(channel, pos, count, 1) : null;
+    }
+
+    private static Rect readBounds(ByteBuffer header) throws IOException {
+        double left = header.getDouble(24);
+        double bottom = header.getDouble(32);
+        double right = header.getDouble(40);
+        double top = header.getDouble(48);
+        if (!(left <= right && bottom <= top)) {
+            throw new IOException("Invalid bounds of points");
+        }
+        return Rect.bounds(left, bottom, right, top);
+    }
+
+    /**
+     * Maps column of {@code n} values of the given size starting at
+     * {@code pos}, in chunks.
+     */
+    private static ByteBuffer[] map(FileChannel channel, long pos, long n,
+            int size) throws IOException {
+        long perChunk = (1L << CHUNK_SHIFT) / size;
+        int chunkCount = (int) ((n + perChunk - 1) / perChunk);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; ++ i) {
+            long first = i * perChunk;
+            long len = Math.min(perChunk, n - first) * size;
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY,
+                    pos + first * size, len);
+            chunks[i] = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    private void checkIndex(long i) {
+        checkOpen();
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException(
+                    String.format("index %d, count %d", i, count));
+        }
+    }
+
+    private static int chunk(long i, int size) {
+        return (int) ((i * size) >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(long i, int size) {
+        return (int) (i & ((1L << CHUNK_SHIFT) / size - 1));
+    }
+
+    private void checkOpen() {
+        checkState(!closed, "Points are closed");
+    }
+
+    /**
+     * Drops the mappings; points cannot be read afterwards.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        xs = ys = null;
+        colors = null;
+        sizes = null;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return Bounds of the points stored in the header, or {@code null} if
+     *         there are no points
+     */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    public boolean hasColors() {
+        return (flags & BinaryPoints.COLORS) != 0;
+    }
+
+    public boolean hasSizes() {
+        return (flags & BinaryPoints.SIZES) != 0;
+    }
+
+    public double x(long i) {
+        checkIndex(i);
+        return xs[chunk(i, 8)].get(offset(i, 8));
+    }
+
+    public double y(long i) {
+        checkIndex(i);
+        return ys[chunk(i, 8)].get(offset(i, 8));
+    }
+
+    public Vec2d get(long i) {
+        return new Vec2d(x(i), y(i));
+    }
+
+    /**
+     * @return Packed ARGB color of the point, or that of
+     *         {@link CanvasPointCloud#DEFAULT_COLOR} if the file has no colors
+     */
+    public int color(long i) {
+        checkIndex(i);
+        if (colors != null) {
+            return colors[chunk(i, 4)].get(offset(i, 4));
+        } else {
+            return CanvasPointCloud.DEFAULT_COLOR.getRGB();
+        }
+    }
+
+    /**
+     * @return Diameter of the point, or {@link CanvasPointCloud#DEFAULT_SIZE}
+     *         if the file has no sizes
+     */
+    public int size(long i) {
+        checkIndex(i);
+        if (sizes != null) {
+            return sizes[chunk(i, 1)].get(offset(i, 1)) & 0xff;
+        } else {
+            return CanvasPointCloud.DEFAULT_SIZE;
+        }
+    }
+
+    /**
+     * Copies coordinates of {@code n} points starting at {@code from} to the
+     * arrays, starting at {@code offset}.
+     */
+    public void read(long from, double[] outXs, double[] outYs, int offset,
+            int n) {
+        checkOpen();
+        checkArgument(from >= 0 && n >= 0 && from + n <= count,
+                "Invalid range");
+        checkPositionIndexes(offset, offset + n, Math.min(outXs.length,
+                outYs.length));
+        copy(xs, from, outXs, offset, n);
+        copy(ys, from, outYs, offset, n);
+    }
+
+    private static void copy(DoubleBuffer[] column, long from, double[] out,
+            int offset, int n) {
+        while (n > 0) {
+            DoubleBuffer chunk = column[chunk(from, 8)].duplicate();
+            chunk.position(offset(from, 8));
+            int k = Math.min(n, chunk.remaining());
+            chunk.get(out, offset, k);
+            from += k;
+            offset += k;
+            n -= k;
+        }
+    }
+
+    /**
+     * Loads all the points into a new point cloud.
+     */
+    public CanvasPointCloud toCloud() {
+        checkArgument(count <= Integer.MAX_VALUE, "Too many points");
+        int n = (int) count;
+        CanvasPointCloud cloud = new CanvasPointCloud(n);
+        double[] x = new double[n];
+        double[] y = new double[n];
+        read(0, x, y, 0, n);
+        if (!hasColors() && !hasSizes()) {
+            cloud.addAll(x, y, n, CanvasPointCloud.DEFAULT_COLOR,
+                    CanvasPointCloud.DEFAULT_SIZE);
+        } else {
+            int[] c = new int[n];
+            byte[] s = new byte[n];
+            for (int i = 0; i < n; ++ i) {
+                c[i] = color(i);
+                s[i] = (byte) Math.max(1, size(i));
+            }
+            cloud.addAll(x, y, c, s, n);
+        }
+        return cloud;
+    }
+
+}
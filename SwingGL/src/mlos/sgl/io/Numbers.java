@@ -0,0 +1,137 @@
+package mlos.sgl.io;
+
+/**
+ * Formatting of numbers directly into character arrays, used by
+ * {@link Printer} to avoid creating a string for each written number.
+ */
+final class Numbers {
+
+    /** Maximum number of characters produced by any of the methods */
+    static final int MAX_LENGTH = 40;
+
+    /** Largest integer such that all the smaller ones are exact doubles */
+    private static final double EXACT_LIMIT = 1L << 53;
+
+    /** Largest number of fraction digits tried by the fast path */
+    private static final int MAX_FRACTION_DIGITS = 17;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+    };
+
+    private static final long[] LONG_POW10 = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+        100000000L, 1000000000L, 10000000000L, 100000000000L,
+        1000000000000L, 10000000000000L, 100000000000000L,
+        1000000000000000L, 10000000000000000L, 100000000000000000L
+    };
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Numbers() {
+        // non-instantiable
+    }
+
+    /**
+     * @return Position after the written number
+     */
+    static int appendLong(char[] buf, int pos, long v) {
+        if (v < 0) {
+            buf[pos++] = '-';
+        } else {
+            v = -v;
+        }
+        // digits of the negated value, so that MIN_VALUE does not overflow
+        int length = 1;
+        for (long t = v / 10; t != 0; t /= 10) {
+            ++ length;
+        }
+        int end = pos + length;
+        for (int i = end - 1; i >= pos; -- i) {
+            buf[i] = (char) ('0' - v % 10);
+            v /= 10;
+        }
+        return end;
+    }
+
+    /**
+     * Writes all 16 hexadecimal digits of the value.
+     *
+     * @return Position after the written number
+     */
+    static int appendHex(char[] buf, int pos, long v) {
+        for (int i = 15; i >= 0; -- i) {
+            buf[pos + i] = HEX[(int) (v & 0xf)];
+            v >>>= 4;
+        }
+        return pos + 16;
+    }
+
+    /**
+     * Writes a decimal representation that parses back to exactly the same
+     * value. The number is written in plain notation with the fewest fraction
+     * digits {@code k} such that {@code m / 10^k} is the value for an integer
+     * {@code m < 2^53}; numbers that have no such representation are written
+     * as by {@link Double#toString(double)}.
+     *
+     * @return Position after the written number
+     */
+    static int appendDouble(char[] buf, int pos, double x) {
+        double a = Math.abs(x);
+        if (a == 0) {
+            return append(buf, pos, Double.doubleToRawLongBits(x) < 0 ?
+                    "-0.0" : "0.0");
+        }
+        for (int k = 0; k <= MAX_FRACTION_DIGITS; ++ k) {
+            double scaled = a * POW10[k];
+            if (scaled >= EXACT_LIMIT) {
+                break;
+            }
+            double m = Math.rint(scaled);
+            if (m / POW10[k] == a) {
+                if (x < 0) {
+                    buf[pos++] = '-';
+                }
+                return appendFixed(buf, pos, (long) m, k);
+            }
+        }
+        return append(buf, pos, Double.toString(x));
+    }
+
+    /**
+     * Writes {@code m / 10^k} with exactly {@code k} fraction digits (at
+     * least one).
+     */
+    private static int appendFixed(char[] buf, int pos, long m, int k) {
+        pos = appendLong(buf, pos, m / LONG_POW10[k]);
+        buf[pos++] = '.';
+        if (k == 0) {
+            buf[pos++] = '0';
+            return pos;
+        }
+        long fraction = m % LONG_POW10[k];
+        int end = pos + k;
+        for (int i = end - 1; i >= pos; -- i) {
+            buf[i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        return end;
+    }
+
+    private static int append(char[] buf, int pos, String s) {
+        s.getChars(0, s.length(), buf, pos);
+        return pos + s.length();
+    }
+
+    static String toString(double x) {
+        char[] buf = new char[MAX_LENGTH];
+        return new String(buf, 0, appendDouble(buf, 0, x));
+    }
+
+    static String toHexString(long v) {
+        char[] buf = new char[16];
+        return new String(buf, 0, appendHex(buf, 0, v));
+    }
+
+}
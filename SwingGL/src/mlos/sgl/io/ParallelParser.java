@@ -0,0 +1,234 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parses large point files on multiple threads. The file is split into byte
+ * ranges starting right after a newline, each range is mapped into memory and
+ * parsed into its own {@link PointBuffer}, and the buffers are concatenated
+ * in file order.
+ *
+ * Since ranges are aligned to lines, each line must contain whole points, as
+ * files written by {@link Printer} do. Characters are decoded as ISO-8859-1,
+ * which is exact for all the formats in {@link Formats}.
+ */
+public final class ParallelParser {
+
+    /** Smallest range parsed by a single task */
+    public static final int MIN_RANGE = 1 << 20;
+
+    /** Largest range parsed by a single task, within limit of a mapping */
+    private static final long MAX_RANGE = 1L << 30;
+
+    /** Number of ranges per worker thread, for load balancing */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /** Amount of data read at a time when looking for the end of line */
+    private static final int PROBE_SIZE = 1 << 12;
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private ParallelParser() {
+        // non-instantiable
+    }
+
+    /**
+     * Parses all the points of the file on a pool shared by all the calls.
+     */
+    public static PointBuffer parsePoints(File file, CoordsFormat format)
+            throws IOException {
+        return parsePoints(file, format, PoolHolder.POOL);
+    }
+
+    public static PointBuffer parsePoints(File file, CoordsFormat format,
+            ForkJoinPool pool) throws IOException {
+        checkNotNull(format);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            long[] bounds = split(channel, pool.getParallelism());
+            int ranges = bounds.length - 1;
+            PointBuffer[] results = new PointBuffer[ranges];
+            if (ranges == 1) {
+                return parse(channel, format, 0, bounds[1]);
+            }
+            try {
+                pool.invoke(new Task(channel, format, bounds, results, 0,
+                        ranges));
+            } catch (ParseFailure e) {
+                throw e.getCause();
+            }
+            return concat(results);
+        }
+    }
+
+    /**
+     * Splits the file into ranges ending with a newline (except for the last
+     * one).
+     *
+     * @return Boundaries of the ranges, starting with 0 and ending with the
+     *         file size
+     */
+    private static long[] split(FileChannel channel, int threads)
+            throws IOException {
+        long size = channel.size();
+        long ranges = Math.max(1, Math.min(size / MIN_RANGE,
+                (long) RANGES_PER_THREAD * threads));
+        ranges = Math.max(ranges, (size + MAX_RANGE - 1) / MAX_RANGE);
+        long step = size / ranges;
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long pos = step;
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        while (pos < size) {
+            long end = nextLine(channel, pos, probe);
+            if (end >= size) {
+                break;
+            }
+            bounds.add(end);
+            pos = end + step;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; ++ i) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return Position right after the first newline at or after
+     *         {@code pos}, or the file size if there is none
+     */
+    private static long nextLine(FileChannel channel, long pos,
+            ByteBuffer probe) throws IOException {
+        for (;;) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < n; ++ i) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+    }
+
+    private static PointBuffer parse(FileChannel channel, CoordsFormat format,
+            long from, long to) throws IOException {
+        ByteBuffer bytes = channel.map(MapMode.READ_ONLY, from, to - from);
+        // rough estimate of the number of points, to avoid regrowing
+        PointBuffer points = new PointBuffer((int) ((to - from) / 32));
+        Tokenizer tokens = new Tokenizer(new ByteReader(bytes));
+        return new Parser(tokens).parsePoints(format, points);
+    }
+
+    private static PointBuffer concat(PointBuffer[] parts) {
+        int count = 0;
+        for (PointBuffer part : parts) {
+            count += part.count();
+        }
+        PointBuffer points = new PointBuffer(count);
+        for (PointBuffer part : parts) {
+            points.addAll(part);
+        }
+        return points;
+    }
+
+    /** Carries checked exception out of the fork/join task */
+    private static final class ParseFailure extends RuntimeException {
+
+        public ParseFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static final class Task extends RecursiveAction {
+
+        private final FileChannel channel;
+        private final CoordsFormat format;
+        private final long[] bounds;
+        private final PointBuffer[] results;
+        private final int from;
+        private final int to;
+
+        public Task(FileChannel channel, CoordsFormat format, long[] bounds,
+                PointBuffer[] results, int from, int to) {
+            this.channel = channel;
+            this.format = format;
+            this.bounds = bounds;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                try {
+                    results[from] = parse(channel, format, bounds[from],
+                            bounds[to]);
+                } catch (IOException e) {
+                    throw new ParseFailure(e);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Task(channel, format, bounds, results, from, mid),
+                        new Task(channel, format, bounds, results, mid, to));
+            }
+        }
+    }
+
+    /** Reads bytes of the buffer as ISO-8859-1 characters */
+    private static final class ByteReader extends Reader {
+
+        private final ByteBuffer bytes;
+
+        public ByteReader(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            int n = Math.min(len, bytes.remaining());
+            if (n == 0 && len > 0) {
+                return -1;
+            }
+            int pos = bytes.position();
+            for (int i = 0; i < n; ++ i) {
+                cbuf[off + i] = (char) (bytes.get(pos + i) & 0xff);
+            }
+            bytes.position(pos + n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+
+}
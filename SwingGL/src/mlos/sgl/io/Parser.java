@@ -1,43 +1,50 @@
 package mlos.sgl.io;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
 
-public class Parser {
+public class Parser implements Closeable {
     
-    private final Scanner input;
+    private final Tokenizer input;
 
-    public Parser(Scanner scanner) {
-        this.input = scanner;
+    public Parser(Tokenizer tokenizer) {
+        this.input = tokenizer;
     }
     
     public Parser(Reader input) {
-        this(new Scanner(input));
+        this(new Tokenizer(input));
     }
     
     public Parser(String string) {
-        this(new Scanner(string));
+        this(new StringReader(string));
     }
     
     public Parser(File file) throws FileNotFoundException {
-        this(new Scanner(file));
+        this(new FileInputStream(file));
     }
     
     public Parser(InputStream stream) {
-        this(new Scanner(stream));
+        this(new InputStreamReader(stream));
     }
 
     
-    public <T> T parse(Format<T> format) {
+    public <T> T parse(Format<T> format) throws IOException {
         return format.parse(input);
     }
     
-    public <T> List<T> parseAll(Format<T> format) {
+    /**
+     * Parses items until the end of input.
+     */
+    public <T> List<T> parseAll(Format<T> format) throws IOException {
         List<T> items = new ArrayList<>();
         T item;
         
@@ -47,4 +54,49 @@ public class Parser {
         return items;
     }
 
+    /**
+     * Parses points until the end of input, storing their coordinates in
+     * primitive arrays.
+     */
+    public PointBuffer parsePoints(CoordsFormat format) throws IOException {
+        return parsePoints(format, new PointBuffer());
+    }
+
+    /**
+     * Parses points until the end of input, appending them to the buffer.
+     * 
+     * @return The buffer
+     */
+    public PointBuffer parsePoints(CoordsFormat format, PointBuffer points)
+            throws IOException {
+        while (input.hasNext()) {
+            double x = format.parseCoord(input);
+            double y = format.parseCoord(input);
+            points.add(x, y);
+        }
+        return points;
+    }
+
+    /**
+     * Parses at most {@code limit} points, appending them to the buffer.
+     * 
+     * @return Number of points parsed, 0 at the end of input
+     */
+    public int parseBatch(CoordsFormat format, PointBuffer points, int limit)
+            throws IOException {
+        int n = 0;
+        while (n < limit && input.hasNext()) {
+            double x = format.parseCoord(input);
+            double y = format.parseCoord(input);
+            points.add(x, y);
+            ++ n;
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
 }
@@ -0,0 +1,89 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.Arrays;
+
+/**
+ * Growable pair of coordinate arrays, for reading points without creating
+ * an object for each of them.
+ */
+public class PointBuffer {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private double[] xs;
+    private double[] ys;
+
+    private int count = 0;
+
+    public PointBuffer() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public PointBuffer(int capacity) {
+        checkArgument(capacity >= 0, "Negative capacity");
+        xs = new double[capacity];
+        ys = new double[capacity];
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int newCapacity = Math.max(capacity, 2 * xs.length);
+            xs = Arrays.copyOf(xs, newCapacity);
+            ys = Arrays.copyOf(ys, newCapacity);
+        }
+    }
+
+    public void add(double x, double y) {
+        if (count == xs.length) {
+            ensureCapacity(count + 1);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        ++ count;
+    }
+
+    public void addAll(PointBuffer other) {
+        ensureCapacity(count + other.count);
+        System.arraycopy(other.xs, 0, xs, count, other.count);
+        System.arraycopy(other.ys, 0, ys, count, other.count);
+        count += other.count;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public double x(int i) {
+        checkElementIndex(i, count);
+        return xs[i];
+    }
+
+    public double y(int i) {
+        checkElementIndex(i, count);
+        return ys[i];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * @return Array of x coordinates, valid up to {@link #count()}. Not a
+     *         copy - it is shared with the buffer until it grows.
+     */
+    public double[] xs() {
+        return xs;
+    }
+
+    /**
+     * @return Array of y coordinates, valid up to {@link #count()}. Not a
+     *         copy - it is shared with the buffer until it grows.
+     */
+    public double[] ys() {
+        return ys;
+    }
+
+}
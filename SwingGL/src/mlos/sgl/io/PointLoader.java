@@ -0,0 +1,199 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.util.PointSource;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Streams points from a text file, or any other {@link PointSource}, into a
+ * point cloud in the background. Points are read in batches, and each batch
+ * is appended to the cloud as soon as it is complete, so that the data
+ * appears on screen while the file is still being read. Batches start small
+ * and double up to the batch size, so that the first points are shown almost
+ * immediately.
+ *
+ * Only a single batch is held apart from the cloud, regardless of the number
+ * of points. Progress (in percent of the points estimated to be read) is
+ * reported through the {@code "progress"} property, as usual for
+ * {@link SwingWorker}. {@link #cancel(boolean) Cancelling} stops the loading
+ * after the current batch; points loaded so far are kept in the cloud.
+ */
+public class PointLoader extends SwingWorker<Integer, Void> {
+
+    public static final int DEFAULT_BATCH_SIZE = 1 << 16;
+
+    private static final int FIRST_BATCH_SIZE = 1 << 10;
+
+    private final File file;
+
+    private final PointSource source;
+
+    private final CanvasPointCloud cloud;
+
+    private final Color color;
+
+    private final int size;
+
+    private final int batchSize;
+
+    private volatile int loaded = 0;
+
+    /** Signals update of the cloud on the event dispatch thread */
+    private final Runnable signalUpdate = new Runnable() {
+        @Override
+        public void run() {
+            cloud.signalUpdate();
+        }
+    };
+
+    public PointLoader(File file, CoordsFormat format, CanvasPointCloud cloud) {
+        this(file, format, cloud, CanvasPointCloud.DEFAULT_COLOR,
+                CanvasPointCloud.DEFAULT_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public PointLoader(File file, CoordsFormat format, CanvasPointCloud cloud,
+            Color color, int size, int batchSize) {
+        this(file, new FileSource(file, format), cloud, color, size,
+                batchSize);
+    }
+
+    public PointLoader(PointSource source, CanvasPointCloud cloud) {
+        this(source, cloud, CanvasPointCloud.DEFAULT_COLOR,
+                CanvasPointCloud.DEFAULT_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public PointLoader(PointSource source, CanvasPointCloud cloud,
+            Color color, int size, int batchSize) {
+        this(null, source, cloud, color, size, batchSize);
+    }
+
+    private PointLoader(File file, PointSource source,
+            CanvasPointCloud cloud, Color color, int size, int batchSize) {
+        checkArgument(batchSize > 0, "Non-positive batch size");
+        this.file = file;
+        this.source = checkNotNull(source);
+        this.cloud = checkNotNull(cloud);
+        this.color = checkNotNull(color);
+        this.size = size;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return File the points are loaded from, or {@code null} if they come
+     *         from another source
+     */
+    public File getFile() {
+        return file;
+    }
+
+    public CanvasPointCloud getCloud() {
+        return cloud;
+    }
+
+    /**
+     * @return Number of points appended to the cloud so far
+     */
+    public int getLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Number of points loaded
+     */
+    @Override
+    protected Integer doInBackground() throws Exception {
+        double[] xs = new double[batchSize];
+        double[] ys = new double[batchSize];
+        int limit = Math.min(FIRST_BATCH_SIZE, batchSize);
+        try {
+            int n;
+            while (!isCancelled() && (n = source.read(xs, ys, limit)) > 0) {
+                cloud.addAll(xs, ys, n, color, size);
+                loaded += n;
+                SwingUtilities.invokeLater(signalUpdate);
+
+                long remaining = source.estimateRemaining();
+                if (remaining >= 0) {
+                    double done = (double) loaded / (loaded + remaining);
+                    int percent = (int) (100 * done);
+                    setProgress(Math.max(0, Math.min(percent, 100)));
+                }
+                limit = Math.min(2 * limit, batchSize);
+            }
+        } finally {
+            if (source instanceof Closeable) {
+                ((Closeable) source).close();
+            }
+        }
+        setProgress(100);
+        return loaded;
+    }
+
+    /**
+     * Points parsed from a text file, opened on the first read. Remaining
+     * number of points is estimated from the average size of the points read
+     * so far.
+     */
+    private static final class FileSource implements PointSource, Closeable {
+
+        private final File file;
+        private final CoordsFormat format;
+        private final PointBuffer batch = new PointBuffer();
+
+        private CountingInputStream counter;
+        private Parser parser;
+        private long read = 0;
+
+        public FileSource(File file, CoordsFormat format) {
+            this.file = checkNotNull(file);
+            this.format = checkNotNull(format);
+        }
+
+        @Override
+        public int read(double[] xs, double[] ys, int max) throws IOException {
+            if (parser == null) {
+                counter = new CountingInputStream(new BufferedInputStream(
+                        new FileInputStream(file)));
+                parser = new Parser(new InputStreamReader(counter));
+            }
+            int n = parser.parseBatch(format, batch, max);
+            System.arraycopy(batch.xs(), 0, xs, 0, n);
+            System.arraycopy(batch.ys(), 0, ys, 0, n);
+            batch.clear();
+            read += n;
+            return n;
+        }
+
+        @Override
+        public long estimateRemaining() {
+            if (read == 0) {
+                return -1;
+            }
+            long bytes = counter.getCount();
+            return (long) ((file.length() - bytes) * ((double) read / bytes));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (parser != null) {
+                parser.close();
+            }
+        }
+    }
+
+}
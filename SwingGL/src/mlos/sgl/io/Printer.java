@@ -1,25 +1,113 @@
 package mlos.sgl.io;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileNotFoundException;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 
-public class Printer {
+import mlos.sgl.util.PointSource;
+
+/**
+ * Writes formatted values to the output through its own character buffer.
+ * Numbers are formatted directly into the buffer, so that writing points
+ * does not create any strings.
+ *
+ * Output is buffered - it is written only when the buffer fills up, on
+ * {@link #flush()} and on {@link #close()}.
+ */
+public class Printer implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Number of points read at a time from a {@link PointSource} */
+    private static final int CHUNK_SIZE = 1 << 16;
 
     private final Writer output;
 
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int pos = 0;
+
     public Printer(Writer output) {
         this.output = output;
     }
 
     public Printer(OutputStream stream) {
-        this.output = new OutputStreamWriter(stream);
+        this(new OutputStreamWriter(stream));
+    }
+
+    public Printer(File file) throws FileNotFoundException {
+        this(new FileOutputStream(file));
+    }
+
+    private void drain() throws IOException {
+        output.write(buffer, 0, pos);
+        pos = 0;
+    }
+
+    /**
+     * Makes sure there is room for at least {@code n} characters in the
+     * buffer.
+     */
+    private void reserve(int n) throws IOException {
+        if (pos + n > buffer.length) {
+            drain();
+        }
+    }
+
+    public Printer write(char c) throws IOException {
+        reserve(1);
+        buffer[pos++] = c;
+        return this;
+    }
+
+    public Printer write(String s) throws IOException {
+        int length = s.length();
+        if (length > buffer.length) {
+            drain();
+            output.write(s);
+            return this;
+        }
+        reserve(length);
+        s.getChars(0, length, buffer, pos);
+        pos += length;
+        return this;
+    }
+
+    public Printer writeLong(long v) throws IOException {
+        reserve(Numbers.MAX_LENGTH);
+        pos = Numbers.appendLong(buffer, pos, v);
+        return this;
+    }
+
+    /**
+     * Writes all 16 hexadecimal digits of the value.
+     */
+    public Printer writeHex(long v) throws IOException {
+        reserve(Numbers.MAX_LENGTH);
+        pos = Numbers.appendHex(buffer, pos, v);
+        return this;
+    }
+
+    /**
+     * Writes short decimal representation of the value, which parses back to
+     * exactly the same double.
+     */
+    public Printer writeDouble(double x) throws IOException {
+        reserve(Numbers.MAX_LENGTH);
+        pos = Numbers.appendDouble(buffer, pos, x);
+        return this;
     }
 
     public <T> Printer write(Format<T> format, T value) throws IOException {
-        String s = format.print(value);
-        output.write(s);
+        format.print(value, this);
         return this;
     }
 
@@ -27,9 +115,69 @@ public class Printer {
             throws IOException {
         for (T item : items) {
             write(format, item);
-            output.write('\n');
+            write('\n');
         }
         return this;
     }
 
+    /**
+     * Writes the first {@code n} points, one per line.
+     */
+    public Printer writePoints(CoordsFormat format, double[] xs, double[] ys,
+            int n) throws IOException {
+        checkArgument(n <= xs.length && n <= ys.length, "Arrays too short");
+        for (int i = 0; i < n; ++ i) {
+            format.printCoord(xs[i], this);
+            write(' ');
+            format.printCoord(ys[i], this);
+            write('\n');
+        }
+        return this;
+    }
+
+    public Printer writePoints(CoordsFormat format, PointBuffer points)
+            throws IOException {
+        return writePoints(format, points.xs(), points.ys(), points.count());
+    }
+
+    /**
+     * Writes all the remaining points of the source, one per line, reading
+     * them in chunks so that memory use does not depend on their number.
+     *
+     * @return Number of points written
+     */
+    public long writePoints(CoordsFormat format, PointSource points)
+            throws IOException {
+        double[] xs = new double[CHUNK_SIZE];
+        double[] ys = new double[CHUNK_SIZE];
+        long count = 0;
+        int n;
+        while ((n = points.read(xs, ys, CHUNK_SIZE)) > 0) {
+            writePoints(format, xs, ys, n);
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     * Writes out the buffer and flushes the underlying output.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        output.flush();
+    }
+
+    /**
+     * Flushes the buffer and closes the underlying output.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            output.close();
+        }
+    }
+
 }
@@ -0,0 +1,465 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import mlos.sgl.core.Rect;
+
+/**
+ * Quadtree of point tiles stored on disk, for viewing point sets that do not
+ * fit in memory. Each tile covers a square part of the plane; tiles with few
+ * enough points store the points themselves, others store only a
+ * {@value #GRID}x{@value #GRID} histogram of point counts and are split into
+ * four children. A viewer needs to load only the tiles covering the visible
+ * area, at the level of detail matching the zoom.
+ *
+ * The pyramid is built by {@link #build(MappedPoints, File, int)} into a
+ * directory holding an index file and one file per tile. Building streams
+ * the points through temporary files, tile by tile, so apart from the small
+ * index of tiles its memory use does not depend on the number of points.
+ */
+public class TilePyramid {
+
+    /** Resolution of the histogram of inner tiles */
+    public static final int GRID = 64;
+
+    public static final int DEFAULT_LEAF_CAPACITY = 1 << 14;
+
+    /**
+     * Depth at which tiles are not split regardless of their size. Leaves at
+     * this depth store a random sample of at most the leaf capacity of their
+     * points, so that the size of a tile stays bounded.
+     */
+    public static final int MAX_DEPTH = 24;
+
+    private static final int MAGIC = 'S' | 'G' << 8 | 'L' << 16 | 'T' << 24;
+
+    private static final int VERSION = 2;
+
+    private static final String INDEX = "pyramid.idx";
+
+    private static final int CHUNK = 1 << 14;
+
+    /** Node of the pyramid */
+    public static final class Tile {
+
+        public final int level;
+        public final int x;
+        public final int y;
+
+        /** Number of points in the tile */
+        public final long count;
+
+        /** Whether the tile stores points rather than a histogram */
+        public final boolean leaf;
+
+        /** Number of points stored in a leaf, less than count if sampled */
+        public final int stored;
+
+        public final Rect bounds;
+
+        Tile(int level, int x, int y, long count, boolean leaf, int stored,
+                Rect bounds) {
+            this.level = level;
+            this.x = x;
+            this.y = y;
+            this.count = count;
+            this.leaf = leaf;
+            this.stored = stored;
+            this.bounds = bounds;
+        }
+
+        long key() {
+            return key(level, x, y);
+        }
+
+        static long key(int level, int x, int y) {
+            return (long) level << 56 | (long) x << 28 | y;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d-%d-%d", level, x, y);
+        }
+    }
+
+    /** Loaded contents of a tile */
+    public static final class TileData {
+
+        /** Histogram of point counts, row by row from the bottom, or null */
+        public final int[] counts;
+
+        /** Points of a leaf, or null */
+        public final double[] xs;
+        public final double[] ys;
+
+        TileData(int[] counts, double[] xs, double[] ys) {
+            this.counts = counts;
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        /**
+         * @return Approximate memory taken by the data
+         */
+        public int bytes() {
+            return counts != null ? 4 * counts.length : 16 * xs.length;
+        }
+    }
+
+    private final File dir;
+
+    private final Rect bounds;
+
+    private final Map<Long, Tile> tiles;
+
+    private TilePyramid(File dir, Rect bounds, Map<Long, Tile> tiles) {
+        this.dir = dir;
+        this.bounds = bounds;
+        this.tiles = tiles;
+    }
+
+    /**
+     * @return Square covered by the root tile
+     */
+    public Rect getBounds() {
+        return bounds;
+    }
+
+    /**
+     * @return Root tile, or {@code null} if the pyramid is empty
+     */
+    public Tile getRoot() {
+        return tiles.get(Tile.key(0, 0, 0));
+    }
+
+    /**
+     * @return Existing children of the tile
+     */
+    public List<Tile> getChildren(Tile tile) {
+        if (tile.leaf) {
+            return Collections.emptyList();
+        }
+        List<Tile> children = new ArrayList<>(4);
+        for (int q = 0; q < 4; ++ q) {
+            Tile child = tiles.get(Tile.key(tile.level + 1,
+                    2 * tile.x + (q & 1), 2 * tile.y + (q >> 1)));
+            if (child != null) {
+                children.add(child);
+            }
+        }
+        return children;
+    }
+
+    public Collection<Tile> getTiles() {
+        return Collections.unmodifiableCollection(tiles.values());
+    }
+
+    private static File tileFile(File dir, Tile tile) {
+        return new File(dir, tile + ".tile");
+    }
+
+    /**
+     * Reads contents of the tile from disk.
+     */
+    public TileData load(Tile tile) throws IOException {
+        try (ColumnReader in = new ColumnReader(tileFile(dir, tile))) {
+            if (tile.leaf) {
+                int n = tile.stored;
+                return new TileData(null, in.getDoubles(n), in.getDoubles(n));
+            } else {
+                return new TileData(in.getInts(GRID * GRID), null, null);
+            }
+        }
+    }
+
+    /**
+     * Opens pyramid previously built in the directory.
+     */
+    public static TilePyramid open(File dir) throws IOException {
+        try (ColumnReader in = new ColumnReader(new File(dir, INDEX))) {
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a tile pyramid index");
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            int grid = in.getInt();
+            if (grid != GRID) {
+                throw new IOException("Unsupported grid size " + grid);
+            }
+            Rect bounds = Rect.bounds(in.getDouble(), in.getDouble(),
+                    in.getDouble(), in.getDouble());
+            int n = in.getInt();
+            Map<Long, Tile> tiles = new HashMap<>(2 * n);
+            for (int i = 0; i < n; ++ i) {
+                int level = in.getInt();
+                int x = in.getInt();
+                int y = in.getInt();
+                long count = in.getLong();
+                boolean leaf = in.getInt() != 0;
+                int stored = in.getInt();
+                if (count < 0 || stored < 0 || stored > count) {
+                    throw new IOException("Invalid point count of tile");
+                }
+                Tile tile = new Tile(level, x, y, count, leaf, stored,
+                        tileBounds(bounds, level, x, y));
+                tiles.put(tile.key(), tile);
+            }
+            return new TilePyramid(dir, bounds, tiles);
+        }
+    }
+
+    private static Rect tileBounds(Rect root, int level, int x, int y) {
+        double size = root.width() / (1L << level);
+        return Rect.lbSize(root.left() + x * size, root.bottom() + y * size,
+                size, size);
+    }
+
+    public static TilePyramid build(MappedPoints points, File dir)
+            throws IOException {
+        return build(points, dir, DEFAULT_LEAF_CAPACITY);
+    }
+
+    /**
+     * Builds pyramid of the points in the directory, which is created if
+     * needed.
+     *
+     * @param leafCapacity
+     *            Maximal number of points stored in a single tile
+     */
+    public static TilePyramid build(MappedPoints points, File dir,
+            int leafCapacity) throws IOException {
+        checkArgument(leafCapacity > 0, "Non-positive leaf capacity");
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        Rect data = points.getBounds();
+        Rect bounds;
+        if (data == null) {
+            bounds = Rect.lbSize(0, 0, 1, 1);
+        } else {
+            // square, slightly enlarged so that no point lies on its edge
+            double size = Math.max(data.width(), data.height());
+            size = size > 0 ? size * (1 + 1e-9) : 1;
+            bounds = Rect.lbSize(data.left(), data.bottom(), size, size);
+        }
+        Builder builder = new Builder(dir, bounds, leafCapacity);
+        if (points.count() > 0) {
+            builder.process(0, 0, 0, points.count(),
+                    new MappedSource(points));
+        }
+        builder.writeIndex();
+        return new TilePyramid(dir, bounds, builder.tiles);
+    }
+
+    /** Sequence of points read in chunks */
+    private interface Source {
+
+        /**
+         * @return Number of points read, at most {@link #CHUNK}
+         */
+        int read(double[] xs, double[] ys) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    private static final class MappedSource implements Source {
+
+        private final MappedPoints points;
+
+        private long next = 0;
+
+        public MappedSource(MappedPoints points) {
+            this.points = points;
+        }
+
+        @Override
+        public int read(double[] xs, double[] ys) {
+            int n = (int) Math.min(CHUNK, points.count() - next);
+            points.read(next, xs, ys, 0, n);
+            next += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            // mapping is owned by the caller
+        }
+    }
+
+    /** Points of a tile in a temporary file, as (x, y) pairs */
+    private static final class FileSource implements Source {
+
+        private final File file;
+
+        private final ColumnReader in;
+
+        private long remaining;
+
+        public FileSource(File file, long count) throws IOException {
+            this.file = file;
+            this.in = new ColumnReader(file);
+            this.remaining = count;
+        }
+
+        @Override
+        public int read(double[] xs, double[] ys) throws IOException {
+            int n = (int) Math.min(CHUNK, remaining);
+            for (int i = 0; i < n; ++ i) {
+                xs[i] = in.getDouble();
+                ys[i] = in.getDouble();
+            }
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+            file.delete();
+        }
+    }
+
+    private static final class Builder {
+
+        private final File dir;
+
+        private final Rect bounds;
+
+        private final int leafCapacity;
+
+        private final Map<Long, Tile> tiles = new HashMap<>();
+
+        private final double[] xs = new double[CHUNK];
+        private final double[] ys = new double[CHUNK];
+
+        public Builder(File dir, Rect bounds, int leafCapacity) {
+            this.dir = dir;
+            this.bounds = bounds;
+            this.leafCapacity = leafCapacity;
+        }
+
+        /**
+         * Writes the tile and all its descendants, consuming the source.
+         */
+        public void process(int level, int x, int y, long count,
+                Source source) throws IOException {
+            Rect box = tileBounds(bounds, level, x, y);
+            boolean leaf = count <= leafCapacity || level == MAX_DEPTH;
+            int stored = leaf ? (int) Math.min(count, leafCapacity) : 0;
+            Tile tile = new Tile(level, x, y, count, leaf, stored, box);
+            tiles.put(tile.key(), tile);
+            if (leaf) {
+                try {
+                    writeLeaf(tile, source);
+                } finally {
+                    source.close();
+                }
+                return;
+            }
+
+            File[] parts = new File[4];
+            long[] counts = new long[4];
+            int[] histogram = new int[GRID * GRID];
+            ColumnWriter[] outs = new ColumnWriter[4];
+            try {
+                for (int q = 0; q < 4; ++ q) {
+                    parts[q] = File.createTempFile("tile", ".tmp", dir);
+                    outs[q] = new ColumnWriter(parts[q]);
+                }
+                double cx = box.left() + box.width() / 2;
+                double cy = box.bottom() + box.height() / 2;
+                double scale = GRID / box.width();
+                int n;
+                while ((n = source.read(xs, ys)) > 0) {
+                    for (int i = 0; i < n; ++ i) {
+                        int bx = bin((xs[i] - box.left()) * scale);
+                        int by = bin((ys[i] - box.bottom()) * scale);
+                        if (histogram[by * GRID + bx] < Integer.MAX_VALUE) {
+                            ++ histogram[by * GRID + bx];
+                        }
+                        int q = (xs[i] >= cx ? 1 : 0) + (ys[i] >= cy ? 2 : 0);
+                        outs[q].putDouble(xs[i]).putDouble(ys[i]);
+                        ++ counts[q];
+                    }
+                }
+            } finally {
+                source.close();
+                for (ColumnWriter out : outs) {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+            try (ColumnWriter out = new ColumnWriter(tileFile(dir, tile))) {
+                out.put(histogram, histogram.length);
+            }
+            for (int q = 0; q < 4; ++ q) {
+                if (counts[q] > 0) {
+                    process(level + 1, 2 * x + (q & 1), 2 * y + (q >> 1),
+                            counts[q], new FileSource(parts[q], counts[q]));
+                } else {
+                    parts[q].delete();
+                }
+            }
+        }
+
+        private static int bin(double v) {
+            return Math.max(0, Math.min(GRID - 1, (int) v));
+        }
+
+        /**
+         * Writes points of the leaf, or a uniform sample of them (reservoir
+         * sampling) if there are more than it can store.
+         */
+        private void writeLeaf(Tile tile, Source source) throws IOException {
+            int m = tile.stored;
+            double[] sampleXs = new double[m];
+            double[] sampleYs = new double[m];
+            Random random = new Random(tile.key());
+            long seen = 0;
+            int n;
+            while ((n = source.read(xs, ys)) > 0) {
+                for (int i = 0; i < n; ++ i) {
+                    long k = seen < m ? seen
+                            : (long) (random.nextDouble() * (seen + 1));
+                    if (k < m) {
+                        sampleXs[(int) k] = xs[i];
+                        sampleYs[(int) k] = ys[i];
+                    }
+                    ++ seen;
+                }
+            }
+            try (ColumnWriter out = new ColumnWriter(tileFile(dir, tile))) {
+                out.put(sampleXs, m);
+                out.put(sampleYs, m);
+            }
+        }
+
+        public void writeIndex() throws IOException {
+            try (ColumnWriter out = new ColumnWriter(new File(dir, INDEX))) {
+                out.putInt(MAGIC).putInt(VERSION).putInt(GRID);
+                out.putDouble(bounds.left()).putDouble(bounds.bottom())
+                   .putDouble(bounds.right()).putDouble(bounds.top());
+                out.putInt(tiles.size());
+                for (Tile tile : tiles.values()) {
+                    out.putInt(tile.level).putInt(tile.x).putInt(tile.y);
+                    out.putLong(tile.count).putInt(tile.leaf ? 1 : 0);
+                    out.putInt(tile.stored);
+                }
+            }
+        }
+    }
+
+}
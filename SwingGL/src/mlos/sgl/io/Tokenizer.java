@@ -0,0 +1,307 @@
+package mlos.sgl.io;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffered reader of whitespace-separated numbers, replacing
+ * {@link java.util.Scanner} for parsing large data files. Tokens are scanned
+ * directly in the character buffer, without regular expressions and without
+ * creating strings, except for the rare numbers that cannot be converted
+ * exactly by the fast path.
+ *
+ * Like {@code Scanner}, methods reading tokens throw
+ * {@link NoSuchElementException} at the end of input and
+ * {@link InputMismatchException} if the token is not a valid number.
+ */
+public class Tokenizer implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Largest mantissa to which another digit can be appended */
+    private static final long MANTISSA_LIMIT = (Long.MAX_VALUE - 9) / 10;
+
+    /** Largest integer such that all the smaller ones are exact doubles */
+    private static final long EXACT_LIMIT = 1L << 53;
+
+    /** Powers of 10 that are exactly representable as doubles */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Reader input;
+
+    private char[] buffer;
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    private boolean eof = false;
+
+    public Tokenizer(Reader input) {
+        this(input, BUFFER_SIZE);
+    }
+
+    public Tokenizer(Reader input, int bufferSize) {
+        this.input = checkNotNull(input);
+        this.buffer = new char[Math.max(bufferSize, 16)];
+    }
+
+    /**
+     * Moves unread characters to the beginning of the buffer and reads more
+     * input after them, growing the buffer if it is full.
+     *
+     * @return {@code false} if the end of input has been reached
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (pos > 0) {
+            System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        if (limit == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+        int n = input.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c <= ' ';
+    }
+
+    private void skipWhitespace() throws IOException {
+        do {
+            while (pos < limit) {
+                if (!isWhitespace(buffer[pos])) {
+                    return;
+                }
+                ++ pos;
+            }
+        } while (fill());
+    }
+
+    /**
+     * Finds the next token, which starts at {@code pos} afterwards.
+     *
+     * @return End of the token in the buffer
+     */
+    private int token() throws IOException {
+        skipWhitespace();
+        if (pos == limit) {
+            throw new NoSuchElementException();
+        }
+        int end = pos;
+        for (;;) {
+            while (end < limit) {
+                if (isWhitespace(buffer[end])) {
+                    return end;
+                }
+                ++ end;
+            }
+            int length = end - pos;
+            if (!fill()) {
+                return limit;
+            }
+            end = pos + length;
+        }
+    }
+
+    private InputMismatchException mismatch(int end) {
+        String token = new String(buffer, pos, end - pos);
+        pos = end;
+        return new InputMismatchException(token);
+    }
+
+    /**
+     * @return {@code true} if there is another token before the end of input
+     */
+    public boolean hasNext() throws IOException {
+        skipWhitespace();
+        return pos < limit;
+    }
+
+    public String next() throws IOException {
+        int end = token();
+        String token = new String(buffer, pos, end - pos);
+        pos = end;
+        return token;
+    }
+
+    public long nextLong() throws IOException {
+        int end = token();
+        int i = pos;
+        boolean negative = false;
+        long min = -Long.MAX_VALUE;
+        if (buffer[i] == '-') {
+            negative = true;
+            min = Long.MIN_VALUE;
+            ++ i;
+        } else if (buffer[i] == '+') {
+            ++ i;
+        }
+        if (i == end) {
+            throw mismatch(end);
+        }
+        // accumulated negatively, so that MIN_VALUE does not overflow
+        long multMin = min / 10;
+        long result = 0;
+        for (; i < end; ++ i) {
+            int d = buffer[i] - '0';
+            if (d < 0 || d > 9 || result < multMin) {
+                throw mismatch(end);
+            }
+            result *= 10;
+            if (result < min + d) {
+                throw mismatch(end);
+            }
+            result -= d;
+        }
+        pos = end;
+        return negative ? result : -result;
+    }
+
+    /**
+     * Reads up to 16 hexadecimal digits as unsigned long.
+     */
+    public long nextHex() throws IOException {
+        int end = token();
+        if (end - pos > 16) {
+            throw mismatch(end);
+        }
+        long result = 0;
+        for (int i = pos; i < end; ++ i) {
+            int d = Character.digit(buffer[i], 16);
+            if (d < 0) {
+                throw mismatch(end);
+            }
+            result = result << 4 | d;
+        }
+        pos = end;
+        return result;
+    }
+
+    /**
+     * Reads a decimal number. Numbers with at most 53 significant bits and
+     * decimal exponent within +-22 are converted with a single, correctly
+     * rounded multiplication or division; others are handed over to
+     * {@link Double#parseDouble(String)}.
+     */
+    public double nextDouble() throws IOException {
+        int end = token();
+        int i = pos;
+        boolean negative = false;
+        if (buffer[i] == '-') {
+            negative = true;
+            ++ i;
+        } else if (buffer[i] == '+') {
+            ++ i;
+        }
+        long mantissa = 0;
+        int exp = 0;
+        boolean digits = false;
+        boolean truncated = false;
+
+        for (; i < end; ++ i) {
+            int d = buffer[i] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            digits = true;
+            if (mantissa <= MANTISSA_LIMIT) {
+                mantissa = 10 * mantissa + d;
+            } else {
+                ++ exp;
+                truncated |= d != 0;
+            }
+        }
+        if (i < end && buffer[i] == '.') {
+            for (++ i; i < end; ++ i) {
+                int d = buffer[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                digits = true;
+                if (mantissa <= MANTISSA_LIMIT) {
+                    mantissa = 10 * mantissa + d;
+                    -- exp;
+                } else {
+                    truncated |= d != 0;
+                }
+            }
+        }
+        if (digits && i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            ++ i;
+            boolean negativeExp = false;
+            if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+                negativeExp = buffer[i] == '-';
+                ++ i;
+            }
+            int e = 0;
+            int start = i;
+            for (; i < end; ++ i) {
+                int d = buffer[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                e = Math.min(10 * e + d, 100000);
+            }
+            if (i == start) {
+                digits = false;
+            }
+            exp += negativeExp ? -e : e;
+        }
+
+        if (digits && i == end && !truncated) {
+            if (mantissa == 0) {
+                pos = end;
+                return negative ? -0.0 : 0.0;
+            }
+            while ((mantissa > EXACT_LIMIT || exp < -22) && exp < 22
+                    && mantissa % 10 == 0) {
+                mantissa /= 10;
+                ++ exp;
+            }
+            if (mantissa <= EXACT_LIMIT && exp >= -22 && exp <= 22) {
+                double value = mantissa;
+                value = exp < 0 ? value / POW10[-exp] : value * POW10[exp];
+                pos = end;
+                return negative ? -value : value;
+            }
+        }
+        return slowDouble(end);
+    }
+
+    private double slowDouble(int end) {
+        String token = new String(buffer, pos, end - pos);
+        try {
+            double value = Double.parseDouble(token);
+            pos = end;
+            return value;
+        } catch (NumberFormatException e) {
+            throw mismatch(end);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+}
@@ -11,15 +11,19 @@ import java.awt.event.MouseListener;
 import java.awt.event.MouseMotionListener;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import mlos.sgl.Scene;
 import mlos.sgl.canvas.CanvasObject;
 import mlos.sgl.canvas.ObjectZComparator;
+import mlos.sgl.core.QuadTree;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Transforms;
 import mlos.sgl.core.Vec2d;
@@ -27,10 +31,21 @@ import mlos.sgl.util.PropertyMap;
 import mlos.sgl.view.CanvasPanel;
 import mlos.sgl.view.CanvasView;
 
+import com.google.common.base.Function;
+
 public class CanvasController {
 
     public static final int DEFAULT_TRESHOLD = 5;
     
+    private static final Function<ObjectController, Rect> BOUNDS = 
+            new Function<ObjectController, Rect>() {
+        
+        @Override
+        public Rect apply(ObjectController controller) {
+            return controller.bounds();
+        }
+    };
+    
     private final class Handler implements InputHandler {
         
         private Vec2d getScreenPos(MouseEvent e) {
@@ -57,6 +72,8 @@ public class CanvasController {
                     hit.mouseEntered(e);
                 }
                 hovered = hit;
+            } else if (hit != null) {
+                hit.mouseMoved(e);
             }
             prevPos = screenPos;
         }
@@ -264,6 +281,12 @@ public class CanvasController {
 
     private final Set<ObjectController> objects = new HashSet<>();
     
+    /** Spatial index of controlled objects, in plane coordinates */
+    private final QuadTree<ObjectController> index = new QuadTree<>();
+    
+    /** Largest screen margin of any object added so far */
+    private double maxMargin = 0;
+    
     private Vec2d prevPos;
     private ObjectController hovered;
     
@@ -284,13 +307,51 @@ public class CanvasController {
     }
     
     public synchronized void add(ObjectController controller) {
-        objects.add(controller);
+        if (objects.add(controller)) {
+            reindex(controller);
+        }
+    }
+    
+    public synchronized void addAll(Collection<? extends ObjectController> controllers) {
+        List<ObjectController> added = new ArrayList<>(controllers.size());
+        for (ObjectController controller : controllers) {
+            if (objects.add(controller)) {
+                added.add(controller);
+                maxMargin = Math.max(maxMargin, controller.screenMargin());
+            }
+        }
+        index.putAll(added, BOUNDS);
     }
     
     public synchronized void remove(ObjectController controller) {
         objects.remove(controller);
+        index.remove(controller);
+    }
+    
+    /**
+     * Refreshes position of the controlled object in the spatial index. Needs
+     * to be called whenever the object's geometry changes.
+     */
+    public synchronized void update(ObjectController controller) {
+        if (objects.contains(controller)) {
+            reindex(controller);
+        }
     }
     
+    private void reindex(ObjectController controller) {
+        index.put(controller, controller.bounds());
+        maxMargin = Math.max(maxMargin, controller.screenMargin());
+    }
+    
+    private Collection<ObjectController> candidates(Vec2d p, 
+            Transform planeToScreen) {
+        double r = DEFAULT_TRESHOLD + maxMargin;
+        Rect window = Rect.at(p, 2 * r, 2 * r);
+        Rect planeWindow = Transforms.invertBounds(planeToScreen, window);
+        
+        List<ObjectController> found = new ArrayList<>();
+        return index.query(planeWindow, found);
+    }
     
     public synchronized ObjectController findHit(Vec2d p) {
         Transform planeToScreen = view.planeToScreen();
@@ -299,7 +360,7 @@ public class CanvasController {
         double minDist = DEFAULT_TRESHOLD;
         Comparator<CanvasObject> cmp = ObjectZComparator.INSTANCE;
         
-        for (ObjectController controller : objects) {
+        for (ObjectController controller : candidates(p, planeToScreen)) {
             double d = controller.distance(p, planeToScreen);
             CanvasObject canvasObjet = controller.getObject();
             if (d < minDist) {
@@ -1,6 +1,7 @@
 package mlos.sgl.ui;
 
 import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
 import mlos.sgl.canvas.CanvasPolygon;
 import mlos.sgl.canvas.CanvasSegment;
 
@@ -9,5 +10,6 @@ public class DefaultObjectControllerFactory extends GenericObjectControllerFacto
     register(CanvasPoint.class, PointController.class);
     register(CanvasSegment.class, SegmentController.class);
     register(CanvasPolygon.class, PolygonController.class);
+    register(CanvasPointCloud.class, PointCloudController.class);
 
 }}
@@ -1,6 +1,7 @@
 package mlos.sgl.ui;
 
 import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Vec2d;
 
@@ -8,6 +9,17 @@ public interface ObjectController extends InputHandler {
     
     double distance(Vec2d p, Transform planeToScreen);
     
+    /**
+     * @return Bounding box of the object in plane coordinates, or
+     *         {@code null} if it cannot be determined
+     */
+    Rect bounds();
+    
+    /**
+     * @return Extent of the object beyond its bounds, in screen pixels
+     */
+    double screenMargin();
+    
     void selected(Vec2d p, Transform planeToScreen);
     
     void unselected();
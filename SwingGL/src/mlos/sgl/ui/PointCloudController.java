@@ -0,0 +1,135 @@
+package mlos.sgl.ui;
+
+import static mlos.sgl.core.Geometry.diff;
+import static mlos.sgl.core.Geometry.move;
+
+import java.awt.event.MouseEvent;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Transforms;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Controller of a point cloud. Hit testing is performed for individual points
+ * using the grid kept by the cloud, which is updated as points are added or
+ * moved. Hovering, selection and dragging apply to single points.
+ */
+public class PointCloudController extends InputAdapter implements
+        ObjectController {
+
+    private final CanvasPointCloud cloud;
+
+    /** Point closest to the last position passed to distance() */
+    private int nearest = -1;
+
+    private int dragIndex = -1;
+    private Vec2d beforeDrag;
+    private Vec2d dragBegin;
+
+    public PointCloudController(CanvasPointCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    @Override
+    public CanvasPointCloud getObject() {
+        return cloud;
+    }
+
+    @Override
+    public double distance(Vec2d p, Transform planeToScreen) {
+        synchronized (cloud) {
+            double r = CanvasController.DEFAULT_TRESHOLD + screenMargin();
+            Rect window = Rect.at(p, 2 * r, 2 * r);
+            Rect planeWindow = Transforms.invertBounds(planeToScreen, window);
+
+            double[] xs = cloud.xs();
+            double[] ys = cloud.ys();
+            byte[] sizes = cloud.sizes();
+
+            double min = Double.POSITIVE_INFINITY;
+            nearest = -1;
+            for (int i : cloud.pointsIn(planeWindow)) {
+                double sx = planeToScreen.applyX(xs[i], ys[i]);
+                double sy = planeToScreen.applyY(xs[i], ys[i]);
+                double d = Math.hypot(p.x - sx, p.y - sy);
+                double dd = Math.max(0, d - (sizes[i] & 0xff) / 2.0);
+                if (dd < min) {
+                    min = dd;
+                    nearest = i;
+                }
+            }
+            return min;
+        }
+    }
+
+    @Override
+    public Rect bounds() {
+        return cloud.getBounds();
+    }
+
+    @Override
+    public double screenMargin() {
+        return Math.max(cloud.getMaxSize(), CanvasPoint.DEFAULT_SIZE) / 2.0;
+    }
+
+    @Override
+    public void selected(Vec2d p, Transform planeToScreen) {
+        distance(p, planeToScreen);
+        cloud.setSelectedIndex(nearest);
+        cloud.setSelected(true);
+    }
+
+    @Override
+    public void unselected() {
+        cloud.setSelectedIndex(-1);
+        cloud.setSelected(false);
+    }
+
+    @Override
+    public void dragBegin(Vec2d pos, Transform planeToScreen) {
+        dragIndex = cloud.getSelectedIndex();
+        if (dragIndex >= 0) {
+            dragBegin = planeToScreen.invert(pos);
+            beforeDrag = cloud.getPoint(dragIndex);
+        }
+    }
+
+    @Override
+    public void drag(Vec2d pos, Transform planeToScreen) {
+        if (dragIndex >= 0) {
+            Vec2d planePos = planeToScreen.invert(pos);
+            Vec2d disp = diff(planePos, dragBegin);
+            cloud.setPoint(dragIndex, move(beforeDrag, disp));
+        }
+    }
+
+    @Override
+    public void dragEnd(Vec2d pos, Transform planeToScreen) {
+        drag(pos, planeToScreen);
+        dragIndex = -1;
+        beforeDrag = dragBegin = null;
+    }
+
+    @Override
+    public void mouseEntered(MouseEvent e) {
+        cloud.setHover(true);
+        cloud.setHoverIndex(nearest);
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        if (nearest != cloud.getHoverIndex()) {
+            cloud.setHoverIndex(nearest);
+        }
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+        cloud.setHover(false);
+        cloud.setHoverIndex(-1);
+    }
+
+}
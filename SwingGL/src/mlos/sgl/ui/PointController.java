@@ -1,13 +1,13 @@
 package mlos.sgl.ui;
 
 import static mlos.sgl.core.Geometry.diff;
-import static mlos.sgl.core.Geometry.dist;
 import static mlos.sgl.core.Geometry.move;
 
 import java.awt.event.MouseEvent;
 
 import mlos.sgl.canvas.CanvasObject;
 import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Vec2d;
 
@@ -29,11 +29,23 @@ public class PointController extends InputAdapter implements ObjectController {
 
     @Override
     public double distance(Vec2d p, Transform planeToScreen) {
-        Vec2d s = planeToScreen.apply(point.getPoint());
-        double d = dist(p, s);
+        Vec2d v = point.getPoint();
+        double sx = planeToScreen.applyX(v.x, v.y);
+        double sy = planeToScreen.applyY(v.x, v.y);
+        double d = Math.hypot(p.x - sx, p.y - sy);
         double r = point.getSize() / 2.0;
         return Math.max(0, d - r);
     }
+    
+    @Override
+    public Rect bounds() {
+        return Rect.at(point.getPoint(), 0, 0);
+    }
+    
+    @Override
+    public double screenMargin() {
+        return point.getSize() / 2.0;
+    }
 
     @Override
     public void dragBegin(Vec2d pos, Transform planeToScreen) {
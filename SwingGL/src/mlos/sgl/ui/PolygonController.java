@@ -1,6 +1,10 @@
 package mlos.sgl.ui;
 
+import java.util.List;
+
 import mlos.sgl.canvas.CanvasPolygon;
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Vec2d;
 
@@ -16,6 +20,21 @@ public class PolygonController extends InputAdapter implements ObjectController
     public double distance(Vec2d p, Transform planeToScreen) {
         return 10;
     }
+    
+    @Override
+    public Rect bounds() {
+        List<Vec2d> points = polygon.getPoints();
+        if (points.isEmpty()) {
+            return null;
+        } else {
+            return Geometry.aabb(points.toArray(new Vec2d[points.size()]));
+        }
+    }
+    
+    @Override
+    public double screenMargin() {
+        return 0;
+    }
 
     @Override
     public void selected(Vec2d p, Transform planeToScreen) {
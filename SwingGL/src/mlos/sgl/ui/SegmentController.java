@@ -11,6 +11,8 @@ import static mlos.sgl.core.Geometry.normSq;
 import java.awt.event.MouseEvent;
 
 import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Segment;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Vec2d;
@@ -48,6 +50,17 @@ public class SegmentController extends InputAdapter implements ObjectController
         return distance(seg, p);
     }
     
+    @Override
+    public Rect bounds() {
+        Segment seg = segment.getSegment();
+        return Geometry.aabb(seg.a, seg.b);
+    }
+    
+    @Override
+    public double screenMargin() {
+        return 0;
+    }
+    
 
     @Override
     public void dragBegin(Vec2d pos, Transform planeToScreen) {
@@ -95,7 +95,7 @@ public class PolyCreation extends AbstractMode {
                 duringCreation = false;
                 
                 view.removePostPainter(currentPainter);
-                view.refresh();
+                view.refreshOverlay();
                 e.consume();
             }
         }
@@ -109,7 +109,7 @@ public class PolyCreation extends AbstractMode {
         if (duringCreation) {
             Vec2d pos = getPlanePos(e);
             currentPos = getCursorPos(pos, e.isControlDown());
-            view.refresh();
+            view.refreshOverlay();
         }
     }
 
@@ -102,7 +102,7 @@ public class RandomPoints extends AbstractMode {
             startPos = null;
             dragging = false;
             view.removePostPainter(selectionPainter);
-            view.refresh();
+            view.refreshOverlay();
             e.consume();
         }
     }
@@ -118,10 +118,11 @@ public class RandomPoints extends AbstractMode {
             planePoints.add(normToPlane.apply(p));
         }
         
+        List<CanvasPoint> canvasPoints = new ArrayList<>(planePoints.size());
         for (Vec2d p : planePoints) {
-            CanvasPoint canvasPoint = new CanvasPoint(p);
-            scene.addObject(canvasPoint);
+            canvasPoints.add(new CanvasPoint(p));
         }
+        scene.addObjects(canvasPoints);
     }
 
     @Override
@@ -131,7 +132,7 @@ public class RandomPoints extends AbstractMode {
             view.addPostPainter(selectionPainter);
         }
         currentPos = getPlanePos(e);
-        view.refresh();
+        view.refreshOverlay();
         e.consume();
     }
 
@@ -71,7 +71,7 @@ public class SegmentCreation extends AbstractMode {
             prevPoint = null;
             dragging = false;
             view.removePostPainter(currentPainter);
-            view.refresh();
+            view.refreshOverlay();
             e.consume();
         }
     }
@@ -84,7 +84,7 @@ public class SegmentCreation extends AbstractMode {
                 view.addPostPainter(currentPainter);
             }
             currentPos = getPlanePos(e);
-            view.refresh();
+            view.refreshOverlay();
             e.consume();
         }
     }
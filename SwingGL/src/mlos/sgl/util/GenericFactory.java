@@ -1,38 +1,140 @@
 package mlos.sgl.util;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Throwables;
 
+/**
+ * Creates objects associated with instances of registered classes. Object
+ * created for an instance of a class not registered directly is created by
+ * the implementation registered for its nearest registered superclass.
+ *
+ * Implementations are looked up and their constructors resolved once per
+ * concrete class; subsequent calls only invoke the cached creator. Lookups
+ * and registrations are serialized, so that a creator resolved before a
+ * registration is never cached after it.
+ */
 public class GenericFactory<T> {
-    
-    private final Map<Class<?>, Class<? extends T>> impls = new HashMap<>();
 
-    public T create(Object object) {
-        Class<?> clazz = object.getClass();
-        Class<? extends T> viewClass = impls.get(clazz);
-        if (viewClass != null) {
-            Constructor<? extends T> ctor = getCtor(viewClass, clazz);
+    /**
+     * Function creating an object associated with the argument.
+     */
+    public interface Creator<S, T> {
+        T create(S object);
+    }
+
+    /** Creator of classes without registered implementation */
+    private static final Creator<Object, Object> NONE =
+            new Creator<Object, Object>() {
+
+        @Override
+        public Object create(Object object) {
+            return null;
+        }
+    };
+
+    /**
+     * Creator invoking constructor through a method handle adapted to
+     * {@code (Object)Object} type, so that it can be called with
+     * {@code invokeExact}.
+     */
+    private static final class CtorCreator<T> implements Creator<Object, T> {
+
+        private final MethodHandle ctor;
+
+        public CtorCreator(Constructor<?> ctor) {
             try {
-                return ctor.newInstance(object);
-            } catch (Exception e) {
+                this.ctor = MethodHandles.publicLookup().unreflectConstructor(ctor)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (IllegalAccessException e) {
                 throw new RuntimeException(e);
             }
-        } else {
-            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T create(Object object) {
+            try {
+                return (T) (Object) ctor.invokeExact(object);
+            } catch (Throwable e) {
+                throw Throwables.propagate(e);
+            }
         }
     }
-    
-    public void register(Class<?> clazz, Class<? extends T> view) {
-        impls.put(clazz, view);
+
+    private final Map<Class<?>, Creator<?, ? extends T>> impls =
+            new ConcurrentHashMap<>();
+
+    /** Creators resolved for concrete classes, cleared by registration */
+    private final ConcurrentMap<Class<?>, Creator<Object, ?>> resolved =
+            new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public T create(Object object) {
+        Class<?> clazz = object.getClass();
+        Creator<Object, ?> creator = resolved.get(clazz);
+        if (creator == null) {
+            creator = resolve(clazz);
+        }
+        return (T) creator.create(object);
     }
 
-    private static <T> Constructor<T> getCtor(Class<T> view, Class<?> clazz) {
+    /**
+     * Looks up the creator of the class and caches it.
+     */
+    private synchronized Creator<Object, ?> resolve(Class<?> clazz) {
+        Creator<Object, ?> creator = resolved.get(clazz);
+        if (creator == null) {
+            creator = lookup(clazz);
+            resolved.put(clazz, creator);
+        }
+        return creator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Creator<Object, ?> lookup(Class<?> clazz) {
+        for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+            Creator<?, ? extends T> creator = impls.get(c);
+            if (creator != null) {
+                return (Creator<Object, ?>) creator;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Registers implementation created for instances of the class and its
+     * subclasses. It needs a public constructor taking {@code clazz}.
+     */
+    public void register(Class<?> clazz, Class<? extends T> impl) {
+        Constructor<? extends T> ctor = getCtor(impl, clazz);
+        register(clazz, new CtorCreator<T>(ctor));
+    }
+
+    /**
+     * Registers function creating objects for instances of the class and its
+     * subclasses.
+     */
+    public synchronized <S> void register(Class<S> clazz,
+            Creator<? super S, ? extends T> creator) {
+        impls.put(clazz, checkNotNull(creator));
+        resolved.clear();
+    }
+
+    private static <T> Constructor<T> getCtor(Class<T> impl, Class<?> clazz) {
         try {
-            return view.getConstructor(clazz);
+            return impl.getConstructor(clazz);
         } catch (NoSuchMethodException | SecurityException e) {
             throw new RuntimeException(e);
         }
     }
-    
+
 }
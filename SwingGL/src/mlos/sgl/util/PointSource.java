@@ -0,0 +1,24 @@
+package mlos.sgl.util;
+
+import java.io.IOException;
+
+/**
+ * Sequence of points read in chunks into coordinate arrays, so that
+ * arbitrarily many points can be passed from producer to consumer in constant
+ * memory.
+ */
+public interface PointSource {
+
+    /**
+     * Reads at most {@code max} points into the beginning of the arrays.
+     *
+     * @return Number of points read, 0 only at the end of the sequence
+     */
+    int read(double[] xs, double[] ys, int max) throws IOException;
+
+    /**
+     * @return Estimated number of points not read yet, or -1 if unknown
+     */
+    long estimateRemaining();
+
+}
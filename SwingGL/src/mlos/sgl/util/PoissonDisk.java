@@ -0,0 +1,156 @@
+package mlos.sgl.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import mlos.sgl.core.Rect;
+
+/**
+ * Poisson-disk sampling of a rectangle with Bridson's algorithm: points are
+ * spread randomly, but no two of them are closer than the given distance,
+ * and no place of the rectangle is farther than twice that distance from a
+ * point. Neighbours of candidates are looked up in a background grid with
+ * cells small enough to hold at most one point each, so sampling takes time
+ * linear in the number of points.
+ */
+public final class PoissonDisk {
+
+    /** Number of candidates tried around a point before it is retired */
+    public static final int DEFAULT_ATTEMPTS = 30;
+
+    /** Largest number of cells of the background grid */
+    private static final long MAX_CELLS = 1L << 28;
+
+    private final double left;
+    private final double bottom;
+    private final double width;
+    private final double height;
+    private final double minDist;
+    private final int attempts;
+
+    private final double cellSize;
+    private final int cols;
+    private final int rows;
+
+    /** Index of the point in each cell, or -1 */
+    private final int[] grid;
+
+    private double[] xs = new double[1 << 10];
+    private double[] ys = new double[1 << 10];
+    private int count = 0;
+
+    private PoissonDisk(Rect bounds, double minDist, int attempts) {
+        checkArgument(minDist > 0, "Non-positive distance");
+        checkArgument(attempts > 0, "Non-positive number of attempts");
+        this.left = bounds.left();
+        this.bottom = bounds.bottom();
+        this.width = bounds.width();
+        this.height = bounds.height();
+        this.minDist = minDist;
+        this.attempts = attempts;
+
+        cellSize = minDist / Math.sqrt(2);
+        long c = Math.max(1, (long) Math.ceil(width / cellSize));
+        long r = Math.max(1, (long) Math.ceil(height / cellSize));
+        checkArgument(c * r <= MAX_CELLS, "Distance too small for the bounds");
+        cols = (int) c;
+        rows = (int) r;
+        grid = new int[cols * rows];
+        Arrays.fill(grid, -1);
+    }
+
+    /**
+     * @return Coordinates of the points, as array of x's and array of y's
+     */
+    public static double[][] sample(Rect bounds, double minDist, long seed) {
+        return sample(bounds, minDist, DEFAULT_ATTEMPTS, seed);
+    }
+
+    public static double[][] sample(Rect bounds, double minDist,
+            int attempts, long seed) {
+        PoissonDisk disk = new PoissonDisk(bounds, minDist, attempts);
+        disk.run(new SplitMix64(seed));
+        return new double[][] {
+            Arrays.copyOf(disk.xs, disk.count),
+            Arrays.copyOf(disk.ys, disk.count)
+        };
+    }
+
+    private void run(SplitMix64 rand) {
+        int[] active = new int[1 << 10];
+        add(left + rand.nextDouble() * width,
+                bottom + rand.nextDouble() * height);
+        active[0] = 0;
+        int activeCount = 1;
+
+        while (activeCount > 0) {
+            int k = rand.nextInt(activeCount);
+            int p = active[k];
+            boolean found = false;
+            for (int a = 0; a < attempts; ++ a) {
+                // uniform by area in the annulus between r and 2r
+                double r = minDist * Math.sqrt(1 + 3 * rand.nextDouble());
+                double theta = rand.nextDouble() * 2 * Math.PI;
+                double x = xs[p] + r * Math.cos(theta);
+                double y = ys[p] + r * Math.sin(theta);
+                if (accepts(x, y)) {
+                    if (activeCount == active.length) {
+                        active = Arrays.copyOf(active, 2 * activeCount);
+                    }
+                    active[activeCount++] = add(x, y);
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                active[k] = active[--activeCount];
+            }
+        }
+    }
+
+    private int col(double x) {
+        return Math.min((int) ((x - left) / cellSize), cols - 1);
+    }
+
+    private int row(double y) {
+        return Math.min((int) ((y - bottom) / cellSize), rows - 1);
+    }
+
+    private boolean accepts(double x, double y) {
+        if (x < left || x >= left + width || y < bottom
+                || y >= bottom + height) {
+            return false;
+        }
+        int c = col(x);
+        int r = row(y);
+        double d2 = minDist * minDist;
+        int rowMax = Math.min(r + 2, rows - 1);
+        int colMax = Math.min(c + 2, cols - 1);
+        for (int j = Math.max(r - 2, 0); j <= rowMax; ++ j) {
+            for (int i = Math.max(c - 2, 0); i <= colMax; ++ i) {
+                int q = grid[j * cols + i];
+                if (q >= 0) {
+                    double dx = xs[q] - x;
+                    double dy = ys[q] - y;
+                    if (dx * dx + dy * dy < d2) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private int add(double x, double y) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, 2 * count);
+            ys = Arrays.copyOf(ys, 2 * count);
+        }
+        xs[count] = x;
+        ys[count] = y;
+        grid[row(y) * cols + col(x)] = count;
+        return count++;
+    }
+
+}
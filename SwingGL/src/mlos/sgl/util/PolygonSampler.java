@@ -0,0 +1,137 @@
+package mlos.sgl.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static mlos.sgl.core.Geometry.orient2d;
+
+import java.util.Arrays;
+import java.util.List;
+
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Uniform distribution over the interior of a simple polygon. The polygon is
+ * triangulated by ear clipping once, and each point is sampled by choosing a
+ * triangle with probability proportional to its area and then a uniform
+ * point of the triangle, so no samples are rejected.
+ */
+final class PolygonSampler implements Randomizer.Distribution {
+
+    /** Vertex coordinates of the triangles, 6 per triangle */
+    private final double[] triangles;
+
+    /** Cumulative areas of the triangles */
+    private final double[] areas;
+
+    public PolygonSampler(List<Vec2d> vertices) {
+        checkArgument(vertices.size() >= 3, "Polygon needs 3 vertices");
+        int n = vertices.size();
+        triangles = new double[6 * (n - 2)];
+        areas = new double[n - 2];
+        triangulate(vertices.toArray(new Vec2d[n]));
+        checkArgument(areas[areas.length - 1] > 0, "Degenerate polygon");
+    }
+
+    private void triangulate(Vec2d[] vs) {
+        int n = vs.length;
+        // orient2d is positive for left turns of a counterclockwise polygon
+        double sign = signedArea(vs) >= 0 ? 1 : -1;
+        int[] idx = new int[n];
+        for (int i = 0; i < n; ++ i) {
+            idx[i] = i;
+        }
+        int count = 0;
+        double total = 0;
+        int i = 0;
+        int misses = 0;
+        while (n > 3) {
+            int prev = idx[(i + n - 1) % n];
+            int cur = idx[i];
+            int next = idx[(i + 1) % n];
+            // when no proper ear is left due to degeneracies, clip anything
+            if (misses > n || isEar(vs, idx, n, prev, cur, next, sign)) {
+                total = add(count++, total, vs[prev], vs[cur], vs[next]);
+                System.arraycopy(idx, i + 1, idx, i, n - i - 1);
+                -- n;
+                i %= n;
+                misses = 0;
+            } else {
+                i = (i + 1) % n;
+                ++ misses;
+            }
+        }
+        add(count, total, vs[idx[0]], vs[idx[1]], vs[idx[2]]);
+    }
+
+    private static double signedArea(Vec2d[] vs) {
+        double sum = 0;
+        for (int i = 0; i < vs.length; ++ i) {
+            Vec2d a = vs[i];
+            Vec2d b = vs[(i + 1) % vs.length];
+            sum += a.x * b.y - b.x * a.y;
+        }
+        return sum / 2;
+    }
+
+    private static boolean isEar(Vec2d[] vs, int[] idx, int n, int prev,
+            int cur, int next, double sign) {
+        Vec2d a = vs[prev];
+        Vec2d b = vs[cur];
+        Vec2d c = vs[next];
+        if (sign * orient2d(a, b, c) <= 0) {
+            return false;
+        }
+        for (int j = 0; j < n; ++ j) {
+            int k = idx[j];
+            if (k == prev || k == cur || k == next) {
+                continue;
+            }
+            Vec2d p = vs[k];
+            if (p.equals(a) || p.equals(b) || p.equals(c)) {
+                continue;
+            }
+            if (sign * orient2d(a, b, p) >= 0
+                    && sign * orient2d(b, c, p) >= 0
+                    && sign * orient2d(c, a, p) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private double add(int t, double total, Vec2d a, Vec2d b, Vec2d c) {
+        double[] tri = triangles;
+        tri[6 * t] = a.x;
+        tri[6 * t + 1] = a.y;
+        tri[6 * t + 2] = b.x;
+        tri[6 * t + 3] = b.y;
+        tri[6 * t + 4] = c.x;
+        tri[6 * t + 5] = c.y;
+        double area = Math.abs((b.x - a.x) * (c.y - a.y)
+                - (c.x - a.x) * (b.y - a.y)) / 2;
+        total += area;
+        areas[t] = total;
+        return total;
+    }
+
+    @Override
+    public void sample(SplitMix64 rand, double[] xs, double[] ys, int i) {
+        double total = areas[areas.length - 1];
+        int t = Arrays.binarySearch(areas, rand.nextDouble() * total);
+        t = t >= 0 ? t + 1 : -t - 1;
+        // zero-area triangles share the cumulative value of the previous one
+        t = Math.min(t, areas.length - 1);
+
+        double u = rand.nextDouble();
+        double v = rand.nextDouble();
+        if (u + v > 1) {
+            u = 1 - u;
+            v = 1 - v;
+        }
+        int k = 6 * t;
+        double ax = triangles[k];
+        double ay = triangles[k + 1];
+        xs[i] = ax + u * (triangles[k + 2] - ax) + v * (triangles[k + 4] - ax);
+        ys[i] = ay + u * (triangles[k + 3] - ay) + v * (triangles[k + 5] - ay);
+    }
+
+}
@@ -1,17 +1,24 @@
 package mlos.sgl.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static mlos.sgl.core.Geometry.lerp;
-import static mlos.sgl.core.Geometry.lerpPoly;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import mlos.sgl.core.Polygon;
 import mlos.sgl.core.Rect;
 import mlos.sgl.core.Segment;
 import mlos.sgl.core.Vec2d;
 
 import com.google.common.base.Predicate;
+import com.google.common.collect.UnmodifiableIterator;
 
 public final class Randomizer {
 
@@ -23,10 +30,6 @@ public final class Randomizer {
         T next();
     }
 
-    private abstract static class RandomSource<T> implements Source<T> {
-        protected final Random rand = new Random();
-    }
-
     private static class FilteredSource<T> implements Source<T> {
 
         private final Source<T> source;
@@ -78,6 +81,43 @@ public final class Randomizer {
             return points;
         }
 
+        /**
+         * @return View of {@code n} values, generated lazily one at a time
+         *         as they are iterated over; each iteration gives different
+         *         values
+         */
+        public Iterable<T> iterable(final long n) {
+            checkArgument(n >= 0, "Negative number of values");
+            return new Iterable<T>() {
+                @Override
+                public Iterator<T> iterator() {
+                    return new UnmodifiableIterator<T>() {
+                        private long remaining = n;
+
+                        @Override
+                        public boolean hasNext() {
+                            return remaining > 0;
+                        }
+
+                        @Override
+                        public T next() {
+                            if (remaining == 0) {
+                                throw new NoSuchElementException();
+                            }
+                            -- remaining;
+                            return source.next();
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * @return Generator of values accepted by the predicate, found by
+         *         rejection; for shapes with small acceptance rate prefer
+         *         direct samplers such as {@link Randomizer#inDisk(double)}
+         *         or {@link Randomizer#inPolygon(Vec2d...)}
+         */
         public Generator<T> filter(Predicate<? super T> predicate) {
             Source<T> src = new FilteredSource<T>(source, predicate);
             return new Generator<>(src);
@@ -85,12 +125,92 @@ public final class Randomizer {
 
     }
     
+    /**
+     * Distribution of points, sampled from uniform random numbers directly
+     * into coordinate arrays.
+     */
+    public interface Distribution {
+
+        /**
+         * Stores a random point as {@code (xs[i], ys[i])}.
+         */
+        void sample(SplitMix64 rand, double[] xs, double[] ys, int i);
+
+    }
+
+    /**
+     * Source sampling points one at a time. The generator and the coordinate
+     * arrays are shared by all the callers, so sampling is synchronized.
+     */
+    private static class DistributionSource implements Source<Vec2d> {
+
+        private final Distribution distribution;
+        private final SplitMix64 rand;
+        private final double[] xs = new double[1];
+        private final double[] ys = new double[1];
+
+        public DistributionSource(Distribution distribution, SplitMix64 rand) {
+            this.distribution = distribution;
+            this.rand = rand;
+        }
+
+        @Override
+        public synchronized Vec2d next() {
+            distribution.sample(rand, xs, ys, 0);
+            return new Vec2d(xs[0], ys[0]);
+        }
+
+    }
+
+    /** Number of consecutive points sampled from a single split generator */
+    public static final int BLOCK_SIZE = 1 << 12;
+
+    /**
+     * Largest number of blocks filled by a single task, reduced for ranges
+     * too short to give every thread of the pool several tasks
+     */
+    private static final int BLOCKS_PER_TASK = 16;
+
+    /** Number of tasks per thread of the pool aimed at when splitting */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    /**
+     * Generator of points of a distribution. Besides generating {@link Vec2d}
+     * objects, it can fill coordinate arrays from an explicit seed, either
+     * sequentially or in parallel. Points are sampled in blocks of
+     * {@link #BLOCK_SIZE}, each using generator split off the seed by the
+     * block index, so both give the same arrays for the same seed, regardless
+     * of the number of threads.
+     */
     public static class PointGenerator extends Generator<Vec2d> {
-        
-        private PointGenerator(Source<Vec2d> source) {
-            super(source);
+
+        private final Distribution distribution;
+
+        private PointGenerator(Distribution distribution) {
+            this(distribution, new SplitMix64());
+        }
+
+        private PointGenerator(Distribution distribution, SplitMix64 rand) {
+            super(new DistributionSource(distribution, rand));
+            this.distribution = distribution;
+        }
+
+        public Distribution getDistribution() {
+            return distribution;
+        }
+
+        /**
+         * @return Generator of the same distribution, giving the same points
+         *         each time it is created with the same seed
+         */
+        public PointGenerator seeded(long seed) {
+            return new PointGenerator(distribution, new SplitMix64(seed));
         }
-        
+
         public Generator<Segment> segments() {
             Source<Segment> source = new Source<Segment>() {
                 @Override
@@ -101,22 +221,264 @@ public final class Randomizer {
             return new Generator<>(source);
         }
 
+        /**
+         * Fills first {@code n} elements of the arrays with coordinates of
+         * random points, on the current thread.
+         */
+        public void fill(long seed, double[] xs, double[] ys, int n) {
+            fillRange(seed, 0, xs, ys, n);
+        }
+
+        /**
+         * Fills first {@code n} elements of the arrays with points
+         * {@code first, ..., first + n - 1} of the sequence given by the
+         * seed, so that a long sequence can be generated piece by piece.
+         * {@code first} must be multiple of {@link Randomizer#BLOCK_SIZE}.
+         */
+        public void fillRange(long seed, long first, double[] xs,
+                double[] ys, int n) {
+            checkRange(first, xs, ys, n);
+            fillPoints(distribution, seed, xs, ys, first, first, first + n,
+                    null);
+        }
+
+        /**
+         * Fills first {@code n} elements of the arrays with coordinates of
+         * random points, on a pool shared by all the calls. Results are the
+         * same as of {@link #fill(long, double[], double[], int)}.
+         */
+        public void parallelFill(long seed, double[] xs, double[] ys, int n) {
+            parallelFillRange(seed, 0, xs, ys, n, PoolHolder.POOL);
+        }
+
+        public void parallelFill(long seed, double[] xs, double[] ys, int n,
+                ForkJoinPool pool) {
+            parallelFillRange(seed, 0, xs, ys, n, pool);
+        }
+
+        /**
+         * Parallel version of
+         * {@link #fillRange(long, long, double[], double[], int)}.
+         */
+        public void parallelFillRange(long seed, long first, double[] xs,
+                double[] ys, int n, ForkJoinPool pool) {
+            checkRange(first, xs, ys, n);
+            fillPoints(distribution, seed, xs, ys, first, first, first + n,
+                    checkNotNull(pool));
+        }
+
+        /**
+         * @return Coordinates of {@code n} random points, filled in parallel
+         */
+        public double[][] arrays(long seed, int n) {
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            parallelFill(seed, xs, ys, n);
+            return new double[][] { xs, ys };
+        }
+
+        /**
+         * @return Lazy source of {@code n} random points of the sequence
+         *         given by the seed, the same as filled by
+         *         {@link #fill(long, double[], double[], int)}
+         */
+        public PointSource source(long seed, long n) {
+            return new GeneratedPoints(this, seed, n, false);
+        }
+
+        /**
+         * @return Lazy source like {@link #source(long, long)}, generating
+         *         large reads in parallel
+         */
+        public PointSource parallelSource(long seed, long n) {
+            return new GeneratedPoints(this, seed, n, true);
+        }
+
+    }
+
+    /**
+     * Points of a generator read lazily. Reads of whole blocks are filled
+     * directly into the caller's arrays; other reads are served from a
+     * buffer holding a single block.
+     */
+    private static final class GeneratedPoints implements PointSource {
+
+        private final Distribution distribution;
+        private final long seed;
+        private final long count;
+        private final boolean parallel;
+
+        /** Index of the next point to be read */
+        private long pos = 0;
+
+        private final double[] bufferXs = new double[BLOCK_SIZE];
+        private final double[] bufferYs = new double[BLOCK_SIZE];
+
+        /** Range of points held in the buffer */
+        private long bufferStart = 0;
+        private long bufferEnd = 0;
+
+        public GeneratedPoints(PointGenerator generator, long seed,
+                long count, boolean parallel) {
+            checkArgument(count >= 0, "Negative number of points");
+            this.distribution = generator.getDistribution();
+            this.seed = seed;
+            this.count = count;
+            this.parallel = parallel;
+        }
+
+        @Override
+        public int read(double[] xs, double[] ys, int max) {
+            checkArgument(max <= xs.length && max <= ys.length,
+                    "Arrays too short");
+            int n = (int) Math.min(max, count - pos);
+            int done = 0;
+            if (pos < bufferEnd) {
+                done = (int) Math.min(n, bufferEnd - pos);
+                int offset = (int) (pos - bufferStart);
+                System.arraycopy(bufferXs, offset, xs, 0, done);
+                System.arraycopy(bufferYs, offset, ys, 0, done);
+                pos += done;
+            }
+            int whole = (n - done) / BLOCK_SIZE * BLOCK_SIZE;
+            if (pos + (n - done) == count) {
+                // the last, partial block fits entirely
+                whole = n - done;
+            }
+            if (whole > 0) {
+                fillPoints(distribution, seed, xs, ys, pos - done,
+                        pos, pos + whole, parallel ? PoolHolder.POOL : null);
+                pos += whole;
+                done += whole;
+            }
+            if (done < n) {
+                bufferStart = pos;
+                bufferEnd = Math.min(count, pos + BLOCK_SIZE);
+                fillPoints(distribution, seed, bufferXs, bufferYs, pos, pos,
+                        bufferEnd, null);
+                int rest = n - done;
+                System.arraycopy(bufferXs, 0, xs, done, rest);
+                System.arraycopy(bufferYs, 0, ys, done, rest);
+                pos += rest;
+                done += rest;
+            }
+            return done;
+        }
+
+        @Override
+        public long estimateRemaining() {
+            return count - pos;
+        }
+
+    }
+
+    private static void checkRange(long first, double[] xs, double[] ys,
+            int n) {
+        checkArgument(first >= 0 && first % BLOCK_SIZE == 0,
+                "First point not at start of a block");
+        checkArgument(n >= 0, "Negative number of points");
+        checkArgument(xs.length >= n && ys.length >= n, "Arrays too short");
+    }
+
+    private static long blocks(long n) {
+        return (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Samples points {@code first, ..., end - 1}, storing point {@code i} at
+     * index {@code i - base}, on the pool if given and the range is large
+     * enough. {@code first} must be at start of a block.
+     */
+    private static void fillPoints(Distribution distribution, long seed,
+            double[] xs, double[] ys, long base, long first, long end,
+            ForkJoinPool pool) {
+        long from = first / BLOCK_SIZE;
+        long to = blocks(end);
+        long grain = to - from;
+        if (pool != null && pool.getParallelism() > 1) {
+            long perThread = grain / (TASKS_PER_THREAD * pool.getParallelism());
+            grain = Math.max(1, Math.min(BLOCKS_PER_TASK, perThread));
+        }
+        FillTask task = new FillTask(distribution, seed, xs, ys, base, end,
+                from, to, grain);
+        if (to - from <= grain) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    private static final class FillTask extends RecursiveAction {
+
+        private final Distribution distribution;
+        private final long seed;
+        private final double[] xs;
+        private final double[] ys;
+        private final long base;
+        private final long end;
+        private final long from;
+        private final long to;
+        private final long grain;
+
+        public FillTask(Distribution distribution, long seed, double[] xs,
+                double[] ys, long base, long end, long from, long to,
+                long grain) {
+            this.distribution = distribution;
+            this.seed = seed;
+            this.xs = xs;
+            this.ys = ys;
+            this.base = base;
+            this.end = end;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        /** Fills blocks one after another */
+        private void fill() {
+            for (long b = from; b < to; ++ b) {
+                SplitMix64 rand = SplitMix64.split(seed, b);
+                int start = (int) (b * BLOCK_SIZE - base);
+                int stop = (int) (Math.min(end, (b + 1) * BLOCK_SIZE) - base);
+                for (int i = start; i < stop; ++ i) {
+                    distribution.sample(rand, xs, ys, i);
+                }
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                fill();
+            } else {
+                long mid = (from + to) >>> 1;
+                invokeAll(new FillTask(distribution, seed, xs, ys, base, end,
+                        from, mid, grain), new FillTask(distribution, seed, xs,
+                        ys, base, end, mid, to, grain));
+            }
+        }
+    }
+
+    public static PointGenerator of(Distribution distribution) {
+        return new PointGenerator(checkNotNull(distribution));
     }
 
-    public static PointGenerator inRect(final Rect rect) {
-        Source<Vec2d> source = new RandomSource<Vec2d>() {
+    public static PointGenerator inRect(Rect rect) {
+        final double left = rect.left();
+        final double right = rect.right();
+        final double bottom = rect.bottom();
+        final double top = rect.top();
+        return new PointGenerator(new Distribution() {
 
             @Override
-            public Vec2d next() {
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
                 double s = rand.nextDouble();
                 double t = rand.nextDouble();
-
-                double x = lerp(s, rect.left(), rect.right());
-                double y = lerp(t, rect.bottom(), rect.top());
-                return new Vec2d(x, y);
+                xs[i] = lerp(s, left, right);
+                ys[i] = lerp(t, bottom, top);
             }
-        };
-        return new PointGenerator(source);
+        });
     }
 
     public static PointGenerator inSquare(double r) {
@@ -125,44 +487,133 @@ public final class Randomizer {
     }
     
     public static PointGenerator onPoly(final Vec2d... points) {
-        Source<Vec2d> source = new RandomSource<Vec2d>() {
+        checkArgument(points.length > 0, "No points");
+        return new PointGenerator(new Distribution() {
+
             @Override
-            public Vec2d next() {
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
                 double t = rand.nextDouble() * (points.length - 1);
-                return lerpPoly(t, points);
+                // same as lerpPoly, without creating the point
+                int k = (int) t;
+                if (k == points.length - 1) {
+                    xs[i] = points[k].x;
+                    ys[i] = points[k].y;
+                } else {
+                    Vec2d a = points[k];
+                    Vec2d b = points[k + 1];
+                    double u = t - k;
+                    xs[i] = lerp(u, a.x, b.x);
+                    ys[i] = lerp(u, a.y, b.y);
+                }
             }
-        };
-        return new PointGenerator(source);
+        });
     }
 
     public static PointGenerator onCircle(final double r) {
-        Source<Vec2d> source = new RandomSource<Vec2d>() {
+        return new PointGenerator(new Distribution() {
 
             @Override
-            public Vec2d next() {
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
                 double theta = rand.nextDouble() * 2 * Math.PI;
-                double x = r * Math.cos(theta);
-                double y = r * Math.sin(theta);
-                return new Vec2d(x, y);
+                xs[i] = r * Math.cos(theta);
+                ys[i] = r * Math.sin(theta);
             }
-        };
-        return new PointGenerator(source);
+        });
     }
 
     public static PointGenerator onSegment(final Segment seg) {
-        Source<Vec2d> source = new RandomSource<Vec2d>() {
+        return new PointGenerator(new Distribution() {
 
             @Override
-            public Vec2d next() {
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
                 double t = rand.nextDouble();
-                return lerp(t, seg);
+                xs[i] = lerp(t, seg.a.x, seg.b.x);
+                ys[i] = lerp(t, seg.a.y, seg.b.y);
             }
-        };
-        return new PointGenerator(source);
+        });
     }
     
     public static PointGenerator onSegment(Vec2d a, Vec2d b) {
         return onSegment(new Segment(a, b));
     }
 
+    /**
+     * @return Generator of points uniformly distributed in the disk, sampled
+     *         directly rather than by rejection
+     */
+    public static PointGenerator inDisk(final Vec2d center, final double r) {
+        return new PointGenerator(new Distribution() {
+
+            @Override
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
+                double d = r * Math.sqrt(rand.nextDouble());
+                double theta = rand.nextDouble() * 2 * Math.PI;
+                xs[i] = center.x + d * Math.cos(theta);
+                ys[i] = center.y + d * Math.sin(theta);
+            }
+        });
+    }
+
+    public static PointGenerator inDisk(double r) {
+        return inDisk(Vec2d.ZERO, r);
+    }
+
+    public static PointGenerator inTriangle(Vec2d a, Vec2d b, Vec2d c) {
+        return inPolygon(a, b, c);
+    }
+
+    /**
+     * @return Generator of points uniformly distributed inside the simple
+     *         polygon, given by vertices in either orientation
+     */
+    public static PointGenerator inPolygon(Vec2d... vertices) {
+        return new PointGenerator(new PolygonSampler(Arrays.asList(vertices)));
+    }
+
+    public static PointGenerator inPolygon(Polygon polygon) {
+        return new PointGenerator(new PolygonSampler(polygon.vs));
+    }
+
+    /**
+     * @return Generator of points normally distributed around the center,
+     *         with standard deviation {@code sigma} in each direction
+     */
+    public static PointGenerator gaussian(Vec2d center, double sigma) {
+        return gaussianClusters(sigma, center);
+    }
+
+    /**
+     * @return Generator of points normally distributed around centers chosen
+     *         uniformly from the given ones
+     */
+    public static PointGenerator gaussianClusters(final double sigma,
+            Vec2d... centers) {
+        checkArgument(centers.length > 0, "No centers");
+        final Vec2d[] cs = centers.clone();
+        return new PointGenerator(new Distribution() {
+
+            @Override
+            public void sample(SplitMix64 rand, double[] xs, double[] ys,
+                    int i) {
+                Vec2d c = cs[rand.nextInt(cs.length)];
+                xs[i] = c.x + sigma * rand.nextGaussian();
+                ys[i] = c.y + sigma * rand.nextGaussian();
+            }
+        });
+    }
+
+    /**
+     * @return Coordinates of Poisson-disk sample of the rectangle, as array
+     *         of x's and array of y's
+     * @see PoissonDisk
+     */
+    public static double[][] poissonDisk(Rect bounds, double minDist,
+            long seed) {
+        return PoissonDisk.sample(bounds, minDist, seed);
+    }
+
 }
@@ -0,0 +1,143 @@
+package mlos.sgl.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fast, seedable and splittable pseudorandom generator, using the SplitMix64
+ * algorithm of {@code java.util.SplittableRandom}. Unlike
+ * {@link java.util.Random}, it has no synchronization; each thread is meant
+ * to use its own instance, obtained by {@link #split() splitting}.
+ *
+ * Independent generators can also be obtained directly by index with
+ * {@link #split(long, long)}, so that work can be divided into blocks whose
+ * random numbers do not depend on the order or thread in which the blocks are
+ * processed.
+ */
+public final class SplitMix64 {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    /** Seeds of generators created without an explicit seed */
+    private static final AtomicLong DEFAULT_SEED = new AtomicLong(
+            mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+
+    private long seed;
+
+    private final long gamma;
+
+    private double nextGaussian;
+
+    private boolean haveNextGaussian = false;
+
+    private SplitMix64(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Creates a generator with seed likely different from any other.
+     */
+    public SplitMix64() {
+        this(mix64(DEFAULT_SEED.getAndAdd(2 * GOLDEN_GAMMA)), GOLDEN_GAMMA);
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Odd gamma with enough bit transitions, as in SplittableRandom */
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return n < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+
+    /**
+     * @return Generator that is the {@code index}-th one split off
+     *         {@code new SplitMix64(seed)}, without creating the preceding
+     *         ones
+     */
+    public static SplitMix64 split(long seed, long index) {
+        long s = seed + (2 * index + 1) * GOLDEN_GAMMA;
+        return new SplitMix64(mix64(s), mixGamma(s + GOLDEN_GAMMA));
+    }
+
+    /**
+     * @return New generator, statistically independent of this one
+     */
+    public SplitMix64 split() {
+        long s = nextLong();
+        return new SplitMix64(s, mixGamma(nextSeed()));
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public int nextInt() {
+        return (int) (mix64(nextSeed()) >>> 32);
+    }
+
+    /**
+     * @return Uniformly distributed integer in [0, bound)
+     */
+    public int nextInt(int bound) {
+        checkArgument(bound > 0, "Non-positive bound");
+        // multiply-shift with rejection of the biased low range
+        long m = (nextLong() >>> 32) * bound;
+        long low = m & 0xffffffffL;
+        if (low < bound) {
+            long threshold = ((1L << 32) - bound) % bound;
+            while (low < threshold) {
+                m = (nextLong() >>> 32) * bound;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * @return Uniformly distributed double in [0, 1)
+     */
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * @return Normally distributed double with mean 0 and standard deviation
+     *         1, generated by the polar method in pairs
+     */
+    public double nextGaussian() {
+        if (haveNextGaussian) {
+            haveNextGaussian = false;
+            return nextGaussian;
+        }
+        double u, v, s;
+        do {
+            u = 2 * nextDouble() - 1;
+            v = 2 * nextDouble() - 1;
+            s = u * u + v * v;
+        } while (s >= 1 || s == 0);
+        double m = Math.sqrt(-2 * Math.log(s) / s);
+        nextGaussian = v * m;
+        haveNextGaussian = true;
+        return u * m;
+    }
+
+}
@@ -0,0 +1,25 @@
+package mlos.sgl.view;
+
+import java.awt.Shape;
+
+import mlos.sgl.core.Transform;
+
+/**
+ * Painter of a simple shape in a single style, which can be painted together
+ * with shapes of other objects of the same style and depth, setting the
+ * graphics state once for all of them. Interiors of all the shapes of a batch
+ * are filled first, and then all their outlines are drawn.
+ */
+public interface BatchPainter extends ObjectPainter {
+
+    /**
+     * @return Current style of the shape
+     */
+    Style style();
+
+    /**
+     * @return Shape in screen coordinates
+     */
+    Shape screenShape(Transform toScreen);
+
+}
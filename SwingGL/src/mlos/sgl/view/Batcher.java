@@ -0,0 +1,240 @@
+package mlos.sgl.view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+import mlos.sgl.core.Transform;
+
+/**
+ * Paints objects in order, sorting the graphics state changes: runs of
+ * consecutive {@link BatchPainter}s with the same style and depth are painted
+ * by setting the color and stroke once, filling all their interiors and then
+ * drawing all their outlines. Runs consist of objects adjacent in the given
+ * order, so the painting order is kept, except that outlines of a run are
+ * drawn over all its interiors. Objects of the same depth are ordered by
+ * {@link ZSortedPainters} by identity hash code and then by insertion, so
+ * overlapping shapes of a run may look different than without batching.
+ *
+ * Shapes are filled and drawn one by one rather than merged into a single
+ * path, as Java2D rasterizes a path over its whole bounding box and strokes it
+ * as a single outline, which is much slower for scattered shapes.
+ *
+ * Points are painted with their {@link PointSprite}s, in exact order. Long
+ * runs of points are stamped directly into the pixels of an image covering
+ * the clip area, which is then drawn at once.
+ */
+final class Batcher {
+
+    /** Largest number of shapes painted as a single batch */
+    private static final int MAX_BATCH = 1 << 10;
+
+    /** Smallest number of consecutive points stamped into an image */
+    private static final int MIN_STAMPED = 1 << 8;
+
+    private final Transform toScreen;
+
+    private final Graphics2D ctx;
+
+    private final Shape[] shapes = new Shape[MAX_BATCH];
+
+    private Style style;
+
+    private double z;
+
+    private int count = 0;
+
+    /** Whether points can be painted with sprites */
+    private final boolean sprites;
+
+    private final boolean antialiasing;
+
+    /** Area covered by the stamped image, or {@code null} if unknown */
+    private final Rectangle clip;
+
+    private final PointSprite[] pointSprites = new PointSprite[MIN_STAMPED];
+    private final int[] pointXs = new int[MIN_STAMPED];
+    private final int[] pointYs = new int[MIN_STAMPED];
+    private int pointCount = 0;
+
+    /** Whether points are being stamped rather than kept as pending */
+    private boolean stamping = false;
+
+    private final Buffer buffer;
+
+    /** Pixels of the buffer, once points are stamped */
+    private int[] stampedPixels;
+    private int stride;
+
+    /** Part of the stamped image covered by sprites */
+    private int minX, minY, maxX, maxY;
+
+    /**
+     * Image points are stamped into, kept transparent and reused between
+     * paints by the owner of batchers. It may be used by one batcher at a
+     * time.
+     */
+    static final class Buffer {
+
+        private BufferedImage image;
+        private int[] pixels;
+
+        /**
+         * Grows the image to cover the area, if needed.
+         */
+        void ensure(int w, int h) {
+            if (image == null || image.getWidth() < w
+                    || image.getHeight() < h) {
+                int iw = image == null ? w : Math.max(w, image.getWidth());
+                int ih = image == null ? h : Math.max(h, image.getHeight());
+                image = new BufferedImage(iw, ih,
+                        BufferedImage.TYPE_INT_ARGB_PRE);
+                pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+                        .getData();
+            }
+        }
+    }
+
+    public Batcher(Transform toScreen, Graphics2D ctx, Buffer buffer) {
+        this.toScreen = toScreen;
+        this.ctx = ctx;
+        this.buffer = buffer;
+        this.sprites = PointSprite.isPixelAligned(ctx);
+        this.antialiasing = PointSprite.isAntialiased(ctx);
+        this.clip = ctx.getClipBounds();
+        clearStamped();
+    }
+
+    public void paint(ObjectPainter painter) {
+        if (sprites && painter instanceof PointPainter) {
+            PointPainter point = (PointPainter) painter;
+            PointSprite sprite = point.sprite(antialiasing);
+            if (sprite != null) {
+                flushShapes();
+                paintPoint(sprite, point.left(toScreen), point.top(toScreen));
+                return;
+            }
+        }
+        flushPoints();
+        if (!(painter instanceof BatchPainter)) {
+            flushShapes();
+            painter.paint(toScreen, ctx);
+            return;
+        }
+        BatchPainter batched = (BatchPainter) painter;
+        Style s = batched.style();
+        double pz = painter.getObject().getZ();
+        if (s != style || pz != z || count == MAX_BATCH) {
+            flushShapes();
+            style = s;
+            z = pz;
+        }
+        shapes[count++] = batched.screenShape(toScreen);
+    }
+
+    private void paintPoint(PointSprite sprite, int left, int top) {
+        if (stamping) {
+            stamp(sprite, left, top);
+        } else if (pointCount < MIN_STAMPED) {
+            pointSprites[pointCount] = sprite;
+            pointXs[pointCount] = left;
+            pointYs[pointCount] = top;
+            ++ pointCount;
+        } else if (clip != null && !clip.isEmpty()) {
+            stamping = true;
+            for (int i = 0; i < pointCount; ++ i) {
+                stamp(pointSprites[i], pointXs[i], pointYs[i]);
+            }
+            clearPoints();
+            stamp(sprite, left, top);
+        } else {
+            flushPoints();
+            paintPoint(sprite, left, top);
+        }
+    }
+
+    private void stamp(PointSprite sprite, int left, int top) {
+        if (stampedPixels == null) {
+            buffer.ensure(clip.width, clip.height);
+            stampedPixels = buffer.pixels;
+            stride = buffer.image.getWidth();
+        }
+        int x = left - clip.x;
+        int y = top - clip.y;
+        sprite.stamp(stampedPixels, stride, clip.width, clip.height, x, y);
+
+        int pad = sprite.getPad();
+        int dim = sprite.getImage().getWidth();
+        minX = Math.min(minX, x - pad);
+        minY = Math.min(minY, y - pad);
+        maxX = Math.max(maxX, x - pad + dim);
+        maxY = Math.max(maxY, y - pad + dim);
+    }
+
+    private void clearStamped() {
+        stamping = false;
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+    }
+
+    private void clearPoints() {
+        Arrays.fill(pointSprites, 0, pointCount, null);
+        pointCount = 0;
+    }
+
+    /**
+     * Paints the pending objects.
+     */
+    public void flush() {
+        flushPoints();
+        flushShapes();
+    }
+
+    private void flushPoints() {
+        if (stamping) {
+            int x0 = Math.max(0, minX);
+            int y0 = Math.max(0, minY);
+            int x1 = Math.min(clip.width, maxX);
+            int y1 = Math.min(clip.height, maxY);
+            if (x0 < x1 && y0 < y1) {
+                ctx.drawImage(buffer.image, clip.x + x0, clip.y + y0,
+                        clip.x + x1, clip.y + y1, x0, y0, x1, y1, null);
+                for (int y = y0; y < y1; ++ y) {
+                    int row = y * stride;
+                    Arrays.fill(stampedPixels, row + x0, row + x1, 0);
+                }
+            }
+            clearStamped();
+        }
+        for (int i = 0; i < pointCount; ++ i) {
+            pointSprites[i].draw(ctx, pointXs[i], pointYs[i]);
+        }
+        clearPoints();
+    }
+
+    private void flushShapes() {
+        if (count == 0) {
+            return;
+        }
+        if (style.getFill() != null) {
+            ctx.setColor(style.getFill());
+            for (int i = 0; i < count; ++ i) {
+                ctx.fill(shapes[i]);
+            }
+        }
+        if (style.getLine() != null) {
+            ctx.setColor(style.getLine());
+            ctx.setStroke(style.getStroke());
+            for (int i = 0; i < count; ++ i) {
+                ctx.draw(shapes[i]);
+            }
+        }
+        Arrays.fill(shapes, 0, count, null);
+        style = null;
+        count = 0;
+    }
+
+}
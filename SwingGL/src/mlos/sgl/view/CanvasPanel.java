@@ -5,6 +5,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 
@@ -22,6 +23,8 @@ public class CanvasPanel extends JPanel {
     /** Painter drawing content */
     private Painter painter;
 
+    private final RepaintScheduler scheduler = new RepaintScheduler(this);
+
     /**
      * Creates new canvas panel.
      */
@@ -58,10 +61,29 @@ public class CanvasPanel extends JPanel {
     }
 
     /**
-     * Causes canvas repaint.
+     * Causes canvas repaint. Repaints are coalesced and limited to
+     * {@link #getMaxFps()} per second.
      */
     public void refresh() {
-        repaint();
+        scheduler.repaint();
+    }
+
+    /**
+     * Causes repaint of the part of the canvas.
+     * 
+     * @param region
+     *            Dirty region, in screen coordinates
+     */
+    public void refresh(Rectangle region) {
+        scheduler.repaint(region);
+    }
+
+    public int getMaxFps() {
+        return scheduler.getMaxFps();
+    }
+
+    public void setMaxFps(int maxFps) {
+        scheduler.setMaxFps(maxFps);
     }
 
     private void recomputeTransform() {
@@ -1,40 +1,103 @@
 package mlos.sgl.view;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static mlos.sgl.core.Geometry.neg;
 
+import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import mlos.sgl.canvas.CanvasObject;
-import mlos.sgl.canvas.ObjectZComparator;
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.core.QuadTree;
 import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Transforms;
+import mlos.sgl.core.Vec2d;
 
-public class CanvasView implements Painter {
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 
-    private static class ZComparator implements Comparator<ObjectPainter> {
+public class CanvasView implements Painter {
 
-        @Override
-        public int compare(ObjectPainter a, ObjectPainter b) {
-            CanvasObject aa = a.getObject();
-            CanvasObject bb = b.getObject();
-            return ObjectZComparator.INSTANCE.compare(aa, bb);
+    /** Painters kept in the painting order */
+    private final ZSortedPainters objects = new ZSortedPainters();
+    
+    /** Painters of hovered and selected objects, drawn over the layer */
+    private final ZSortedPainters highlighted = new ZSortedPainters();
+    
+    /** Painters highlighting parts of their objects, in the layer */
+    private final ZSortedPainters overlays = new ZSortedPainters();
+    
+    /** Painters indexed by the bounds of their objects, for culling */
+    private final QuadTree<ObjectPainter> index = new QuadTree<>();
+    
+    /** Largest screen margin of the painters */
+    private double maxMargin = 0;
+    
+    /** Screen area covered by an object, in terms of {@link ObjectPainter} */
+    private static final class Extent {
+        
+        final Rect bounds;
+        final double margin;
+        final double z;
+        
+        /** Highlighted parts and layer version of an {@link OverlayPainter} */
+        final Rect overlay;
+        final int layerVersion;
+        
+        Extent(ObjectPainter painter) {
+            this.bounds = painter.bounds();
+            this.margin = painter.screenMargin();
+            this.z = painter.getObject().getZ();
+            if (painter instanceof OverlayPainter) {
+                OverlayPainter p = (OverlayPainter) painter;
+                this.overlay = p.overlayBounds();
+                this.layerVersion = p.getLayerVersion();
+            } else {
+                this.overlay = null;
+                this.layerVersion = 0;
+            }
         }
         
-    };
-
-    private static final ZComparator COMPARATOR = new ZComparator();
-
-    private final Collection<ObjectPainter> objects = new HashSet<>();
+        /**
+         * @return {@code true} if the object painted into the layer is the
+         *         same in both extents, and only the overlay may differ
+         */
+        boolean sameLayer(Extent other) {
+            return other != null && same(bounds, other.bounds) 
+                    && margin == other.margin && z == other.z 
+                    && layerVersion == other.layerVersion;
+        }
+        
+        private static boolean same(Rect a, Rect b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.left() == b.left() && a.bottom() == b.bottom()
+                    && a.right() == b.right() && a.top() == b.top();
+        }
+    }
+    
+    /** 
+     * Extents of objects as of the last add/update, needed to repaint the area
+     * an object has left 
+     */
+    private final Map<ObjectPainter, Extent> extents = new HashMap<>();
+    
+    /** Extra pixels repainted around dirty regions, covering antialiasing */
+    private static final int DIRTY_SLACK = 2;
 
     private final CanvasPanel panel;
     
@@ -43,14 +106,64 @@ public class CanvasView implements Painter {
 
     private Transform planeToNorm = new Transform();
     
+    /** Whether dense point clouds are painted as density splats */
+    private boolean levelOfDetail = false;
+    
+    /** Image batchers stamp points into, reused between paints */
+    private final Batcher.Buffer stamps = new Batcher.Buffer();
+    
+    /** Accumulator of splats, reused between paints */
+    private DensitySplats splats = 
+            new DensitySplats(DensitySplats.DEFAULT_THRESHOLD);
+    
+    /** Whether shapes are antialiased */
+    private boolean antialiasing = true;
+    
+    /** Whether runs of objects of the same style are painted as one path */
+    private boolean batching = true;
+    
+    /** Renderer painting objects on multiple threads, or {@code null} */
+    private TileRenderer tileRenderer;
+    
+    /** Smallest number of objects painted by the tile renderer */
+    private static final int MIN_TILED_OBJECTS = 256;
+    
+    /** Whether objects are painted from the cached layer */
+    private boolean layerCaching = true;
+    
+    /** 
+     * Objects other than hovered and selected ones, as painted with 
+     * {@link #layerToScreen} 
+     */
+    private BufferedImage layer;
+    
+    /** Transform from the plane to the screen, as of the last paint */
+    private Transform layerToScreen;
+    
+    private static final Vec2d UNIT_X = new Vec2d(1, 0);
+    
+    private static final Vec2d UNIT_Y = new Vec2d(0, 1);
+    
+    /** Part of the layer to be painted again, or {@code null} if none */
+    private Rectangle layerDirty;
+    
+    /** Whether extents are to be recomputed before the next paint */
+    private boolean extentsStale;
+    
     public CanvasView(CanvasPanel panel) {
         this.panel = checkNotNull(panel);
         panel.setPainter(this);
     }
     
+    /**
+     * Sets the transform from the plane to normalized coordinates. If it
+     * differs from the current one only by translation by whole pixels, the
+     * cached layer is scrolled, and only the uncovered strips are painted
+     * again.
+     */
     public synchronized void setTransform(Transform transform) {
         this.planeToNorm = transform;
-        refresh();
+        panel.refresh();
     }
     
     public void setViewport(Rect rect) {
@@ -81,15 +194,125 @@ public class CanvasView implements Painter {
         setTransform(Transforms.compose(t, planeToNorm));
     }
     
+    /**
+     * @return Transform from the plane to the screen, with translation
+     *         rounded to whole pixels, so that panning moves objects by whole
+     *         pixels and the cached layer can be scrolled without seams
+     */
     public Transform planeToScreen() {
         Transform normToScreen = panel.normToScreen();
-        return Transforms.compose(planeToNorm, normToScreen);
+        Transform t = Transforms.compose(planeToNorm, normToScreen);
+        double tx = t.applyX(0, 0);
+        double ty = t.applyY(0, 0);
+        if (Double.isInfinite(tx) || Double.isInfinite(ty)) {
+            return t;
+        }
+        // adding the shift gives exactly the rounded translation
+        return new Transform.Builder(t)
+            .t(Math.rint(tx) - tx, Math.rint(ty) - ty)
+            .create();
+    }
+    
+    /**
+     * Causes repaint of the whole view, including objects in the cached layer.
+     * Extents of all the objects are recomputed before the next paint, so
+     * objects changed without {@link #update(ObjectPainter)} are painted in
+     * their new places.
+     */
+    public synchronized void refresh() {
+        extentsStale = true;
+        repaintAll();
     }
     
-    public void refresh() {
+    private void repaintAll() {
+        invalidateLayer();
         panel.refresh();
     }
     
+    /**
+     * Causes repaint of the painters and objects drawn over the cached layer,
+     * without painting the other objects again. Suitable for changes of
+     * painters only, such as cursor tracking or rubber-band selection.
+     */
+    public void refreshOverlay() {
+        panel.refresh();
+    }
+    
+    private void invalidateLayer() {
+        layerDirty = new Rectangle(0, 0, panel.getWidth(), panel.getHeight());
+    }
+    
+    private void invalidateLayer(Rectangle region) {
+        if (layerDirty == null) {
+            layerDirty = new Rectangle(region);
+        } else {
+            layerDirty.add(region);
+        }
+    }
+    
+    /**
+     * Causes repaint of the screen area covered by the plane rectangle.
+     * 
+     * @param bounds
+     *            Dirty area in plane coordinates, or {@code null} if unknown
+     * @param margin
+     *            Extent of the dirty area beyond {@code bounds}, in pixels
+     */
+    public void refresh(Rect bounds, double margin) {
+        Rectangle region = screenRegion(bounds, margin);
+        synchronized (this) {
+            if (region == null) {
+                repaintAll();
+                return;
+            }
+            invalidateLayer(region);
+        }
+        panel.refresh(region);
+    }
+    
+    /**
+     * Causes repaint of the screen area covered by the plane rectangle, 
+     * without painting the objects in the cached layer again.
+     * 
+     * @see #refresh(Rect, double)
+     */
+    public void refreshOverlay(Rect bounds, double margin) {
+        Rectangle region = screenRegion(bounds, margin);
+        if (region == null) {
+            panel.refresh();
+        } else {
+            panel.refresh(region);
+        }
+    }
+    
+    /**
+     * @return Screen area covered by the plane rectangle, or {@code null} if
+     *         it cannot be determined
+     */
+    private Rectangle screenRegion(Rect bounds, double margin) {
+        if (bounds == null || !bounds.isFinite() || panel.normToScreen() == null) {
+            return null;
+        }
+        Rect r = Transforms.applyBounds(planeToScreen(), bounds);
+        if (!r.isFinite()) {
+            return null;
+        }
+        double m = margin + DIRTY_SLACK;
+        int left = (int) Math.floor(r.left() - m);
+        int top = (int) Math.floor(r.bottom() - m);
+        int right = (int) Math.ceil(r.right() + m);
+        int bottom = (int) Math.ceil(r.top() + m);
+        return new Rectangle(left, top, right - left, bottom - top);
+    }
+    
+    private void refresh(Extent extent) {
+        if (extent != null) {
+            refresh(extent.bounds, extent.margin);
+        } else {
+            repaintAll();
+        }
+    }
+    
     public void addPrePainter(Painter painter) {
         prePainters.add(checkNotNull(painter));
     }
@@ -106,18 +329,202 @@ public class CanvasView implements Painter {
         postPainters.remove(painter);
     }
 
+    public synchronized boolean isLevelOfDetail() {
+        return levelOfDetail;
+    }
+    
+    /**
+     * Enables or disables level-of-detail rendering: points falling into
+     * pixels holding many points of the same depth are merged into density
+     * splats, painted beneath the other objects of that depth. Disabled by
+     * default, as it changes the look of dense areas.
+     */
+    public synchronized void setLevelOfDetail(boolean levelOfDetail) {
+        this.levelOfDetail = levelOfDetail;
+        repaintAll();
+    }
+    
+    public synchronized int getSplatThreshold() {
+        return splats.getThreshold();
+    }
+    
+    public synchronized void setSplatThreshold(int splatThreshold) {
+        checkArgument(splatThreshold > 0, "Threshold must be positive");
+        this.splats = new DensitySplats(splatThreshold);
+        repaintAll();
+    }
+    
+    public synchronized boolean isAntialiasing() {
+        return antialiasing;
+    }
+    
+    public synchronized void setAntialiasing(boolean antialiasing) {
+        this.antialiasing = antialiasing;
+        repaintAll();
+    }
+    
+    public synchronized boolean isBatching() {
+        return batching;
+    }
+    
+    /**
+     * Enables or disables batching: consecutive objects of the same depth and
+     * style, like segments of the same color and width, are then painted
+     * together, setting the color and stroke once, and long runs of points
+     * are stamped into a single image. Outlines of a batch are drawn over all
+     * its interiors, so overlapping shapes of the same depth may look
+     * slightly different than without batching.
+     */
+    public synchronized void setBatching(boolean batching) {
+        this.batching = batching;
+        repaintAll();
+    }
+    
+    public synchronized TileRenderer getTileRenderer() {
+        return tileRenderer;
+    }
+    
+    /**
+     * Sets renderer used to paint large numbers of objects on multiple
+     * threads, or {@code null} to paint them all on the calling thread. All
+     * the object painters must then support painting from other threads.
+     */
+    public synchronized void setTileRenderer(TileRenderer tileRenderer) {
+        this.tileRenderer = tileRenderer;
+        repaintAll();
+    }
+    
+    public synchronized boolean isLayerCaching() {
+        return layerCaching;
+    }
+    
+    /**
+     * Enables or disables caching of objects in an offscreen image. When
+     * enabled, objects other than hovered and selected ones are painted into
+     * the image, which is painted again only where objects change, and
+     * entirely when the transform or size of the view changes. Each repaint
+     * then only copies the image and draws painters and highlighted objects
+     * over it, so the cost of repaints caused by painters does not depend on
+     * the number of objects. Highlighted objects are drawn above all the
+     * others.
+     */
+    public synchronized void setLayerCaching(boolean layerCaching) {
+        this.layerCaching = layerCaching;
+        if (!layerCaching) {
+            layer = null;
+        }
+        repaintAll();
+    }
+
     public synchronized boolean add(ObjectPainter painter) {
-        return objects.add(painter);
+        boolean added = objects.add(painter);
+        if (added) {
+            updateHighlight(painter);
+            if (painter instanceof OverlayPainter) {
+                overlays.add(painter);
+            }
+            Extent extent = new Extent(painter);
+            extents.put(painter, extent);
+            reindex(painter, extent);
+            refresh(extent);
+        }
+        return added;
+    }
+    
+    /**
+     * Adds painters in bulk, refreshing the view once.
+     */
+    public synchronized void addAll(Collection<? extends ObjectPainter> painters) {
+        objects.addAll(painters);
+        for (ObjectPainter painter : painters) {
+            Extent extent = new Extent(painter);
+            extents.put(painter, extent);
+            maxMargin = Math.max(maxMargin, extent.margin);
+            updateHighlight(painter);
+            if (painter instanceof OverlayPainter) {
+                overlays.add(painter);
+            }
+        }
+        index.putAll(painters, new Function<ObjectPainter, Rect>() {
+            @Override
+            public Rect apply(ObjectPainter painter) {
+                return extents.get(painter).bounds;
+            }
+        });
+        repaintAll();
     }
     
     public synchronized boolean remove(ObjectPainter painter) {
-        return objects.remove(painter);
+        boolean removed = objects.remove(painter);
+        if (removed) {
+            highlighted.remove(painter);
+            overlays.remove(painter);
+            index.remove(painter);
+            refresh(extents.remove(painter));
+        }
+        return removed;
+    }
+    
+    /**
+     * Restores the painting order after the painted object has changed, and
+     * repaints the areas it covered before and after the change. If only the
+     * overlay of an {@link OverlayPainter} has changed, just its areas are
+     * repainted, keeping the layer.
+     */
+    public synchronized void update(ObjectPainter painter) {
+        if (objects.contains(painter)) {
+            Extent extent = new Extent(painter);
+            Extent old = extents.put(painter, extent);
+            if (painter instanceof OverlayPainter && extent.sameLayer(old)) {
+                refreshOverlay(old.overlay, old.margin);
+                refreshOverlay(extent.overlay, extent.margin);
+                return;
+            }
+            objects.update(painter);
+            overlays.update(painter);
+            updateHighlight(painter);
+            reindex(painter, extent);
+            refresh(old);
+            refresh(extent);
+        }
+    }
+
+    /**
+     * Recomputes extents of all the objects, updating the painting order and
+     * the index of the ones that have changed.
+     */
+    private void updateExtents() {
+        for (ObjectPainter painter : Lists.newArrayList(objects)) {
+            Extent extent = new Extent(painter);
+            if (!extent.sameLayer(extents.put(painter, extent))) {
+                objects.update(painter);
+                overlays.update(painter);
+                reindex(painter, extent);
+            }
+            updateHighlight(painter);
+        }
+        extentsStale = false;
+    }
+
+    private void reindex(ObjectPainter painter, Extent extent) {
+        index.put(painter, extent.bounds);
+        maxMargin = Math.max(maxMargin, extent.margin);
+    }
+
+    private void updateHighlight(ObjectPainter painter) {
+        if (!isHighlighted(painter)) {
+            highlighted.remove(painter);
+        } else if (!highlighted.add(painter)) {
+            highlighted.update(painter);
+        }
     }
 
     @Override
     public synchronized void paint(Transform toScreen, Graphics2D ctx) {
-        ctx.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);
+        ctx.setRenderingHint(RenderingHints.KEY_ANTIALIASING, antialiasing());
+        if (extentsStale) {
+            updateExtents();
+        }
 
         Transform t = planeToScreen();
     
@@ -125,11 +532,16 @@ public class CanvasView implements Painter {
             p.paint(t, ctx);
         }
         
-        final List<ObjectPainter> zsorted = new ArrayList<>(objects);
-        Collections.sort(zsorted, COMPARATOR);
-        
-        for (ObjectPainter object : zsorted) {
-            object.paint(t, ctx);
+        if (layerCaching && prepareLayer(t)) {
+            ctx.drawImage(layer, 0, 0, null);
+            for (ObjectPainter object : highlighted) {
+                object.paint(t, ctx);
+            }
+        } else {
+            paintObjects(visibleObjects(t, screenArea(ctx)), t, ctx);
+        }
+        for (ObjectPainter object : overlays) {
+            ((OverlayPainter) object).paintOverlay(t, ctx);
         }
         
         for (Painter p : postPainters) {
@@ -138,5 +550,329 @@ public class CanvasView implements Painter {
         
     }
     
+    private Object antialiasing() {
+        return antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON 
+                : RenderingHints.VALUE_ANTIALIAS_OFF;
+    }
+    
+    private void paintObjects(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx) {
+        if (levelOfDetail) {
+            paintWithSplats(zsorted, t, ctx);
+        } else {
+            paintAll(zsorted, t, ctx);
+        }
+    }
+    
+    /**
+     * Paints the objects in order, using the tile renderer if there are
+     * enough of them.
+     */
+    private void paintAll(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx) {
+        if (tileRenderer != null && zsorted.size() >= MIN_TILED_OBJECTS) {
+            Rectangle area = ctx.getClipBounds();
+            if (area == null) {
+                area = new Rectangle(0, 0, panel.getWidth(), panel.getHeight());
+            }
+            tileRenderer.paint(zsorted, t, ctx, area, batching);
+        } else if (batching) {
+            Batcher batcher = new Batcher(t, ctx, stamps);
+            for (ObjectPainter object : zsorted) {
+                batcher.paint(object);
+            }
+            batcher.flush();
+        } else {
+            for (ObjectPainter object : zsorted) {
+                object.paint(t, ctx);
+            }
+        }
+    }
+    
+    private static boolean isHighlighted(ObjectPainter object) {
+        if (object instanceof OverlayPainter) {
+            return false;
+        }
+        CanvasObject o = object.getObject();
+        return o.isHover() || o.isSelected();
+    }
+    
+    /**
+     * Makes the cached layer up to date, painting its dirty part again.
+     * 
+     * @return {@code false} if the layer cannot be created
+     */
+    private boolean prepareLayer(Transform t) {
+        int w = panel.getWidth();
+        int h = panel.getHeight();
+        if (w <= 0 || h <= 0) {
+            return false;
+        }
+        if (layer == null || layer.getWidth() != w || layer.getHeight() != h) {
+            GraphicsConfiguration gc = panel.getGraphicsConfiguration();
+            layer = gc != null 
+                    ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+            invalidateLayer();
+        } else if (!scrollLayer(t)) {
+            invalidateLayer();
+        }
+        layerToScreen = t;
+        
+        if (layerDirty != null) {
+            paintLayer(layerDirty, t);
+            layerDirty = null;
+        }
+        return true;
+    }
+    
+    /**
+     * Paints again the part of the layer, in screen coordinates.
+     */
+    private void paintLayer(Rectangle region, Transform t) {
+        Rectangle dirty = region.intersection(
+                new Rectangle(0, 0, layer.getWidth(), layer.getHeight()));
+        if (dirty.isEmpty()) {
+            return;
+        }
+        Graphics2D g = layer.createGraphics();
+        try {
+            g.setClip(dirty);
+            g.setComposite(AlphaComposite.Clear);
+            g.fill(dirty);
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, 
+                    antialiasing());
+            
+            Rect area = Rect.lbSize(dirty.x, dirty.y, dirty.width, 
+                    dirty.height);
+            List<ObjectPainter> zsorted = new ArrayList<>();
+            for (ObjectPainter object : visibleObjects(t, area)) {
+                if (!isHighlighted(object)) {
+                    zsorted.add(object);
+                }
+            }
+            paintObjects(zsorted, t, g);
+        } finally {
+            g.dispose();
+        }
+    }
+    
+    /**
+     * Moves pixels of the layer painted with {@link #layerToScreen} to their
+     * places under the new transform, and paints the uncovered strips.
+     * 
+     * @return {@code false} if the transforms differ by more than 
+     *         translation by whole pixels
+     */
+    private boolean scrollLayer(Transform t) {
+        Transform old = layerToScreen;
+        if (old == null || !sameLinearPart(old, t)) {
+            return false;
+        }
+        double dx = t.applyX(0, 0) - old.applyX(0, 0);
+        double dy = t.applyY(0, 0) - old.applyY(0, 0);
+        if (dx != Math.rint(dx) || dy != Math.rint(dy)) {
+            return false;
+        }
+        long ix = (long) dx;
+        long iy = (long) dy;
+        int w = layer.getWidth();
+        int h = layer.getHeight();
+        if (Math.abs(ix) >= w || Math.abs(iy) >= h) {
+            return false;
+        }
+        if (ix == 0 && iy == 0) {
+            return true;
+        }
+        int sx = (int) ix;
+        int sy = (int) iy;
+        Graphics2D g = layer.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.copyArea(Math.max(0, -sx), Math.max(0, -sy), w - Math.abs(sx), 
+                    h - Math.abs(sy), sx, sy);
+        } finally {
+            g.dispose();
+        }
+        if (layerDirty != null) {
+            // parts dirty before the move may be given in either position
+            Rectangle moved = new Rectangle(layerDirty);
+            moved.translate(sx, sy);
+            layerDirty.add(moved);
+        }
+        // painted separately, as their union covers the whole layer
+        if (sx != 0) {
+            int x = sx > 0 ? 0 : w + sx;
+            paintLayer(new Rectangle(x, 0, Math.abs(sx), h), t);
+        }
+        if (sy != 0) {
+            int y = sy > 0 ? 0 : h + sy;
+            paintLayer(new Rectangle(0, y, w, Math.abs(sy)), t);
+        }
+        return true;
+    }
+    
+    private static boolean sameLinearPart(Transform a, Transform b) {
+        Vec2d ax = a.applyToDir(UNIT_X);
+        Vec2d ay = a.applyToDir(UNIT_Y);
+        Vec2d bx = b.applyToDir(UNIT_X);
+        Vec2d by = b.applyToDir(UNIT_Y);
+        return ax.equals(bx) && ay.equals(by);
+    }
+    
+    /**
+     * @return Part of the panel being repainted
+     */
+    private Rect screenArea(Graphics2D ctx) {
+        Rectangle clip = ctx.getClipBounds();
+        if (clip != null) {
+            return Rect.lbSize(clip.x, clip.y, clip.width, clip.height);
+        } else {
+            return Rect.bounds(0, 0, panel.getWidth(), panel.getHeight());
+        }
+    }
+    
+    /**
+     * Culls the objects whose bounds, enlarged by their screen margin, do not
+     * intersect the repainted part of the plane. Candidates are looked up in
+     * the spatial index; painting order is preserved.
+     */
+    private List<ObjectPainter> visibleObjects(Transform planeToScreen, 
+            Rect screen) {
+        Rect window;
+        double pixel;
+        try {
+            window = Transforms.invertBounds(planeToScreen, screen);
+            
+            // upper bound on the plane length of a unit screen vector
+            double ox = planeToScreen.invertX(0, 0);
+            double oy = planeToScreen.invertY(0, 0);
+            double dx = Math.hypot(planeToScreen.invertX(1, 0) - ox, 
+                    planeToScreen.invertY(1, 0) - oy);
+            double dy = Math.hypot(planeToScreen.invertX(0, 1) - ox, 
+                    planeToScreen.invertY(0, 1) - oy);
+            pixel = Math.hypot(dx, dy);
+        } catch (ArithmeticException e) {
+            return Lists.newArrayList(objects);
+        }
+        
+        double m = maxMargin * pixel;
+        Rect query = Rect.bounds(window.left() - m, window.bottom() - m,
+                window.right() + m, window.top() + m);
+        List<ObjectPainter> candidates = new ArrayList<>();
+        if (query.isFinite()) {
+            index.query(query, candidates);
+        }
+        
+        List<ObjectPainter> visible = new ArrayList<>();
+        if (!query.isFinite() || candidates.size() > objects.size() / 2) {
+            // most objects are visible, a scan in order beats sorting them
+            for (ObjectPainter object : objects) {
+                if (isVisible(object, pixel, window)) {
+                    visible.add(object);
+                }
+            }
+        } else {
+            for (ObjectPainter object : candidates) {
+                if (isVisible(object, pixel, window)) {
+                    visible.add(object);
+                }
+            }
+            objects.sort(visible);
+        }
+        return visible;
+    }
+    
+    private boolean isVisible(ObjectPainter object, double pixel, 
+            Rect window) {
+        Rect b = object.bounds();
+        return b == null || overlaps(b, object.screenMargin() * pixel, window);
+    }
+    
+    private static boolean overlaps(Rect b, double margin, Rect window) {
+        return b.left() - margin <= window.right()
+                && b.right() + margin >= window.left()
+                && b.bottom() - margin <= window.top()
+                && b.top() + margin >= window.bottom();
+    }
+    
+    private static boolean mergeable(ObjectPainter object) {
+        if (object instanceof PointPainter) {
+            CanvasObject o = object.getObject();
+            return !o.isHover() && !o.isSelected();
+        } else {
+            return false;
+        }
+    }
+    
+    /**
+     * Paints the objects, merging points that fall into densely populated
+     * pixels of the clip area into density splats. Points are merged only
+     * with points of the same depth, and their splats are painted beneath
+     * the other objects of that depth; hovered and selected points are never
+     * merged.
+     */
+    private void paintWithSplats(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx) {
+        Rectangle area = ctx.getClipBounds();
+        if (area == null) {
+            area = new Rectangle(0, 0, panel.getWidth(), panel.getHeight());
+        }
+        if (area.isEmpty()) {
+            return;
+        }
+        int n = zsorted.size();
+        int start = 0;
+        while (start < n) {
+            double z = zsorted.get(start).getObject().getZ();
+            int end = start + 1;
+            int mergeable = mergeable(zsorted.get(start)) ? 1 : 0;
+            while (end < n && zsorted.get(end).getObject().getZ() == z) {
+                if (mergeable(zsorted.get(end))) {
+                    ++ mergeable;
+                }
+                ++ end;
+            }
+            List<ObjectPainter> band = zsorted.subList(start, end);
+            if (mergeable >= splats.getThreshold()) {
+                paintBandWithSplats(band, t, ctx, area);
+            } else {
+                paintAll(band, t, ctx);
+            }
+            start = end;
+        }
+    }
+    
+    private void paintBandWithSplats(List<ObjectPainter> band, Transform t,
+            Graphics2D ctx, Rectangle area) {
+        splats.reset(area);
+        for (ObjectPainter object : band) {
+            if (mergeable(object)) {
+                Vec2d p = ((PointPainter) object).getObject().getPoint();
+                splats.count((int) Math.floor(t.applyX(p.x, p.y)), 
+                        (int) Math.floor(t.applyY(p.x, p.y)));
+            }
+        }
+        
+        List<ObjectPainter> individual = new ArrayList<>();
+        for (ObjectPainter object : band) {
+            if (mergeable(object)) {
+                PointPainter painter = (PointPainter) object;
+                CanvasPoint point = painter.getObject();
+                Vec2d p = point.getPoint();
+                int x = (int) Math.floor(t.applyX(p.x, p.y));
+                int y = (int) Math.floor(t.applyY(p.x, p.y));
+                if (splats.isDense(x, y)) {
+                    splats.merge(x, y, painter.getColor());
+                    continue;
+                }
+            }
+            individual.add(object);
+        }
+        
+        splats.paint(ctx);
+        paintAll(individual, t, ctx);
+    }
     
 }
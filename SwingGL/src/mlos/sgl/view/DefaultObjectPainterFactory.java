@@ -1,6 +1,7 @@
 package mlos.sgl.view;
 
 import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
 import mlos.sgl.canvas.CanvasPolygon;
 import mlos.sgl.canvas.CanvasSegment;
 
@@ -9,5 +10,6 @@ public class DefaultObjectPainterFactory extends GenericObjectPainterFactory {{
     register(CanvasPoint.class, PointPainter.class);
     register(CanvasSegment.class, SegmentPainter.class);
     register(CanvasPolygon.class, PolygonPainter.class);
+    register(CanvasPointCloud.class, PointCloudPainter.class);
     
 }}
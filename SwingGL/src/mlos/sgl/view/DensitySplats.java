@@ -0,0 +1,183 @@
+package mlos.sgl.view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Per-pixel accumulator used for level-of-detail rendering. Points falling
+ * into pixels that contain at least {@code threshold} of them are merged into
+ * a single splat, colored with the average color of merged points and with
+ * opacity growing with their number.
+ *
+ * The accumulator covers a rectangular area of the screen and is meant to be
+ * reused: buffers grow only when a larger area is set, and only the pixels
+ * touched since the last {@link #reset(Rectangle)} are cleared.
+ */
+public class DensitySplats {
+
+    public static final int DEFAULT_THRESHOLD = 8;
+
+    private final int threshold;
+
+    /** Covered area of the screen */
+    private int left;
+    private int top;
+    private int width;
+    private int height;
+
+    private int[] counts = new int[0];
+    private int[] merged = new int[0];
+    private float[] red = new float[0];
+    private float[] green = new float[0];
+    private float[] blue = new float[0];
+
+    /** Indices of pixels with non-zero count, to be cleared on reset */
+    private int[] touched = new int[64];
+    private int touchedCount = 0;
+
+    /** Bounds of pixels with splats, in buffer coordinates */
+    private int minX, minY, maxX, maxY;
+
+    private BufferedImage image;
+
+    public DensitySplats(int threshold) {
+        this.threshold = threshold;
+        clearBounds();
+    }
+
+    public DensitySplats(int width, int height, int threshold) {
+        this(threshold);
+        reset(new Rectangle(0, 0, width, height));
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Clears the accumulated points and sets the covered area.
+     */
+    public void reset(Rectangle area) {
+        for (int k = 0; k < touchedCount; ++ k) {
+            int i = touched[k];
+            counts[i] = 0;
+            merged[i] = 0;
+            red[i] = green[i] = blue[i] = 0;
+        }
+        touchedCount = 0;
+        clearBounds();
+
+        left = area.x;
+        top = area.y;
+        width = Math.max(0, area.width);
+        height = Math.max(0, area.height);
+        int n = width * height;
+        if (counts.length < n) {
+            counts = new int[n];
+            merged = new int[n];
+            red = new float[n];
+            green = new float[n];
+            blue = new float[n];
+        }
+    }
+
+    private void clearBounds() {
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return {@code true} if the screen pixel lies in the covered area
+     */
+    public boolean inside(int x, int y) {
+        x -= left;
+        y -= top;
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Records a point at the specified pixel.
+     */
+    public void count(int x, int y) {
+        if (inside(x, y)) {
+            int i = (y - top) * width + (x - left);
+            if (counts[i]++ == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, 2 * touchedCount);
+                }
+                touched[touchedCount++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the pixel contains enough points to be painted
+     *         as a splat
+     */
+    public boolean isDense(int x, int y) {
+        return inside(x, y)
+                && counts[(y - top) * width + (x - left)] >= threshold;
+    }
+
+    /**
+     * Merges point of given color into the splat at the specified pixel.
+     */
+    public void merge(int x, int y, Color color) {
+        int bx = x - left;
+        int by = y - top;
+        int i = by * width + bx;
+        ++ merged[i];
+        red[i] += color.getRed();
+        green[i] += color.getGreen();
+        blue[i] += color.getBlue();
+        minX = Math.min(minX, bx);
+        minY = Math.min(minY, by);
+        maxX = Math.max(maxX, bx);
+        maxY = Math.max(maxY, by);
+    }
+
+    private static int alpha(int n) {
+        double log = Math.log(n) / Math.log(2);
+        return (int) Math.min(255, 96 + 24 * log);
+    }
+
+    /**
+     * Paints the splats merged since the last reset.
+     */
+    public void paint(Graphics2D ctx) {
+        if (minX > maxX) {
+            return;
+        }
+        int w = maxX - minX + 1;
+        int h = maxY - minY + 1;
+        if (image == null || image.getWidth() < w || image.getHeight() < h) {
+            image = new BufferedImage(Math.max(w, width),
+                    Math.max(h, height), BufferedImage.TYPE_INT_ARGB);
+        }
+        int stride = image.getWidth();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+                .getData();
+        for (int y = 0; y < h; ++ y) {
+            Arrays.fill(pixels, y * stride, y * stride + w, 0);
+            int row = (minY + y) * width + minX;
+            for (int x = 0; x < w; ++ x) {
+                int n = merged[row + x];
+                if (n > 0) {
+                    int r = (int) (red[row + x] / n);
+                    int g = (int) (green[row + x] / n);
+                    int b = (int) (blue[row + x] / n);
+                    pixels[y * stride + x] = alpha(n) << 24 | r << 16
+                            | g << 8 | b;
+                }
+            }
+        }
+        int x0 = left + minX;
+        int y0 = top + minY;
+        ctx.drawImage(image, x0, y0, x0 + w, y0 + h, 0, 0, w, h, null);
+    }
+
+}
@@ -2,7 +2,6 @@ package mlos.sgl.view;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
@@ -68,14 +67,11 @@ public class Drawer {
     }
     
     public Drawer solid(float width) {
-        return stroke(new BasicStroke(width, BasicStroke.CAP_BUTT,
-                BasicStroke.JOIN_BEVEL, 1));
+        return stroke(Strokes.solid(width));
     }
     
     public Drawer dashed(float width, float... dash) {
-        Stroke s = new BasicStroke(width, BasicStroke.CAP_BUTT, 
-                BasicStroke.JOIN_BEVEL, 1, dash, 0);
-        return stroke(s);
+        return stroke(Strokes.dashed(width, dash));
     }
     
     public Drawer line(float x1, float y1, float x2, float y2) {
@@ -86,14 +82,19 @@ public class Drawer {
         return line(new Segment(a, b));
     }
     
+    /**
+     * Rounds screen coordinate down, rather than towards zero like a cast, so
+     * that drawings translated by whole pixels differ only by translation.
+     */
+    private static int pixel(double v) {
+        return (int) Math.floor(v);
+    }
+    
     public Drawer line(Segment s) {
-        Vec2d a = toScreen.apply(s.a);
-        Vec2d b = toScreen.apply(s.b);
-
-        int x1 = (int) a.x;
-        int y1 = (int) a.y;
-        int x2 = (int) b.x;
-        int y2 = (int) b.y;
+        int x1 = pixel(toScreen.applyX(s.a.x, s.a.y));
+        int y1 = pixel(toScreen.applyY(s.a.x, s.a.y));
+        int x2 = pixel(toScreen.applyX(s.b.x, s.b.y));
+        int y2 = pixel(toScreen.applyY(s.b.x, s.b.y));
         
         gfx.drawLine(x1, y1, x2, y2);
         return this;
@@ -106,10 +107,9 @@ public class Drawer {
         int[] ys = new int[n];
 
         int i = 0;
-        for (Vec2d point : points) {
-            Vec2d p = toScreen.apply(point);
-            xs[i] = (int) p.x;
-            ys[i] = (int) p.y;
+        for (Vec2d p : points) {
+            xs[i] = pixel(toScreen.applyX(p.x, p.y));
+            ys[i] = pixel(toScreen.applyY(p.x, p.y));
             ++ i;
         }
         return new PointList(n, xs, ys);
@@ -155,8 +155,8 @@ public class Drawer {
         Vec2d center = toScreen.apply(v);
         int w = (int) Math.abs(rdir.x);
         int h = (int) Math.abs(rdir.y);
-        int x = (int) center.x - w;
-        int y = (int) center.y - h;
+        int x = pixel(center.x) - w;
+        int y = pixel(center.y) - h;
         
         gfx.drawOval(x, y, 2 * w, 2 * h);
         return this;
@@ -171,8 +171,8 @@ public class Drawer {
         Vec2d center = toScreen.apply(v);
         int w = (int) Math.abs(rdir.x);
         int h = (int) Math.abs(rdir.y);
-        int x = (int) center.x - w;
-        int y = (int) center.y - h;
+        int x = pixel(center.x) - w;
+        int y = pixel(center.y) - h;
         gfx.fillOval(x, y, 2 * w, 2 * h);
         return this;
     }
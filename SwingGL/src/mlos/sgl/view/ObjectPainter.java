@@ -1,9 +1,21 @@
 package mlos.sgl.view;
 
 import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.core.Rect;
 
 public interface ObjectPainter extends Painter {
 
     CanvasObject getObject();
     
+    /**
+     * @return Bounding box of the painted shape in plane coordinates, or
+     *         {@code null} if it cannot be determined
+     */
+    Rect bounds();
+    
+    /**
+     * @return Extent of the painted shape beyond its bounds, in screen pixels
+     */
+    double screenMargin();
+    
 }
@@ -0,0 +1,36 @@
+package mlos.sgl.view;
+
+import java.awt.Graphics2D;
+
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+
+/**
+ * Painter of an object highlighting its parts rather than the whole, like a
+ * single hovered point of a cloud. Such object always stays in the cached
+ * layer of the view, regardless of its hover and selection state, and the
+ * highlighted parts are painted over the layer by
+ * {@link #paintOverlay(Transform, Graphics2D)}. When only they change, the
+ * view repaints just their area, without painting the layer again.
+ */
+public interface OverlayPainter extends ObjectPainter {
+
+    /**
+     * Paints the highlighted parts of the object.
+     */
+    void paintOverlay(Transform toScreen, Graphics2D ctx);
+
+    /**
+     * @return Bounding box of the highlighted parts in plane coordinates,
+     *         with {@link #screenMargin()} around it, or {@code null} if
+     *         there are none
+     */
+    Rect overlayBounds();
+
+    /**
+     * @return Counter changing whenever what {@link #paint} draws changes,
+     *         so that it can be told from changes of the overlay only
+     */
+    int getLayerVersion();
+
+}
@@ -0,0 +1,321 @@
+package mlos.sgl.view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.canvas.CanvasPointCloud;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Transforms;
+import mlos.sgl.core.Vec2d;
+
+/**
+ * Paints point cloud by rasterizing its points directly into an image
+ * covering the clip area, which is then drawn at once. If the clip covers a
+ * small part of the cloud, only points found in it by
+ * {@link CanvasPointCloud#pointsIn(Rect)} are rasterized. Hovered and selected
+ * points are painted as an overlay with {@link PointSprite}s, so that moving
+ * the cursor over the cloud does not paint all the points again.
+ */
+public class PointCloudPainter implements OverlayPainter {
+
+    /**
+     * Horizontal half-widths of the rows of discs of each diameter, computed
+     * up front so that clouds can be painted on several threads.
+     */
+    private static final int[][] SPANS = new int[CanvasPointCloud.MAX_SIZE + 1][];
+
+    static {
+        for (int size = 0; size < SPANS.length; ++ size) {
+            int[] spans = new int[size];
+            double r = size / 2.0;
+            for (int k = 0; k < size; ++ k) {
+                double dy = k + 0.5 - r;
+                spans[k] = (int) Math.round(Math.sqrt(r * r - dy * dy) - 0.5);
+            }
+            SPANS[size] = spans;
+        }
+    }
+
+    /** Number of points transformed at once */
+    private static final int BATCH = 4096;
+
+    /**
+     * Points are looked up in the clip if less than this fraction of them
+     * lies in it, and scanned all otherwise
+     */
+    private static final double MAX_LOOKUP_FRACTION = 0.25;
+
+    /** Number of points sampled to estimate the fraction */
+    private static final int SAMPLES = 256;
+
+    private final CanvasPointCloud cloud;
+
+    private final double[] screenXs = new double[BATCH];
+    private final double[] screenYs = new double[BATCH];
+
+    /** Image the points are rasterized into, transparent between paints */
+    private BufferedImage image;
+    private int[] pixels;
+
+    /** Points found in the clip, kept to restore their order */
+    private final BitSet found = new BitSet();
+
+    /** Rows of the image painted since it was cleared */
+    private int minRow;
+    private int maxRow;
+
+    public PointCloudPainter(CanvasPointCloud cloud) {
+        this.cloud = cloud;
+    }
+
+    /**
+     * Blends ARGB color {@code src} over {@code dst}, which is premultiplied
+     * by its alpha like the result.
+     */
+    static int blend(int dst, int src) {
+        int a = src >>> 24;
+        if (a == 0xff) {
+            return src;
+        } else if (a == 0) {
+            return dst;
+        }
+        int na = 0xff - a;
+        int outA = a + ((dst >>> 24) * na + 0x7f) / 0xff;
+        int r = (((src >> 16) & 0xff) * a + ((dst >> 16) & 0xff) * na + 0x7f)
+                / 0xff;
+        int g = (((src >> 8) & 0xff) * a + ((dst >> 8) & 0xff) * na + 0x7f)
+                / 0xff;
+        int b = ((src & 0xff) * a + (dst & 0xff) * na + 0x7f) / 0xff;
+        return outA << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Stamps a disc into the first {@code w} columns and {@code h} rows of
+     * the image.
+     */
+    private void stamp(int w, int h, int cx, int cy, int size, int color) {
+        int[] spans = SPANS[size];
+        int stride = image.getWidth();
+        int top = cy - size / 2;
+        int k0 = Math.max(0, -top);
+        int k1 = Math.min(size, h - top);
+        if (k0 >= k1) {
+            return;
+        }
+        minRow = Math.min(minRow, top + k0);
+        maxRow = Math.max(maxRow, top + k1 - 1);
+        for (int k = k0; k < k1; ++ k) {
+            int half = spans[k];
+            int x0 = Math.max(0, cx - half);
+            int x1 = Math.min(w - 1, cx + half);
+            int row = (top + k) * stride;
+            for (int x = x0; x <= x1; ++ x) {
+                pixels[row + x] = blend(pixels[row + x], color);
+            }
+        }
+    }
+
+    @Override
+    public void paint(Transform toScreen, Graphics2D ctx) {
+        Rectangle clip = ctx.getClipBounds();
+        if (clip != null && clip.width > 0 && clip.height > 0) {
+            synchronized (cloud) {
+                rasterize(toScreen, ctx, clip);
+            }
+        }
+    }
+
+    @Override
+    public void paintOverlay(Transform toScreen, Graphics2D ctx) {
+        synchronized (cloud) {
+            paintSpecial(toScreen, ctx, cloud.getSelectedIndex(),
+                    cloud.getSelectedColor());
+            paintSpecial(toScreen, ctx, cloud.getHoverIndex(),
+                    cloud.getHoverColor());
+        }
+    }
+
+    private void rasterize(Transform toScreen, Graphics2D ctx, Rectangle clip) {
+        int w = clip.width;
+        int h = clip.height;
+        if (image == null || image.getWidth() < w || image.getHeight() < h) {
+            int iw = image == null ? w : Math.max(w, image.getWidth());
+            int ih = image == null ? h : Math.max(h, image.getHeight());
+            image = new BufferedImage(iw, ih,
+                    BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer())
+                    .getData();
+        }
+        minRow = h;
+        maxRow = -1;
+
+        double[] xs = cloud.xs();
+        double[] ys = cloud.ys();
+        int[] colors = cloud.colors();
+        byte[] sizes = cloud.sizes();
+
+        if (!findPoints(toScreen, clip)) {
+            int n = cloud.count();
+            for (int base = 0; base < n; base += BATCH) {
+                int m = Math.min(BATCH, n - base);
+                toScreen.apply(xs, ys, base, screenXs, screenYs, 0, m);
+                for (int k = 0; k < m; ++ k) {
+                    int i = base + k;
+                    stamp(clip, screenXs[k], screenYs[k], sizes[i] & 0xff,
+                            colors[i]);
+                }
+            }
+        } else {
+            // later points are painted over earlier ones
+            for (int i = found.nextSetBit(0); i >= 0;
+                    i = found.nextSetBit(i + 1)) {
+                stamp(clip, toScreen.applyX(xs[i], ys[i]),
+                        toScreen.applyY(xs[i], ys[i]), sizes[i] & 0xff,
+                        colors[i]);
+            }
+            found.clear();
+        }
+
+        if (minRow <= maxRow) {
+            ctx.drawImage(image, clip.x, clip.y + minRow, clip.x + w,
+                    clip.y + maxRow + 1, 0, minRow, w, maxRow + 1, null);
+            int stride = image.getWidth();
+            for (int y = minRow; y <= maxRow; ++ y) {
+                Arrays.fill(pixels, y * stride, y * stride + w, 0);
+            }
+        }
+    }
+
+    private void stamp(Rectangle clip, double sx, double sy, int size,
+            int color) {
+        int cx = (int) Math.floor(sx) - clip.x;
+        int cy = (int) Math.floor(sy) - clip.y;
+        if (cx + size < 0 || cx - size >= clip.width || cy + size < 0
+                || cy - size >= clip.height) {
+            return;
+        }
+        stamp(clip.width, clip.height, cx, cy, size, color);
+    }
+
+    /**
+     * Marks the points which may be visible in the clip in {@link #found}.
+     * 
+     * @return {@code false} if the clip covers much of the cloud, and all the
+     *         points are to be scanned instead
+     */
+    private boolean findPoints(Transform toScreen, Rectangle clip) {
+        Rect bounds = cloud.getBounds();
+        if (bounds == null || !toScreen.isInvertible()) {
+            return false;
+        }
+        double m = cloud.getMaxSize() / 2.0 + 1;
+        Rect window = Transforms.invertBounds(toScreen, Rect.lbSize(
+                clip.x - m, clip.y - m, clip.width + 2 * m,
+                clip.height + 2 * m));
+        if (!window.isFinite()) {
+            return false;
+        }
+        if (!window.intersects(bounds)) {
+            return true;
+        }
+        // points are often clustered, so their share of the bounds says little
+        int n = cloud.count();
+        double[] xs = cloud.xs();
+        double[] ys = cloud.ys();
+        int inside = 0;
+        int samples = Math.min(n, SAMPLES);
+        for (int k = 0; k < samples; ++ k) {
+            int i = (int) ((long) k * n / samples);
+            if (window.left() <= xs[i] && xs[i] <= window.right()
+                    && window.bottom() <= ys[i] && ys[i] <= window.top()) {
+                ++ inside;
+            }
+        }
+        if (inside > MAX_LOOKUP_FRACTION * samples) {
+            return false;
+        }
+        for (int i : cloud.pointsIn(window)) {
+            found.set(i);
+        }
+        return true;
+    }
+
+    private void paintSpecial(Transform toScreen, Graphics2D ctx, int i,
+            Color color) {
+        if (i < 0) {
+            return;
+        }
+        Vec2d s = toScreen.apply(cloud.getPoint(i));
+        int size = Math.max(cloud.getSize(i), CanvasPoint.DEFAULT_SIZE);
+        int left = (int) Math.floor(s.x) - size / 2;
+        int top = (int) Math.floor(s.y) - size / 2;
+        Style style = Style.of(color, CanvasPoint.DEFAULT_BORDER_COLOR,
+                Strokes.basic(CanvasPoint.DEFAULT_BORDER_SIZE));
+        if (PointSprite.isPixelAligned(ctx)) {
+            PointSprite.of(style, size, PointSprite.isAntialiased(ctx))
+                    .draw(ctx, left, top);
+        } else {
+            ctx.setColor(style.getFill());
+            ctx.fillOval(left, top, size, size);
+            ctx.setColor(style.getLine());
+            ctx.setStroke(style.getStroke());
+            ctx.drawOval(left, top, size, size);
+        }
+    }
+
+    @Override
+    public Rect overlayBounds() {
+        synchronized (cloud) {
+            Rect selected = pointBounds(cloud.getSelectedIndex());
+            Rect hover = pointBounds(cloud.getHoverIndex());
+            if (selected == null) {
+                return hover;
+            } else if (hover == null) {
+                return selected;
+            } else {
+                return Rect.bounds(
+                        Math.min(selected.left(), hover.left()),
+                        Math.min(selected.bottom(), hover.bottom()),
+                        Math.max(selected.right(), hover.right()),
+                        Math.max(selected.top(), hover.top()));
+            }
+        }
+    }
+
+    private Rect pointBounds(int i) {
+        if (i < 0) {
+            return null;
+        }
+        double x = cloud.x(i);
+        double y = cloud.y(i);
+        return Rect.bounds(x, y, x, y);
+    }
+
+    @Override
+    public int getLayerVersion() {
+        return cloud.getVersion();
+    }
+
+    @Override
+    public Rect bounds() {
+        return cloud.getBounds();
+    }
+
+    @Override
+    public double screenMargin() {
+        return Math.max(cloud.getMaxSize(), CanvasPoint.DEFAULT_SIZE) / 2.0;
+    }
+
+    @Override
+    public CanvasPointCloud getObject() {
+        return cloud;
+    }
+
+}
@@ -1,18 +1,26 @@
 package mlos.sgl.view;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.Stroke;
+import java.awt.geom.Ellipse2D;
 
 import mlos.sgl.canvas.CanvasPoint;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
 import mlos.sgl.core.Vec2d;
 
-public class PointPainter implements ObjectPainter {
+public class PointPainter implements BatchPainter {
     
     private final CanvasPoint point;
 
+    /** Style of the last paint, kept while the colors and border are same */
+    private volatile Style style;
+
+    /** Sprite of the last paint, kept while the style and size are same */
+    private volatile PointSprite sprite;
+
     public PointPainter(CanvasPoint point) {
         this.point = point;
     }
@@ -32,24 +40,82 @@ public class PointPainter implements ObjectPainter {
     }
 
     @Override
-    public void paint(Transform toScreen, Graphics2D ctx) {
-        Vec2d p = point.getPoint();
-        int size = point.getSize();
+    public Style style() {
         Color color = getColor();
+        Color border = getBorderColor();
+        Stroke stroke = Strokes.basic(point.getBorderSize());
+        Style s = style;
+        if (s == null || !s.is(color, border, stroke)) {
+            style = s = Style.of(color, border, stroke);
+        }
+        return s;
+    }
+
+    /**
+     * @return Sprite of the point, or {@code null} if it is too large
+     */
+    PointSprite sprite(boolean antialiasing) {
+        Style s = style();
+        int size = point.getSize();
+        if (size > PointSprite.MAX_SIZE) {
+            return null;
+        }
+        PointSprite sp = sprite;
+        if (sp == null || !sp.is(s, size, antialiasing)) {
+            sprite = sp = PointSprite.of(s, size, antialiasing);
+        }
+        return sp;
+    }
+
+    int left(Transform toScreen) {
+        Vec2d p = point.getPoint();
+        int hsize = point.getSize() / 2;
+        return (int) Math.floor(toScreen.applyX(p.x, p.y)) - hsize;
+    }
+
+    int top(Transform toScreen) {
+        Vec2d p = point.getPoint();
+        int hsize = point.getSize() / 2;
+        return (int) Math.floor(toScreen.applyY(p.x, p.y)) - hsize;
+    }
 
-        Vec2d s = toScreen.apply(p);
-        int hsize = size / 2;
-        ctx.setColor(color);
-        int left = (int) s.x - hsize;
-        int top = (int) s.y - hsize;
+    @Override
+    public void paint(Transform toScreen, Graphics2D ctx) {
+        int left = left(toScreen);
+        int top = top(toScreen);
+        if (PointSprite.isPixelAligned(ctx)) {
+            PointSprite sp = sprite(PointSprite.isAntialiased(ctx));
+            if (sp != null) {
+                sp.draw(ctx, left, top);
+                return;
+            }
+        }
+        int size = point.getSize();
+        Style s = style();
+        ctx.setColor(s.getFill());
         ctx.fillOval(left, top, size, size);
 
-        ctx.setColor(getBorderColor());
-        Stroke stroke = new BasicStroke(point.getBorderSize());
-        ctx.setStroke(stroke);
+        ctx.setColor(s.getLine());
+        ctx.setStroke(s.getStroke());
         ctx.drawOval(left, top, size, size);
     }
 
+    @Override
+    public Shape screenShape(Transform toScreen) {
+        int size = point.getSize();
+        return new Ellipse2D.Float(left(toScreen), top(toScreen), size, size);
+    }
+
+    @Override
+    public Rect bounds() {
+        return Rect.at(point.getPoint(), 0, 0);
+    }
+    
+    @Override
+    public double screenMargin() {
+        return point.getSize() / 2.0 + point.getBorderSize();
+    }
+
     @Override
     public CanvasPoint getObject() {
         return point;
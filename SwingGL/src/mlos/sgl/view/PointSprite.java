@@ -0,0 +1,212 @@
+package mlos.sgl.view;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Image of a point of given style and diameter, rendered once with
+ * {@link Graphics2D#fillOval} and {@link Graphics2D#drawOval} and then copied
+ * for every point of the same appearance, which is much cheaper than drawing
+ * the oval, especially with antialiasing. Sprites are cached and shared, so
+ * they must not be modified.
+ */
+public final class PointSprite {
+
+    /** Largest diameter of points painted with sprites */
+    public static final int MAX_SIZE = 64;
+
+    /** Largest number of cached sprites, after which the cache is cleared */
+    private static final int MAX_CACHED = 1 << 12;
+
+    private static final ConcurrentMap<Key, PointSprite> CACHE =
+            new ConcurrentHashMap<>();
+
+    private static final class Key {
+        final Style style;
+        final int size;
+        final boolean antialiasing;
+
+        public Key(Style style, int size, boolean antialiasing) {
+            this.style = style;
+            this.size = size;
+            this.antialiasing = antialiasing;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof Key) {
+                Key other = (Key) o;
+                return style == other.style && size == other.size
+                        && antialiasing == other.antialiasing;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return (style.hashCode() * 31 + size) * 2 + (antialiasing ? 1 : 0);
+        }
+    }
+
+    private final Key key;
+
+    /** Distance from the corner of the image to the corner of the oval */
+    private final int pad;
+
+    private final BufferedImage image;
+
+    /** Premultiplied ARGB pixels of the image */
+    private final int[] pixels;
+
+    private PointSprite(Key key) {
+        this.key = key;
+        Style style = key.style;
+        Shape oval = new Ellipse2D.Float(0, 0, key.size, key.size);
+        Rectangle b = style.getLine() != null 
+                ? style.getStroke().createStrokedShape(oval).getBounds()
+                : oval.getBounds();
+        // one more pixel on each side for antialiasing and rounding
+        pad = Math.max(0, -b.x) + 1;
+        int dim = pad + Math.max(key.size, b.x + b.width) + 2;
+        image = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_ARGB_PRE);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    key.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON
+                            : RenderingHints.VALUE_ANTIALIAS_OFF);
+            if (style.getFill() != null) {
+                g.setColor(style.getFill());
+                g.fillOval(pad, pad, key.size, key.size);
+            }
+            if (style.getLine() != null) {
+                g.setColor(style.getLine());
+                g.setStroke(style.getStroke());
+                g.drawOval(pad, pad, key.size, key.size);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * @return Sprite of an oval of given diameter, filled and outlined with
+     *         given style
+     */
+    public static PointSprite of(Style style, int size, boolean antialiasing) {
+        Key key = new Key(style, size, antialiasing);
+        PointSprite sprite = CACHE.get(key);
+        if (sprite == null) {
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            sprite = new PointSprite(key);
+            PointSprite cached = CACHE.putIfAbsent(key, sprite);
+            if (cached != null) {
+                sprite = cached;
+            }
+        }
+        return sprite;
+    }
+
+    /**
+     * @return {@code true} if sprites drawn on the graphics context are not
+     *         scaled or rotated, so that they look like the ovals they stand
+     *         for
+     */
+    public static boolean isPixelAligned(Graphics2D ctx) {
+        int type = ctx.getTransform().getType();
+        return (type & ~AffineTransform.TYPE_TRANSLATION) == 0;
+    }
+
+    public static boolean isAntialiased(Graphics2D ctx) {
+        return ctx.getRenderingHint(RenderingHints.KEY_ANTIALIASING) 
+                == RenderingHints.VALUE_ANTIALIAS_ON;
+    }
+
+    /**
+     * @return {@code true} if this is the sprite of given appearance
+     */
+    boolean is(Style style, int size, boolean antialiasing) {
+        return key.style == style && key.size == size
+                && key.antialiasing == antialiasing;
+    }
+
+    /**
+     * Draws the sprite so that the oval has the same pixels as
+     * {@code fillOval(left, top, size, size)}.
+     */
+    public void draw(Graphics2D ctx, int left, int top) {
+        ctx.drawImage(image, left - pad, top - pad, null);
+    }
+
+    /**
+     * Blends the sprite over premultiplied ARGB pixels of an image, so that
+     * the oval has the same pixels as {@code fillOval(left, top, size, size)}.
+     */
+    public void stamp(int[] dst, int width, int height, int left, int top) {
+        stamp(dst, width, width, height, left, top);
+    }
+
+    /**
+     * Blends the sprite over the first {@code width} columns and
+     * {@code height} rows of premultiplied ARGB pixels of an image with rows
+     * {@code stride} pixels long.
+     */
+    public void stamp(int[] dst, int stride, int width, int height, int left,
+            int top) {
+        int dim = image.getWidth();
+        int x0 = left - pad;
+        int y0 = top - pad;
+        int i0 = Math.max(0, -x0);
+        int i1 = Math.min(dim, width - x0);
+        int j0 = Math.max(0, -y0);
+        int j1 = Math.min(dim, height - y0);
+        for (int j = j0; j < j1; ++ j) {
+            int src = j * dim;
+            int row = (y0 + j) * stride + x0;
+            for (int i = i0; i < i1; ++ i) {
+                int s = pixels[src + i];
+                int a = s >>> 24;
+                if (a == 0xff) {
+                    dst[row + i] = s;
+                } else if (a != 0) {
+                    dst[row + i] = s + scale(dst[row + i], 0xff - a);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Premultiplied color scaled by given fraction of 255
+     */
+    private static int scale(int c, int f) {
+        int ag = ((c >>> 8) & 0xff00ff) * f + 0x800080;
+        int rb = (c & 0xff00ff) * f + 0x800080;
+        ag = ((ag + ((ag >>> 8) & 0xff00ff)) >>> 8) & 0xff00ff;
+        rb = ((rb + ((rb >>> 8) & 0xff00ff)) >>> 8) & 0xff00ff;
+        return ag << 8 | rb;
+    }
+
+    /**
+     * @return Extent of the sprite around the oval
+     */
+    public int getPad() {
+        return pad;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+}
@@ -1,10 +1,14 @@
 package mlos.sgl.view;
 
 import java.awt.Graphics2D;
+import java.util.List;
 
 import mlos.sgl.canvas.CanvasObject;
 import mlos.sgl.canvas.CanvasPolygon;
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Rect;
 import mlos.sgl.core.Transform;
+import mlos.sgl.core.Vec2d;
 
 public class PolygonPainter implements ObjectPainter {
 
@@ -25,6 +29,21 @@ public class PolygonPainter implements ObjectPainter {
         d.restore();
     }
 
+    @Override
+    public Rect bounds() {
+        List<Vec2d> points = polygon.getPoints();
+        if (points.isEmpty()) {
+            return null;
+        } else {
+            return Geometry.aabb(points.toArray(new Vec2d[points.size()]));
+        }
+    }
+    
+    @Override
+    public double screenMargin() {
+        return polygon.getThickness();
+    }
+
     @Override
     public CanvasObject getObject() {
         return polygon;
@@ -0,0 +1,116 @@
+package mlos.sgl.view;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.Component;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+/**
+ * Coalesces repaint requests of a component. Requests only mark the component
+ * (or a part of it) dirty; the accumulated dirty area is repainted at most
+ * once per frame, on the event dispatch thread. Requests may come from any
+ * thread.
+ */
+public class RepaintScheduler {
+
+    public static final int DEFAULT_MAX_FPS = 60;
+
+    private final Component component;
+
+    private final Timer timer;
+
+    /** Minimal time between two repaints, in nanoseconds */
+    private long frameNanos;
+
+    private long lastFrame;
+
+    /** Whether the flush is already pending */
+    private boolean scheduled = false;
+
+    /** Whether the whole component is dirty */
+    private boolean full = false;
+
+    /** Union of dirty regions, if only parts of the component are dirty */
+    private Rectangle dirty = null;
+
+    public RepaintScheduler(Component component) {
+        this(component, DEFAULT_MAX_FPS);
+    }
+
+    public RepaintScheduler(Component component, int maxFps) {
+        this.component = checkNotNull(component);
+        setMaxFps(maxFps);
+        this.lastFrame = System.nanoTime() - frameNanos;
+
+        this.timer = new Timer(0, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                flush();
+            }
+        });
+        timer.setRepeats(false);
+    }
+
+    public synchronized int getMaxFps() {
+        return (int) Math.round(1e9 / frameNanos);
+    }
+
+    public synchronized void setMaxFps(int maxFps) {
+        checkArgument(maxFps > 0, "FPS limit must be positive");
+        this.frameNanos = 1000000000L / maxFps;
+    }
+
+    /**
+     * Marks the whole component dirty.
+     */
+    public synchronized void repaint() {
+        full = true;
+        dirty = null;
+        schedule();
+    }
+
+    /**
+     * Marks the region of the component dirty.
+     */
+    public synchronized void repaint(Rectangle region) {
+        if (full || region.isEmpty()) {
+            return;
+        }
+        dirty = dirty == null ? new Rectangle(region) : dirty.union(region);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            long wait = lastFrame + frameNanos - System.nanoTime();
+            int delay = (int) Math.max(0, (wait + 999999) / 1000000);
+            timer.setInitialDelay(delay);
+            timer.start();
+        }
+    }
+
+    private void flush() {
+        boolean repaintAll;
+        Rectangle region;
+        synchronized (this) {
+            repaintAll = full;
+            region = dirty;
+            full = false;
+            dirty = null;
+            scheduled = false;
+            lastFrame = System.nanoTime();
+        }
+        if (repaintAll) {
+            component.repaint();
+        } else if (region != null) {
+            component.repaint(region.x, region.y, region.width, region.height);
+        }
+    }
+
+}
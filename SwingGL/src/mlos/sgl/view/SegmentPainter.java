@@ -2,33 +2,81 @@ package mlos.sgl.view;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.Line2D;
 
 import mlos.sgl.canvas.CanvasSegment;
+import mlos.sgl.core.Geometry;
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Segment;
 import mlos.sgl.core.Transform;
 
-public class SegmentPainter implements ObjectPainter {
+public class SegmentPainter implements BatchPainter {
+
+    private static final float[] DASH = { 3, 4 };
+
+    /** Dashed strokes of small widths, looked up without hashing */
+    private static final Stroke[] DASHED = new Stroke[17];
+
+    static {
+        for (int i = 0; i < DASHED.length; ++ i) {
+            DASHED[i] = Strokes.dashed(i, DASH);
+        }
+    }
 
     private final CanvasSegment segment;
+
+    /** Style of the last paint, kept while the color and stroke are same */
+    private volatile Style style;
     
     public SegmentPainter(CanvasSegment segment) {
         this.segment = segment;
     }
 
     @Override
-    public void paint(Transform toScreen, Graphics2D ctx) {
-        Drawer d = new Drawer(ctx, toScreen);
-        d.color(getColor());
-        
+    public Style style() {
+        Color color = getColor();
         int width = segment.getThickness();
-        if (segment.isDashed()) {
-            d.dashed(width, 3, 4);
+        boolean dashed = segment.isDashed();
+        Style s = style;
+        Stroke stroke = stroke(width, dashed);
+        if (s == null || !s.is(null, color, stroke)) {
+            style = s = Style.of(null, color, stroke);
+        }
+        return s;
+    }
+
+    private static Stroke stroke(int width, boolean dashed) {
+        if (!dashed) {
+            return Strokes.solid(width);
+        } else if (width >= 0 && width < DASHED.length) {
+            return DASHED[width];
         } else {
-            d.solid(width);
+            return Strokes.dashed(width, DASH);
         }
+    }
+
+    @Override
+    public void paint(Transform toScreen, Graphics2D ctx) {
+        Style s = style();
+        Drawer d = new Drawer(ctx, toScreen);
+        d.color(s.getLine());
+        d.stroke(s.getStroke());
         d.line(segment.getSegment());
         d.restore();
     }
 
+    @Override
+    public Shape screenShape(Transform toScreen) {
+        Segment seg = segment.getSegment();
+        return new Line2D.Float(
+                (float) Math.floor(toScreen.applyX(seg.a.x, seg.a.y)),
+                (float) Math.floor(toScreen.applyY(seg.a.x, seg.a.y)),
+                (float) Math.floor(toScreen.applyX(seg.b.x, seg.b.y)),
+                (float) Math.floor(toScreen.applyY(seg.b.x, seg.b.y)));
+    }
+
     private Color getColor() {
         if (segment.isSelected()) {
             return segment.getSelectedColor();
@@ -39,6 +87,17 @@ public class SegmentPainter implements ObjectPainter {
         }
     }
 
+    @Override
+    public Rect bounds() {
+        Segment seg = segment.getSegment();
+        return Geometry.aabb(seg.a, seg.b);
+    }
+    
+    @Override
+    public double screenMargin() {
+        return segment.getThickness();
+    }
+
     @Override
     public CanvasSegment getObject() {
         return segment;
@@ -0,0 +1,80 @@
+package mlos.sgl.view;
+
+import java.awt.BasicStroke;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Interned strokes used by painters, so that strokes are not created on every
+ * paint and equal strokes are the same object. Strokes of small integer
+ * widths are kept for good, others are interned weakly, so that they are
+ * garbage collected once no longer used.
+ */
+public final class Strokes {
+
+    /** Strokes of small integer widths, looked up without hashing */
+    private static final BasicStroke[] SOLID = new BasicStroke[33];
+
+    private static final BasicStroke[] BASIC = new BasicStroke[33];
+
+    static {
+        for (int i = 0; i < SOLID.length; ++ i) {
+            SOLID[i] = solidStroke(i);
+            BASIC[i] = new BasicStroke(i);
+        }
+    }
+
+    private static final Interner<BasicStroke> INTERNED = Interners
+            .newWeakInterner();
+
+    private Strokes() {
+        // non-instantiable
+    }
+
+    private static BasicStroke solidStroke(float width) {
+        return new BasicStroke(width, BasicStroke.CAP_BUTT,
+                BasicStroke.JOIN_BEVEL, 1);
+    }
+
+    /**
+     * @return Canonical instance of the stroke equal to the given one
+     */
+    public static BasicStroke intern(BasicStroke stroke) {
+        return INTERNED.intern(stroke);
+    }
+
+    /**
+     * @return Stroke of given width with default attributes, as created by
+     *         {@link BasicStroke#BasicStroke(float)}
+     */
+    public static BasicStroke basic(float width) {
+        int i = (int) width;
+        if (i == width && i >= 0 && i < BASIC.length) {
+            return BASIC[i];
+        } else {
+            return intern(new BasicStroke(width));
+        }
+    }
+
+    /**
+     * @return Solid stroke with butt caps and bevel joins
+     */
+    public static BasicStroke solid(float width) {
+        int i = (int) width;
+        if (i == width && i >= 0 && i < SOLID.length) {
+            return SOLID[i];
+        } else {
+            return intern(solidStroke(width));
+        }
+    }
+
+    /**
+     * @return Dashed stroke with butt caps and bevel joins
+     */
+    public static BasicStroke dashed(float width, float... dash) {
+        return intern(new BasicStroke(width, BasicStroke.CAP_BUTT,
+                BasicStroke.JOIN_BEVEL, 1, dash, 0));
+    }
+
+}
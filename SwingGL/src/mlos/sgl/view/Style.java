@@ -0,0 +1,84 @@
+package mlos.sgl.view;
+
+import java.awt.Color;
+import java.awt.Stroke;
+import java.util.Objects;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Interned style of shapes painted in a batch: color of the interior, and
+ * color and stroke of the outline. Since styles are interned, equal styles
+ * are the same object and can be compared by reference. Interning is weak,
+ * so styles no longer used by any painter are garbage collected.
+ */
+public final class Style {
+
+    private static final Interner<Style> INTERNED = Interners
+            .newWeakInterner();
+
+    private final Color fill;
+
+    private final Color line;
+
+    private final Stroke stroke;
+
+    private Style(Color fill, Color line, Stroke stroke) {
+        this.fill = fill;
+        this.line = line;
+        this.stroke = stroke;
+    }
+
+    /**
+     * @param fill
+     *            Color of the interior, or {@code null} if not filled
+     * @param line
+     *            Color of the outline, or {@code null} if not outlined
+     * @param stroke
+     *            Stroke of the outline, ignored if there is no outline
+     */
+    public static Style of(Color fill, Color line, Stroke stroke) {
+        return INTERNED.intern(new Style(fill, line,
+                line != null ? stroke : null));
+    }
+
+    public Color getFill() {
+        return fill;
+    }
+
+    public Color getLine() {
+        return line;
+    }
+
+    public Stroke getStroke() {
+        return stroke;
+    }
+
+    /**
+     * @return {@code true} if this is the style of given components, as
+     *         compared by reference
+     */
+    boolean is(Color fill, Color line, Stroke stroke) {
+        return this.fill == fill && this.line == line
+                && (line == null || this.stroke == stroke);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof Style) {
+            Style other = (Style) o;
+            return Objects.equals(fill, other.fill)
+                    && Objects.equals(line, other.line)
+                    && Objects.equals(stroke, other.stroke);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fill, line, stroke);
+    }
+
+}
@@ -0,0 +1,271 @@
+package mlos.sgl.view;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Transforms;
+
+/**
+ * Paints objects on multiple threads. The painted area is split into square
+ * tiles, objects are assigned to the tiles their screen extent overlaps, and
+ * each tile is painted into its own image on a fork/join pool, with the
+ * objects in the given order. The images are then drawn on the target on the
+ * calling thread.
+ *
+ * Point clouds are not tiled: a cloud rasterizes all its points whatever the
+ * clip, holding its monitor, so painting it into each tile would transform
+ * all the points once per tile, one tile at a time. Each cloud is painted
+ * once on the target instead, between the tiled runs of objects before and
+ * after it, which keeps the order of the list.
+ *
+ * Painters must allow painting from threads other than the event dispatch
+ * thread, and painting of a single object into several tiles at once. With
+ * antialiasing off, the result is pixel-identical to painting the objects one
+ * by one on the target; with antialiasing on, pixels of edges may differ
+ * slightly due to blending on a transparent tile.
+ */
+public class TileRenderer {
+
+    public static final int DEFAULT_TILE_SIZE = 128;
+
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    private final int tileSize;
+
+    private final ForkJoinPool pool;
+
+    /** Tile images reused between frames */
+    private BufferedImage[] images = new BufferedImage[0];
+
+    /** Images batchers of the tiles stamp points into */
+    private Batcher.Buffer[] stamps = new Batcher.Buffer[0];
+
+    public TileRenderer() {
+        this(DEFAULT_TILE_SIZE, PoolHolder.POOL);
+    }
+
+    public TileRenderer(int tileSize, ForkJoinPool pool) {
+        checkArgument(tileSize > 0, "Non-positive tile size");
+        this.tileSize = tileSize;
+        this.pool = checkNotNull(pool);
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Paints the objects over the area of the target, in the order of the
+     * list.
+     */
+    public void paint(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx, Rectangle area) {
+        paint(zsorted, t, ctx, area, false);
+    }
+
+    /**
+     * Paints the objects over the area of the target, in the order of the
+     * list, optionally painting runs of objects of the same style together as
+     * {@link Batcher} does.
+     */
+    public synchronized void paint(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx, Rectangle area, boolean batching) {
+        if (area.isEmpty() || zsorted.isEmpty()) {
+            return;
+        }
+        int n = zsorted.size();
+        int start = 0;
+        for (int i = 0; i < n; ++ i) {
+            ObjectPainter object = zsorted.get(i);
+            if (object instanceof PointCloudPainter) {
+                paintTiled(zsorted.subList(start, i), t, ctx, area, batching);
+                Graphics2D g = (Graphics2D) ctx.create();
+                try {
+                    g.clipRect(area.x, area.y, area.width, area.height);
+                    object.paint(t, g);
+                } finally {
+                    g.dispose();
+                }
+                start = i + 1;
+            }
+        }
+        paintTiled(zsorted.subList(start, n), t, ctx, area, batching);
+    }
+
+    private void paintTiled(List<ObjectPainter> zsorted, Transform t,
+            Graphics2D ctx, Rectangle area, boolean batching) {
+        if (zsorted.isEmpty()) {
+            return;
+        }
+        int cols = (area.width + tileSize - 1) / tileSize;
+        int rows = (area.height + tileSize - 1) / tileSize;
+        int[][] bins = bin(zsorted, t, area, cols, rows);
+
+        int tiles = cols * rows;
+        if (images.length < tiles) {
+            images = Arrays.copyOf(images, tiles);
+            stamps = Arrays.copyOf(stamps, tiles);
+        }
+        RenderingHints hints = ctx.getRenderingHints();
+        pool.invoke(new TileTask(zsorted, t, hints, area, cols, bins,
+                batching, 0, tiles));
+
+        for (int i = 0; i < tiles; ++ i) {
+            if (bins[i].length > 1) {
+                int x = area.x + (i % cols) * tileSize;
+                int y = area.y + (i / cols) * tileSize;
+                ctx.drawImage(images[i], x, y, null);
+            }
+        }
+    }
+
+    /**
+     * Assigns objects to the tiles overlapping their screen extent.
+     *
+     * @return Indices of objects of each tile in increasing order, preceded
+     *         by their number
+     */
+    private int[][] bin(List<ObjectPainter> zsorted, Transform t,
+            Rectangle area, int cols, int rows) {
+        int tiles = cols * rows;
+        int[][] bins = new int[tiles][];
+        int[] counts = new int[tiles];
+        for (int i = 0; i < tiles; ++ i) {
+            bins[i] = new int[8];
+        }
+        int index = 0;
+        for (ObjectPainter object : zsorted) {
+            int c0 = 0, c1 = cols - 1, r0 = 0, r1 = rows - 1;
+            Rect b = object.bounds();
+            Rect s = b != null ? Transforms.applyBounds(t, b) : null;
+            if (s != null && s.isFinite()) {
+                double m = object.screenMargin() + 1;
+                c0 = Math.max(c0, tile(s.left() - m, area.x));
+                c1 = Math.min(c1, tile(s.right() + m, area.x));
+                r0 = Math.max(r0, tile(s.bottom() - m, area.y));
+                r1 = Math.min(r1, tile(s.top() + m, area.y));
+            }
+            for (int r = r0; r <= r1; ++ r) {
+                for (int c = c0; c <= c1; ++ c) {
+                    int k = r * cols + c;
+                    int[] bin = bins[k];
+                    int n = ++ counts[k];
+                    if (n == bin.length) {
+                        bins[k] = bin = Arrays.copyOf(bin, 2 * n);
+                    }
+                    bin[n] = index;
+                }
+            }
+            ++ index;
+        }
+        for (int i = 0; i < tiles; ++ i) {
+            bins[i][0] = counts[i];
+            bins[i] = Arrays.copyOf(bins[i], counts[i] + 1);
+        }
+        return bins;
+    }
+
+    private int tile(double v, int origin) {
+        double k = Math.floor((v - origin) / tileSize);
+        return (int) Math.max(-1, Math.min(k, Integer.MAX_VALUE));
+    }
+
+    private final class TileTask extends RecursiveAction {
+
+        private final List<ObjectPainter> zsorted;
+        private final Transform t;
+        private final RenderingHints hints;
+        private final Rectangle area;
+        private final int cols;
+        private final int[][] bins;
+        private final boolean batching;
+        private final int from;
+        private final int to;
+
+        public TileTask(List<ObjectPainter> zsorted, Transform t,
+                RenderingHints hints, Rectangle area, int cols, int[][] bins,
+                boolean batching, int from, int to) {
+            this.zsorted = zsorted;
+            this.t = t;
+            this.hints = hints;
+            this.area = area;
+            this.cols = cols;
+            this.bins = bins;
+            this.batching = batching;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                paintTile(from);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TileTask(zsorted, t, hints, area, cols, bins,
+                        batching, from, mid), new TileTask(zsorted, t, hints,
+                        area, cols, bins, batching, mid, to));
+            }
+        }
+
+        private void paintTile(int i) {
+            int[] bin = bins[i];
+            if (bin.length == 1) {
+                return;
+            }
+            BufferedImage image = images[i];
+            if (image == null) {
+                image = new BufferedImage(tileSize, tileSize,
+                        BufferedImage.TYPE_INT_ARGB_PRE);
+                images[i] = image;
+            }
+            int x = area.x + (i % cols) * tileSize;
+            int y = area.y + (i / cols) * tileSize;
+            int w = Math.min(tileSize, area.x + area.width - x);
+            int h = Math.min(tileSize, area.y + area.height - y);
+
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(0, 0, tileSize, tileSize);
+                g.setComposite(AlphaComposite.SrcOver);
+                g.setRenderingHints(hints);
+                g.translate(-x, -y);
+                g.clipRect(x, y, w, h);
+                if (batching) {
+                    Batcher.Buffer buffer = stamps[i];
+                    if (buffer == null) {
+                        buffer = new Batcher.Buffer();
+                        stamps[i] = buffer;
+                    }
+                    Batcher batcher = new Batcher(t, g, buffer);
+                    for (int k = 1; k < bin.length; ++ k) {
+                        batcher.paint(zsorted.get(bin[k]));
+                    }
+                    batcher.flush();
+                } else {
+                    for (int k = 1; k < bin.length; ++ k) {
+                        zsorted.get(bin[k]).paint(t, g);
+                    }
+                }
+            } finally {
+                g.dispose();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,352 @@
+package mlos.sgl.view;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import mlos.sgl.core.Rect;
+import mlos.sgl.core.Transform;
+import mlos.sgl.core.Transforms;
+import mlos.sgl.io.TilePyramid;
+import mlos.sgl.io.TilePyramid.Tile;
+import mlos.sgl.io.TilePyramid.TileData;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Paints points of a {@link TilePyramid}, loading only the tiles that cover
+ * the visible area. Tiles whose histogram is at least as fine as the screen
+ * are painted as density cells instead of descending to their children, so
+ * that the number of tiles needed does not grow with the zoom level or the
+ * size of the data set.
+ *
+ * Tiles are read on a background thread, never on the painting one. Until a
+ * tile arrives, its area is painted from the histogram of its closest loaded
+ * ancestor, and the view is refreshed once it does. Loaded tiles are kept in
+ * a cache limited by memory taken; least recently used tiles are evicted as
+ * the view pans and zooms.
+ *
+ * The painted image is kept, and repaints with the same transform, like the
+ * ones caused by cursor tracking, only draw it again. {@link #close()} stops
+ * the loader thread once the painter is no longer used.
+ */
+public class TiledPointsPainter implements Painter, Closeable {
+
+    public static final long DEFAULT_CACHE_BYTES = 64L << 20;
+
+    /** Largest size of a histogram cell on screen, in pixels */
+    private static final int MAX_CELL_SIZE = 2;
+
+    /** Number of points transformed at once */
+    private static final int BATCH = 4096;
+
+    private final TilePyramid pyramid;
+
+    private final CanvasView view;
+
+    private final Cache<Tile, TileData> cache;
+
+    /** Tiles being loaded */
+    private final Set<Tile> requested = Collections
+            .newSetFromMap(new ConcurrentHashMap<Tile, Boolean>());
+
+    private final ExecutorService loader = Executors
+            .newSingleThreadExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("tile-loader-%d").setDaemon(true).build());
+
+    /** Incremented whenever a tile arrives */
+    private final AtomicInteger arrivals = new AtomicInteger();
+
+    private final double[] screenXs = new double[BATCH];
+    private final double[] screenYs = new double[BATCH];
+
+    private volatile Color color = Color.blue;
+
+    /*
+     * Image painted last, with the state it was painted in.
+     */
+
+    private BufferedImage image;
+    private Rectangle imageArea;
+    private Transform imageTransform;
+    private int imageArrivals;
+    private Color imageColor;
+
+    public TiledPointsPainter(TilePyramid pyramid, CanvasView view) {
+        this(pyramid, view, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param view
+     *            View refreshed when tiles arrive
+     */
+    public TiledPointsPainter(TilePyramid pyramid, CanvasView view,
+            long cacheBytes) {
+        this.pyramid = checkNotNull(pyramid);
+        this.view = checkNotNull(view);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(cacheBytes)
+                .weigher(new Weigher<Tile, TileData>() {
+                    @Override
+                    public int weigh(Tile tile, TileData data) {
+                        return data.bytes();
+                    }
+                })
+                .build();
+    }
+
+    public Color getColor() {
+        return color;
+    }
+
+    public void setColor(Color color) {
+        this.color = checkNotNull(color);
+    }
+
+    /**
+     * @return Number of tiles currently in memory
+     */
+    public long getCachedTiles() {
+        return cache.size();
+    }
+
+    /** State of a single paint */
+    private final class Frame {
+
+        final Transform toScreen;
+        final Rect visible;
+        final Rectangle clip;
+        final int[] pixels;
+        final int argb;
+
+        Frame(Transform toScreen, Rectangle clip, int[] pixels, Color color) {
+            this.toScreen = toScreen;
+            this.clip = clip;
+            this.pixels = pixels;
+            this.visible = Transforms.invertBounds(toScreen,
+                    Rect.lbSize(clip.x, clip.y, clip.width, clip.height));
+            this.argb = color.getRGB() | 0xff000000;
+        }
+    }
+
+    @Override
+    public synchronized void paint(Transform toScreen, Graphics2D ctx) {
+        Rectangle clip = ctx.getClipBounds();
+        Tile root = pyramid.getRoot();
+        if (root == null || clip == null || clip.width <= 0
+                || clip.height <= 0) {
+            return;
+        }
+        Color c = color;
+        int arrived = arrivals.get();
+        boolean valid = image != null && imageArea.contains(clip)
+                && imageArrivals == arrived && c.equals(imageColor)
+                && sameTransform(toScreen, imageTransform);
+        if (!valid) {
+            if (image == null || image.getWidth() != clip.width
+                    || image.getHeight() != clip.height) {
+                image = new BufferedImage(clip.width, clip.height,
+                        BufferedImage.TYPE_INT_ARGB_PRE);
+            }
+            int[] pixels = ((DataBufferInt) image.getRaster()
+                    .getDataBuffer()).getData();
+            Arrays.fill(pixels, 0);
+            paint(new Frame(toScreen, clip, pixels, c), root, null, null);
+            imageArea = new Rectangle(clip);
+            imageTransform = toScreen;
+            imageArrivals = arrived;
+            imageColor = c;
+        }
+        ctx.drawImage(image, imageArea.x, imageArea.y, null);
+    }
+
+    /**
+     * @return {@code true} if the transforms map the plane the same way
+     */
+    private static boolean sameTransform(Transform a, Transform b) {
+        if (b == null) {
+            return false;
+        }
+        return a.applyX(0, 0) == b.applyX(0, 0)
+                && a.applyY(0, 0) == b.applyY(0, 0)
+                && a.applyX(1, 0) == b.applyX(1, 0)
+                && a.applyY(1, 0) == b.applyY(1, 0)
+                && a.applyX(0, 1) == b.applyX(0, 1)
+                && a.applyY(0, 1) == b.applyY(0, 1);
+    }
+
+    /**
+     * Paints the tile, or the part of the {@code fallback} histogram of its
+     * ancestor covering it, if the tile is not loaded yet.
+     */
+    private void paint(Frame frame, Tile tile, Tile fallback,
+            TileData fallbackData) {
+        if (!tile.bounds.intersects(frame.visible)) {
+            return;
+        }
+        Rect screen = Transforms.applyBounds(frame.toScreen, tile.bounds);
+        double cellSize = screen.width() / TilePyramid.GRID;
+        if (tile.leaf || cellSize <= MAX_CELL_SIZE) {
+            TileData data = get(tile);
+            if (data == null) {
+                if (fallbackData != null) {
+                    paintHistogram(frame, fallback, fallbackData, tile.bounds);
+                }
+            } else if (tile.leaf) {
+                paintPoints(frame, data);
+            } else {
+                paintHistogram(frame, tile, data, tile.bounds);
+            }
+        } else {
+            // the first ancestor is loaded, so that there is some fallback
+            TileData data = fallbackData == null ? get(tile)
+                    : cache.getIfPresent(tile);
+            if (data != null) {
+                fallback = tile;
+                fallbackData = data;
+            }
+            for (Tile child : pyramid.getChildren(tile)) {
+                paint(frame, child, fallback, fallbackData);
+            }
+        }
+    }
+
+    /**
+     * @return Data of the tile, or {@code null} if it is not loaded yet, in
+     *         which case it gets loaded in the background
+     */
+    private TileData get(final Tile tile) {
+        TileData data = cache.getIfPresent(tile);
+        if (data == null && !loader.isShutdown() && requested.add(tile)) {
+            loader.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        cache.put(tile, pyramid.load(tile));
+                        arrivals.incrementAndGet();
+                        view.refreshOverlay();
+                    } catch (IOException e) {
+                        if (!loader.isShutdown()) {
+                            loadingFailed(tile, e);
+                        }
+                    } finally {
+                        // a tile which failed is read again when next needed
+                        requested.remove(tile);
+                    }
+                }
+            });
+        }
+        return data;
+    }
+
+    /**
+     * Called on the loader thread when a tile cannot be read. The tile is
+     * read again once the view changes and it is still needed. Does nothing
+     * by default.
+     */
+    protected void loadingFailed(Tile tile, IOException cause) {
+        // nothing by default
+    }
+
+    /**
+     * Stops the loader thread. Tiles not loaded yet are no longer requested,
+     * so only the cached ones are painted.
+     */
+    @Override
+    public synchronized void close() {
+        loader.shutdownNow();
+    }
+
+    private void paintPoints(Frame frame, TileData data) {
+        int n = data.xs.length;
+        for (int base = 0; base < n; base += BATCH) {
+            int m = Math.min(BATCH, n - base);
+            frame.toScreen.apply(data.xs, data.ys, base, screenXs, screenYs,
+                    0, m);
+            for (int k = 0; k < m; ++ k) {
+                int x = (int) Math.floor(screenXs[k]) - frame.clip.x;
+                int y = (int) Math.floor(screenYs[k]) - frame.clip.y;
+                fill(frame, x, y, 2, frame.argb);
+            }
+        }
+    }
+
+    /**
+     * Paints cells of the histogram lying in the area as squares, more opaque
+     * the more points they contain relative to their area on screen.
+     */
+    private void paintHistogram(Frame frame, Tile tile, TileData data,
+            Rect area) {
+        int grid = TilePyramid.GRID;
+        double step = tile.bounds.width() / grid;
+        double cellSize = Transforms.applyBounds(frame.toScreen,
+                tile.bounds).width() / grid;
+        int size = Math.max(1, (int) Math.ceil(cellSize));
+        double cellArea = Math.max(1, cellSize * cellSize);
+        int rgb = frame.argb & 0xffffff;
+
+        int i0 = cell(area.left(), tile.bounds.left(), step);
+        int i1 = cell(area.right(), tile.bounds.left(), step);
+        int j0 = cell(area.bottom(), tile.bounds.bottom(), step);
+        int j1 = cell(area.top(), tile.bounds.bottom(), step);
+        for (int j = j0; j <= j1; ++ j) {
+            for (int i = i0; i <= i1; ++ i) {
+                int count = data.counts[j * grid + i];
+                if (count == 0) {
+                    continue;
+                }
+                double cx = tile.bounds.left() + (i + 0.5) * step;
+                double cy = tile.bounds.bottom() + (j + 0.5) * step;
+                if (cx < area.left() || cx >= area.right()
+                        || cy < area.bottom() || cy >= area.top()) {
+                    continue;
+                }
+                double sx = frame.toScreen.applyX(cx, cy);
+                double sy = frame.toScreen.applyY(cx, cy);
+                int x = (int) Math.floor(sx - size / 2.0) - frame.clip.x;
+                int y = (int) Math.floor(sy - size / 2.0) - frame.clip.y;
+                double density = Math.min(1, count / cellArea);
+                int alpha = (int) (0x30 + (0xff - 0x30) * density);
+                fill(frame, x, y, size, alpha << 24 | rgb);
+            }
+        }
+    }
+
+    private static int cell(double v, double origin, double step) {
+        int grid = TilePyramid.GRID;
+        return Math.max(0, Math.min(grid - 1, (int) ((v - origin) / step)));
+    }
+
+    private static void fill(Frame frame, int x, int y, int size, int argb) {
+        int w = frame.clip.width;
+        int h = frame.clip.height;
+        int x0 = Math.max(0, x);
+        int x1 = Math.min(w, x + size);
+        int y0 = Math.max(0, y);
+        int y1 = Math.min(h, y + size);
+        int[] pixels = frame.pixels;
+        for (int row = y0; row < y1; ++ row) {
+            for (int col = x0; col < x1; ++ col) {
+                int k = row * w + col;
+                pixels[k] = PointCloudPainter.blend(pixels[k], argb);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package mlos.sgl.view;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import mlos.sgl.canvas.CanvasObject;
+import mlos.sgl.canvas.ObjectZComparator;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Iterators;
+
+/**
+ * Collection of object painters kept sorted in the painting order, i.e. in the
+ * order defined by {@link ObjectZComparator}. Since z-value of an object may
+ * change, the sort key is remembered at insertion and needs to be refreshed by
+ * {@link #update(ObjectPainter)}.
+ */
+public class ZSortedPainters implements Iterable<ObjectPainter> {
+
+    private static final class Entry {
+
+        private final double z;
+        private final int hash;
+        private final long seq;
+        private final ObjectPainter painter;
+
+        public Entry(ObjectPainter painter, long seq) {
+            CanvasObject object = painter.getObject();
+            this.z = object.getZ();
+            this.hash = object.hashCode();
+            this.seq = seq;
+            this.painter = painter;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = new Comparator<Entry>() {
+
+        @Override
+        public int compare(Entry a, Entry b) {
+            int res = Double.compare(b.z, a.z);
+            if (res == 0) {
+                res = Integer.compare(a.hash, b.hash);
+            }
+            if (res == 0) {
+                res = Long.compare(a.seq, b.seq);
+            }
+            return res;
+        }
+    };
+
+    private static final Function<Entry, ObjectPainter> PAINTER =
+            new Function<Entry, ObjectPainter>() {
+
+        @Override
+        public ObjectPainter apply(Entry entry) {
+            return entry.painter;
+        }
+    };
+
+    private final NavigableSet<Entry> sorted = new TreeSet<>(ORDER);
+
+    private final Map<ObjectPainter, Entry> entries = new HashMap<>();
+
+    private long counter = 0;
+
+    public boolean add(ObjectPainter painter) {
+        checkNotNull(painter);
+        if (entries.containsKey(painter)) {
+            return false;
+        } else {
+            Entry entry = new Entry(painter, counter++);
+            entries.put(painter, entry);
+            sorted.add(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Adds many painters at once. If the batch is large compared to the
+     * collection, the order is rebuilt from a sorted array instead of
+     * inserting painters one by one.
+     */
+    public void addAll(Collection<? extends ObjectPainter> painters) {
+        if (painters.size() < entries.size() / 4) {
+            for (ObjectPainter painter : painters) {
+                add(painter);
+            }
+            return;
+        }
+        List<Entry> all = new ArrayList<>(sorted.size() + painters.size());
+        all.addAll(sorted);
+        for (ObjectPainter painter : painters) {
+            checkNotNull(painter);
+            if (!entries.containsKey(painter)) {
+                Entry entry = new Entry(painter, counter++);
+                entries.put(painter, entry);
+                all.add(entry);
+            }
+        }
+        // adding a sorted set to an empty tree set takes linear time
+        SortedSet<Entry> ordered = ImmutableSortedSet.copyOf(ORDER, all);
+        sorted.clear();
+        sorted.addAll(ordered);
+    }
+
+    public boolean remove(ObjectPainter painter) {
+        Entry entry = entries.remove(painter);
+        if (entry != null) {
+            sorted.remove(entry);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Moves the painter to the position matching current z-value of its
+     * object.
+     *
+     * @return {@code true} if the position has changed
+     */
+    public boolean update(ObjectPainter painter) {
+        Entry entry = entries.get(painter);
+        if (entry != null && entry.z != painter.getObject().getZ()) {
+            sorted.remove(entry);
+            Entry updated = new Entry(painter, entry.seq);
+            entries.put(painter, updated);
+            sorted.add(updated);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Sorts painters of this collection in the painting order.
+     */
+    public void sort(List<ObjectPainter> painters) {
+        Collections.sort(painters, new Comparator<ObjectPainter>() {
+            @Override
+            public int compare(ObjectPainter a, ObjectPainter b) {
+                return ORDER.compare(entries.get(a), entries.get(b));
+            }
+        });
+    }
+
+    public boolean contains(ObjectPainter painter) {
+        return entries.containsKey(painter);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        sorted.clear();
+    }
+
+    /**
+     * @return Iterator over the painters in the painting order
+     */
+    @Override
+    public Iterator<ObjectPainter> iterator() {
+        return Iterators.unmodifiableIterator(
+                Iterators.transform(sorted.iterator(), PAINTER));
+    }
+
+}